@@ -0,0 +1,103 @@
+import benchmarks.GameFixture;
+
+/**
+ * Sets up the game objects used by the benchmarks in the benchmarks package.
+ * See GameFixture for why this class lives in the default package.
+ */
+
+public class BenchmarkFixture implements GameFixture {
+    // constants
+    private static final int RICH = Integer.MAX_VALUE / 2;
+    private static final int TOWNS = 64; // a power of two
+
+    // instance variables
+    private RenderSink window;
+    private Player player;
+    private GameRandom random;
+    private Hunter hunter;
+    private Hunter richHunter;
+    private Shop shop;
+    private Town town;
+    private Town[] towns; // arrived at, and searched again by searchTreasure() in turn
+    private int nextTown;
+    private TreasureHunter game;
+    private long seed;
+
+    public BenchmarkFixture(long seed) {
+        this.seed = seed;
+        window = new CountingSink();
+        player = new GreedyPlayer("n");
+        random = new GameRandom(seed);
+
+        hunter = new Hunter("bench", RICH, window);
+        hunter.buyItem("water", 2);
+        hunter.buyItem("rope", 4);
+        hunter.buyItem("shovel", 8);
+        hunter.addToTreasureKit(Treasure.CROWN);
+        hunter.addToTreasureKit(Treasure.GEM);
+
+        shop = new Shop(0.5, player, window);
+        shop.setSamurai(true);
+
+        richHunter = new Hunter("rich", RICH, window);
+        town = new Town(shop, 0.4, window, random.split());
+        town.hunterArrives(richHunter);
+        towns = new Town[TOWNS];
+        for (int i = 0; i < TOWNS; i++) {
+            towns[i] = new Town(shop, 0.4, window, random.split());
+            towns[i].hunterArrives(richHunter);
+        }
+
+        newGame();
+    }
+
+    public boolean hasItemInKit(String item) {
+        return hunter.hasItemInKit(item);
+    }
+
+    public String getInventory() {
+        return hunter.getInventory();
+    }
+
+    public boolean treasureKitIsFull() {
+        return hunter.treasureKitIsFull();
+    }
+
+    public int getCostOfItem(String item) {
+        return shop.getCostOfItem(item);
+    }
+
+    public String shopInventory() {
+        return shop.inventory();
+    }
+
+    public String lookForTrouble() {
+        return town.lookForTrouble();
+    }
+
+    public void searchTreasure() {
+        Town searched = towns[nextTown++ & (TOWNS - 1)];
+        searched.restoreProgress(searched.isDug(), false);
+        searched.searchTreasure();
+    }
+
+    public Object getNewTerrain() {
+        return town.getNewTerrain();
+    }
+
+    public void playTurn() {
+        if (game.isOver()) {
+            newGame();
+        }
+        game.playTurn();
+    }
+
+    public void recordAction() {
+        Metrics.actionEnded(MenuAction.DIG, Metrics.actionStarted());
+    }
+
+    private void newGame() {
+        game = new TreasureHunter(new GreedyPlayer("n"), new CountingSink(), seed++);
+        game.start();
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+/**
+ * The game operations that are benchmarked.<p>
+ * JMH only accepts benchmarks in a named package, but the game lives in the default package,
+ * which a named package cannot import. BenchmarkFixture, in the default package, implements this
+ * interface on top of the real game classes, and the benchmarks call the game through it.
+ * Each benchmark only ever sees one implementation, so the interface call is inlined away.
+ */
+public interface GameFixture {
+
+    /** Hunter.hasItemInKit on a hunter carrying water, rope and shovel. */
+    boolean hasItemInKit(String item);
+
+    /** Hunter.getInventory on the same hunter. */
+    String getInventory();
+
+    /** Hunter.treasureKitIsFull on a hunter holding two of the three treasures. */
+    boolean treasureKitIsFull();
+
+    /** Shop.getCostOfItem on a samurai shop. */
+    int getCostOfItem(String item);
+
+    /** Shop.inventory on a samurai shop. */
+    String shopInventory();
+
+    /** Town.lookForTrouble with a hunter rich enough never to lose the game. */
+    String lookForTrouble();
+
+    /** Marks one of a ring of towns the hunter has arrived at as unsearched and runs Town.searchTreasure. */
+    void searchTreasure();
+
+    /** Town.getNewTerrain. */
+    Object getNewTerrain();
+
+    /** One pass of the TreasureHunter menu loop, played by GreedyPlayer into a CountingSink. */
+    void playTurn();
+
+    /** Counts an empty action in Metrics with the same calls processChoice makes around every action. */
+    void recordAction();
+
+    /**
+     * @param seed The seed of every game the fixture plays.
+     * @return The fixture for the game classes compiled into this module.
+     */
+    static GameFixture create(long seed) {
+        try {
+            return (GameFixture) Class.forName("BenchmarkFixture").getConstructor(long.class).newInstance(seed);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkFixture is missing from the classpath", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the Hunter's kit checks, which run several times on every turn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HunterBenchmark {
+
+    // first slot, last bought slot and an item that isn't in the kit
+    @Param({"water", "shovel", "boat"})
+    public String item;
+
+    private GameFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = GameFixture.create(1L);
+    }
+
+    @Benchmark
+    public boolean hasItemInKit() {
+        return fixture.hasItemInKit(item);
+    }
+
+    @Benchmark
+    public String getInventory() {
+        return fixture.getInventory();
+    }
+
+    @Benchmark
+    public boolean treasureKitIsFull() {
+        return fixture.treasureKitIsFull();
+    }
+}
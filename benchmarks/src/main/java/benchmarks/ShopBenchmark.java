@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the Shop's price lookup and price list, used on every visit to the shop.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+
+    // first and last branch of the price chain, and an unknown item
+    @Param({"water", "sword", "spoon"})
+    public String item;
+
+    private GameFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = GameFixture.create(1L);
+    }
+
+    @Benchmark
+    public int getCostOfItem() {
+        return fixture.getCostOfItem(item);
+    }
+
+    @Benchmark
+    public String inventory() {
+        return fixture.shopInventory();
+    }
+}
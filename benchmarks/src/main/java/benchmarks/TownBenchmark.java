@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the Town actions a hunter takes every turn, and building the terrain of a new town.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TownBenchmark {
+
+    private GameFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = GameFixture.create(1L);
+    }
+
+    @Benchmark
+    public String lookForTrouble() {
+        return fixture.lookForTrouble();
+    }
+
+    /**
+     * Includes marking the town unsearched again, since a town can only be searched once.
+     */
+    @Benchmark
+    public void searchTreasure() {
+        fixture.searchTreasure();
+    }
+
+    @Benchmark
+    public Object getNewTerrain() {
+        return fixture.getNewTerrain();
+    }
+}
@@ -0,0 +1,22 @@
+#!/bin/sh
+# Builds the game into out/treasurehunter.jar and makes an AppCDS archive of it from a training
+# game, so a game started with the archive maps its classes in already parsed and verified instead
+# of loading them from the jar. The archive only works with the JDK and the jar it was made with.
+#
+#   ./build-cds.sh
+#   java -XX:SharedArchiveFile=out/treasurehunter.jsa -jar out/treasurehunter.jar terminal
+#   java -jar out/treasurehunter.jar startup 20 out/treasurehunter.jsa
+#       compares the time to the first prompt with and without the archive
+set -e
+cd "$(dirname "$0")"
+
+rm -rf out
+javac -encoding UTF-8 --release 21 -d out/classes src/*.java
+cp src/catalog.txt out/classes/
+jar --create --file out/treasurehunter.jar --main-class TreasureHunterRunner -C out/classes .
+
+# a game that makes every menu choice, so the classes any turn needs are in the archive
+printf 'trainer\nn\nb\nshovel\ny\ns\nshovel\nn\ne\nl\nd\nh\nm\nl\nd\nh\nx\n' |
+    java -XX:ArchiveClassesAtExit=out/treasurehunter.jsa -jar out/treasurehunter.jar terminal > /dev/null
+
+echo "made out/treasurehunter.jsa"
@@ -0,0 +1,101 @@
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+
+/**
+ * A RenderSink that shows the game in an OutputWindow without the game thread ever touching Swing.<p>
+ * The game thread only puts render commands on a RenderQueue. On flush(), which the game calls
+ * before every question, one task is posted to the Event Dispatch Thread, and that task applies
+ * everything waiting in one batch and then has the window show what changed. Until it has run no
+ * further task is posted, so however fast the game writes there is one invokeLater per frame the
+ * EDT gets round to, and the game never waits for the document to be laid out.<p>
+ * The window is only opened by the first flush, so nothing of Swing or the AWT toolkit is loaded
+ * until the game has something to show, and a game that ends before then never loads it at all.
+ */
+
+public class AsyncWindow implements RenderSink {
+    // instance variables
+    private final RenderQueue queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drain = this::drain;
+    private final Runnable schedule = this::schedule; // run by the queue when it is full
+    private final int scrollback;
+    private boolean opened; // only used by the game thread
+    private OutputWindow window; // only used on the EDT
+
+    /**
+     * The window opens when the game first flushes.
+     *
+     * @param scrollback The most characters kept in the window, or OutputWindow.UNBOUNDED.
+     */
+    public AsyncWindow(int scrollback) {
+        this.scrollback = scrollback;
+        queue = new RenderQueue(RenderQueue.DEFAULT_CAPACITY);
+    }
+
+    public void addTextToWindow(String text, TextColor color) {
+        if (!text.isEmpty()) {
+            queue.addText(text, color, schedule);
+        }
+    }
+
+    public void addNumberToWindow(int number, TextColor color) {
+        queue.addNumber(number, color, schedule);
+    }
+
+    public void clear() {
+        queue.addClear(schedule);
+    }
+
+    public void startRegion(ScreenRegion region) {
+        queue.addRegion(region, schedule);
+    }
+
+    /**
+     * Has the EDT show everything written so far, unless it is already going to.
+     */
+    public void flush() {
+        schedule();
+    }
+
+    /**
+     * @return The render commands written but not yet shown.
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Opens the window on the Event Dispatch Thread and waits for it to appear.
+     */
+    private void open() {
+        try {
+            SwingUtilities.invokeAndWait(() -> window = new OutputWindow(scrollback));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while opening the window", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("could not open the window", e.getCause());
+        }
+        opened = true;
+    }
+
+    private void schedule() {
+        if (!opened) {
+            open();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(drain);
+        }
+    }
+
+    /**
+     * Runs on the EDT: applies every command waiting to the window and shows the result.
+     * The flag is dropped first, so text written while this runs posts the next drain.
+     */
+    private void drain() {
+        scheduled.set(false);
+        queue.drainTo(window);
+        window.flush();
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a save file up to date with a game without the game ever waiting for the disk.<p>
+ * The game thread encodes a snapshot into the back buffer, which takes a microsecond or so, and
+ * marks it dirty. A writer thread swaps the back and front buffers, writes the front one to a
+ * temporary file next to the save, fsyncs it and renames it over the save, while the game carries
+ * on filling the back buffer. Snapshots taken faster than the disk can keep up simply replace each
+ * other, so only the latest one is written.<p>
+ * The save is never written in place, so a crash part way through a write leaves the previous
+ * snapshot whole rather than a mix of two that could decode into the wrong game.
+ */
+
+public class Autosaver implements AutoCloseable {
+    // constants
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // instance variables
+    private final Path path;
+    private final Path temp;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition saved = lock.newCondition();
+    private final Thread writer;
+    private ByteBuffer back = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer front = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private boolean dirty;
+    private boolean closed;
+    private long writes;
+    private IOException failure;
+
+    /**
+     * Starts autosaving to a save file, which is created with the first snapshot if it doesn't exist.
+     *
+     * @param path The save file.
+     * @throws IOException If a temporary file left by a crashed run can't be removed.
+     */
+    public Autosaver(Path path) throws IOException {
+        this.path = path;
+        temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        Files.deleteIfExists(temp);
+        writer = new Thread(this::writeSaves, "autosave-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Takes a snapshot of a game for the writer to save. Never waits for the disk.
+     *
+     * @param game A game between turns.
+     */
+    public void save(TreasureHunter game) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("autosave failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("autosaver is closed");
+            }
+            int size = GameCodec.maxSize(game);
+            if (back.capacity() < size) {
+                back = ByteBuffer.allocate(Math.max(back.capacity() * 2, size));
+            }
+            back.clear();
+            GameCodec.encode(game, back);
+            back.flip();
+            dirty = true;
+            saved.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of snapshots written to disk so far.
+     */
+    public long getWrites() {
+        lock.lock();
+        try {
+            return writes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the last snapshot taken, then stops the writer.
+     *
+     * @throws IOException If a snapshot could not be written.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            saved.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The writer thread: swaps in the latest snapshot and puts it in place of the save.
+     */
+    private void writeSaves() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!dirty && !closed) {
+                    saved.awaitUninterruptibly();
+                }
+                if (!dirty) {
+                    return;
+                }
+                ByteBuffer latest = back;
+                back = front;
+                front = latest;
+                dirty = false;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (front.hasRemaining()) {
+                        channel.write(front);
+                    }
+                    channel.force(false);
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                writes++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * A value for every BalanceParameter, which a game takes its odds, prices and gold from.<p>
+ * A Balance never changes; with() makes a copy with one value changed, so the same Balance can be
+ * shared by every game played with it, on any thread.
+ */
+
+public class Balance {
+    // constants
+    public static final Balance DEFAULT = new Balance(defaults());
+
+    // instance variables
+    private final double[] values; // indexed by the parameter's ordinal
+
+    private Balance(double[] values) {
+        this.values = values;
+    }
+
+    /**
+     * @param parameter The parameter.
+     * @return Its value.
+     */
+    public double get(BalanceParameter parameter) {
+        return values[parameter.ordinal()];
+    }
+
+    /**
+     * @param parameter A parameter that takes whole numbers.
+     * @return Its value.
+     */
+    public int getInt(BalanceParameter parameter) {
+        return (int) values[parameter.ordinal()];
+    }
+
+    /**
+     * @param parameter The parameter to change.
+     * @param value Its new value, rounded if the parameter takes whole numbers.
+     * @return A copy of this Balance with the new value.
+     * @throws IllegalArgumentException If the game rolls a random number below the parameter and it would be less than 1.
+     */
+    public Balance with(BalanceParameter parameter, double value) {
+        if (parameter.isWhole()) {
+            value = Math.round(value);
+        }
+        if (parameter.isBound() && value < 1) {
+            throw new IllegalArgumentException(parameter + " must be at least 1");
+        }
+        double[] changed = values.clone();
+        changed[parameter.ordinal()] = value;
+        return new Balance(changed);
+    }
+
+    /**
+     * @param hardMode true in hard mode.
+     * @param easyMode true in easy mode.
+     * @return The share of an item's price a shop pays back in that mode.
+     */
+    public double markdown(boolean hardMode, boolean easyMode) {
+        if (hardMode) {
+            // in hard mode, you get less money back when you sell items
+            return get(BalanceParameter.HARD_MARKDOWN);
+        }
+        if (easyMode) {
+            return get(BalanceParameter.EASY_MARKDOWN);
+        }
+        return get(BalanceParameter.MARKDOWN);
+    }
+
+    /**
+     * @param hardMode true in hard mode.
+     * @return The chance of a town being tough in that mode.
+     */
+    public double toughness(boolean hardMode) {
+        if (hardMode) {
+            // in hard mode the town is "tougher"
+            return get(BalanceParameter.HARD_TOUGHNESS);
+        }
+        return get(BalanceParameter.TOUGHNESS);
+    }
+
+    /**
+     * @return The values that differ from the defaults, or "default".
+     */
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        for (BalanceParameter parameter : BalanceParameter.values()) {
+            if (get(parameter) != parameter.getDefault()) {
+                if (str.length() > 0) {
+                    str.append(' ');
+                }
+                str.append(parameter.name().toLowerCase()).append('=').append(get(parameter));
+            }
+        }
+        return str.length() == 0 ? "default" : str.toString();
+    }
+
+    private static double[] defaults() {
+        BalanceParameter[] parameters = BalanceParameter.values();
+        double[] values = new double[parameters.length];
+        for (BalanceParameter parameter : parameters) {
+            values[parameter.ordinal()] = parameter.getDefault();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The numbers that decide how hard the game is, which a Balance gives a value each.<p>
+ * Each one's default is the constant the game has always been played with, so a game with the
+ * default Balance plays out exactly as before, down to the random numbers it draws.
+ * Whole numbers, like amounts of gold, are rounded when a Balance is given a fraction. The ones the
+ * game rolls a random number below, the odds of digging up gold and the most gold a brawl or a dig
+ * can pay, must be at least 1.
+ */
+
+public enum BalanceParameter {
+    STARTING_GOLD(TreasureHunter.STARTING_GOLD, true, false),
+    EASY_BONUS_GOLD(TreasureHunter.EASY_BONUS_GOLD, true, false),
+    MARKDOWN(TreasureHunter.MARKDOWN, false, false),
+    HARD_MARKDOWN(TreasureHunter.HARD_MARKDOWN, false, false),
+    EASY_MARKDOWN(TreasureHunter.EASY_MARKDOWN, false, false),
+    TOUGHNESS(TreasureHunter.TOUGHNESS, false, false),
+    HARD_TOUGHNESS(TreasureHunter.HARD_TOUGHNESS, false, false),
+    TOUGH_TOWN_TROUBLE(Town.TOUGH_TOWN_TROUBLE, false, false),
+    TOWN_TROUBLE(Town.TOWN_TROUBLE, false, false),
+    EASY_BRAWL_BONUS(Town.EASY_BRAWL_BONUS, false, false),
+    MAX_BRAWL_GOLD(Town.MAX_BRAWL_GOLD, true, true),
+    DIG_ODDS(Town.DIG_ODDS, true, true),
+    MAX_DUG_GOLD(Town.MAX_DUG_GOLD, true, true),
+    BREAK_CHANCE(Town.BREAK_CHANCE, false, false);
+
+    // instance variables
+    private final double defaultValue;
+    private final boolean whole;
+    private final boolean bound;
+
+    BalanceParameter(double defaultValue, boolean whole, boolean bound) {
+        this.defaultValue = defaultValue;
+        this.whole = whole;
+        this.bound = bound;
+    }
+
+    public double getDefault() {
+        return defaultValue;
+    }
+
+    /**
+     * @return true if the parameter only takes whole numbers.
+     */
+    public boolean isWhole() {
+        return whole;
+    }
+
+    /**
+     * @return true if the game rolls a random number below the parameter, so it must be at least 1.
+     */
+    public boolean isBound() {
+        return bound;
+    }
+
+    /**
+     * @param name A parameter's name, in any case.
+     * @return The parameter, or null if there is none by that name.
+     */
+    public static BalanceParameter fromName(String name) {
+        for (BalanceParameter parameter : values()) {
+            if (parameter.name().equalsIgnoreCase(name)) {
+                return parameter;
+            }
+        }
+        return null;
+    }
+}
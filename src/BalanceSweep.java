@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulates games at many settings of the BalanceParameters to see how each one changes the game.<p>
+ * The points are either a grid, every combination of a few evenly spaced values of each parameter,
+ * or a Latin hypercube, where each parameter's range is cut into as many strips as there are points
+ * and every strip is used exactly once, which covers many parameters with far fewer points than a grid.<p>
+ * Every point plays the same numbered games from the same seeds as the others and as the default
+ * balance, that is with common random numbers: two points only differ where the change itself makes
+ * the games go differently, so the difference between two rows is much less noisy than either row.
+ * Each point's games are spread across all cores by the Simulation.
+ */
+
+public class BalanceSweep {
+    // constants
+    private static final int DEFAULT_GAMES = 20_000;
+    private static final long DEFAULT_SEED = 20240101L;
+    private static final int DEFAULT_STEPS = 3;
+    private static final String[] DEFAULT_RANGES = {"toughness=0.2:0.6:3", "break_chance=0.25:0.75:3"};
+
+    // instance variables
+    private final List<BalanceParameter> parameters = new ArrayList<>();
+    private final List<double[]> ranges = new ArrayList<>(); // low, high and the number of grid steps
+
+    /**
+     * Adds a parameter to sweep.
+     *
+     * @param range The parameter's name, then its lowest and highest values and, for a grid, how many values
+     *              to try, as in "break_chance=0.25:0.75:3".
+     * @throws IllegalArgumentException If the range can't be read.
+     */
+    public void addRange(String range) {
+        int equals = range.indexOf('=');
+        BalanceParameter parameter = equals < 0 ? null : BalanceParameter.fromName(range.substring(0, equals));
+        if (parameter == null) {
+            throw new IllegalArgumentException("no such parameter in " + range);
+        }
+        String[] bounds = range.substring(equals + 1).split(":");
+        if (bounds.length < 2 || bounds.length > 3) {
+            throw new IllegalArgumentException("expected low:high or low:high:steps in " + range);
+        }
+        double steps = bounds.length == 3 ? Integer.parseInt(bounds[2]) : DEFAULT_STEPS;
+        if (steps < 1) {
+            throw new IllegalArgumentException("need at least one step in " + range);
+        }
+        parameters.add(parameter);
+        ranges.add(new double[] {Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), steps});
+    }
+
+    /**
+     * @return Every combination of the parameters' evenly spaced values.
+     */
+    public List<Balance> grid() {
+        List<Balance> points = new ArrayList<>();
+        points.add(Balance.DEFAULT);
+        for (int p = 0; p < parameters.size(); p++) {
+            double[] range = ranges.get(p);
+            int steps = (int) range[2];
+            List<Balance> next = new ArrayList<>();
+            for (Balance point : points) {
+                for (int step = 0; step < steps; step++) {
+                    double value = steps == 1 ? range[0] : range[0] + (range[1] - range[0]) * step / (steps - 1);
+                    next.add(point.with(parameters.get(p), value));
+                }
+            }
+            points = next;
+        }
+        return points;
+    }
+
+    /**
+     * @param count The number of points.
+     * @param seed Where the shuffles and the positions within each strip come from.
+     * @return A Latin hypercube of points over the parameters' ranges.
+     */
+    public List<Balance> latinHypercube(int count, long seed) {
+        GameRandom random = new GameRandom(seed);
+        List<Balance> points = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(Balance.DEFAULT);
+        }
+        for (int p = 0; p < parameters.size(); p++) {
+            double[] range = ranges.get(p);
+            int[] strips = new int[count];
+            for (int i = 0; i < count; i++) {
+                strips[i] = i;
+            }
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = strips[i];
+                strips[i] = strips[j];
+                strips[j] = swap;
+            }
+            for (int i = 0; i < count; i++) {
+                double value = range[0] + (range[1] - range[0]) * (strips[i] + random.nextDouble()) / count;
+                points.set(i, points.get(i).with(parameters.get(p), value));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Simulates the default balance and then every point, printing a row for each.
+     *
+     * @param difficulty The difficulty to play (e, n, h or s).
+     * @param points The balances to try.
+     * @param games The number of games to play at each point.
+     * @param seed The seed every point's games are played from.
+     */
+    public void run(String difficulty, List<Balance> points, int games, long seed) {
+        StringBuilder header = new StringBuilder(String.format("%5s", "point"));
+        for (BalanceParameter parameter : parameters) {
+            header.append(' ').append(String.format("%" + width(parameter) + "s", parameter.name().toLowerCase()));
+        }
+        header.append(String.format(" %8s %8s %8s %10s %8s %10s", "win", "loss", "turns", "turns/win", "gold", "vs default"));
+        System.out.println(header);
+        long start = System.nanoTime();
+        SimulationStats baseline = Simulation.run(difficulty, games, seed, GreedyPlayer::new, Balance.DEFAULT);
+        System.out.println(row("-", Balance.DEFAULT, baseline, baseline));
+        for (int i = 0; i < points.size(); i++) {
+            SimulationStats stats = Simulation.run(difficulty, games, seed, GreedyPlayer::new, points.get(i));
+            System.out.println(row(String.valueOf(i + 1), points.get(i), stats, baseline));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d points of %d games in %.1f s", points.size() + 1, games, seconds));
+    }
+
+    private String row(String point, Balance balance, SimulationStats stats, SimulationStats baseline) {
+        StringBuilder row = new StringBuilder(String.format("%5s", point));
+        for (BalanceParameter parameter : parameters) {
+            row.append(' ').append(String.format("%" + width(parameter) + ".3f", balance.get(parameter)));
+        }
+        row.append(String.format(" %7.2f%% %7.2f%% %8.1f %10.1f %8.1f %+10.2f",
+                stats.getWinRate() * 100, stats.getLossRate() * 100, stats.getAverageTurns(),
+                stats.getAverageTurnsToWin(), stats.getAverageFinalGold(),
+                (stats.getWinRate() - baseline.getWinRate()) * 100));
+        return row.toString();
+    }
+
+    private static int width(BalanceParameter parameter) {
+        return Math.max(8, parameter.name().length());
+    }
+
+    /**
+     * Runs a sweep from the command line.
+     *
+     * @param args Optionally: the difficulty, the number of games per point, "grid" or "lhs" followed by
+     *             the number of points, and then any number of ranges like "break_chance=0.25:0.75:3".
+     */
+    public static void main(String[] args) {
+        String difficulty = args.length > 0 ? args[0] : "n";
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES;
+        int next = 2;
+        int latinPoints = 0;
+        if (args.length > next && args[next].equals("grid")) {
+            next++;
+        } else if (args.length > next + 1 && args[next].equals("lhs")) {
+            latinPoints = Integer.parseInt(args[next + 1]);
+            next += 2;
+        }
+        BalanceSweep sweep = new BalanceSweep();
+        if (args.length > next) {
+            for (int i = next; i < args.length; i++) {
+                sweep.addRange(args[i]);
+            }
+        } else {
+            for (String range : DEFAULT_RANGES) {
+                sweep.addRange(range);
+            }
+        }
+        List<Balance> points = latinPoints > 0 ? sweep.latinHypercube(latinPoints, DEFAULT_SEED) : sweep.grid();
+        sweep.run(difficulty, points, games, DEFAULT_SEED);
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Plays command scripts (see ScriptedPlayer) through the real game loop, for regression and load runs.<p>
+ * Each script is one game, played on a pool of workers with one script per worker at a time, and
+ * the runner reports how each one ended and how fast the batch went. Scripts can be recorded
+ * from games played by GreedyPlayer to get a batch to start from.
+ */
+
+public class BatchRunner {
+    // constants
+    private static final long DEFAULT_SEED = 20240101L;
+    private static final String SUFFIX = ".txt";
+
+    /**
+     * How one script's game ended.
+     */
+    public static class Outcome {
+        // instance variables
+        private final String script;
+        private final String result;
+        private final int turns;
+        private final int gold;
+        private final long nanos;
+
+        Outcome(String script, String result, int turns, int gold, long nanos) {
+            this.script = script;
+            this.result = result;
+            this.turns = turns;
+            this.gold = gold;
+            this.nanos = nanos;
+        }
+
+        public String getScript() {
+            return script;
+        }
+
+        /**
+         * @return won, lost, quit (the script gave up the hunt), exhausted (the script ran out of
+         *         answers) or an error message.
+         */
+        public String getResult() {
+            return result;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public int getGold() {
+            return gold;
+        }
+
+        public String toString() {
+            return String.format("%-24s %-10s %6d %6d %9.2f", script, result, turns, gold, nanos / 1e6);
+        }
+    }
+
+    private BatchRunner() {
+    }
+
+    /**
+     * Plays one script.
+     *
+     * @param path The script.
+     * @return How its game ended.
+     */
+    public static Outcome play(Path path) {
+        long start = System.nanoTime();
+        String name = path.getFileName().toString();
+        try {
+            ScriptedPlayer player = ScriptedPlayer.load(path, DEFAULT_SEED);
+            TreasureHunter game = new TreasureHunter(player, new CountingSink(), player.getSeed());
+            game.play();
+            String result;
+            if (game.isWon()) {
+                result = "won";
+            } else if (game.isLost()) {
+                result = "lost";
+            } else if (player.isExhausted()) {
+                result = "exhausted";
+            } else {
+                result = "quit";
+            }
+            return new Outcome(name, result, game.getTurns(), game.getHunter().getGold(), System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            return new Outcome(name, "error: " + e, 0, 0, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Plays every script on a pool of workers.
+     *
+     * @param scripts The scripts.
+     * @param workers The number of scripts played at once.
+     * @return How each game ended, in the order of the scripts.
+     */
+    public static List<Outcome> playAll(List<Path> scripts, int workers) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (Path script : scripts) {
+                futures.add(pool.submit(() -> play(script)));
+            }
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes the script of a game played by GreedyPlayer.
+     *
+     * @param path Where the script goes.
+     * @param difficulty The difficulty the game is played at.
+     * @param seed The seed the game is played from.
+     */
+    public static void record(Path path, String difficulty, long seed) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("seed " + seed);
+        Player greedy = new GreedyPlayer(difficulty);
+        Player recorder = (prompt, hunter, town) -> {
+            String answer = greedy.respond(prompt, hunter, town);
+            lines.add(answer);
+            return answer;
+        };
+        new TreasureHunter(recorder, new CountingSink(), seed).play();
+        Files.write(path, lines);
+    }
+
+    /**
+     * @param arg An argument that is neither a script nor a directory of them.
+     * @return The number of workers it gives.
+     * @throws IllegalArgumentException If it isn't a number of workers either.
+     */
+    private static int parseWorkers(String arg) {
+        int workers;
+        try {
+            workers = Integer.parseInt(arg);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("no script or directory at " + arg + ", and it isn't a number of workers", e);
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("the number of workers must be at least 1, not " + arg);
+        }
+        return workers;
+    }
+
+    /**
+     * Plays a batch of scripts and prints each outcome and the throughput, or records a batch.<p>
+     * Arguments: a directory of .txt scripts or script files, then optionally a number of workers
+     * (default: one per processor). To record: record, a directory, a number of scripts, and
+     * optionally a difficulty (default n).
+     *
+     * @param args See above.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("usage: batch <dir|script...> [workers] | batch record <dir> <count> [difficulty]");
+            return;
+        }
+        if (args[0].equals("record")) {
+            Path dir = Files.createDirectories(Path.of(args[1]));
+            int count = Integer.parseInt(args[2]);
+            String difficulty = args.length > 3 ? args[3] : "n";
+            for (int i = 0; i < count; i++) {
+                record(dir.resolve(String.format("game%06d%s", i, SUFFIX)), difficulty, GameRandom.seedForGame(DEFAULT_SEED, i));
+            }
+            System.out.println(String.format("recorded %d scripts in %s", count, dir));
+            return;
+        }
+
+        List<Path> scripts = new ArrayList<>();
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            Path path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    files.filter(file -> file.toString().endsWith(SUFFIX)).sorted().forEach(scripts::add);
+                }
+            } else if (Files.exists(path)) {
+                scripts.add(path);
+            } else {
+                workers = parseWorkers(arg);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<Outcome> outcomes = playAll(scripts, workers);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%-24s %-10s %6s %6s %9s", "script", "result", "turns", "gold", "ms"));
+        long turns = 0;
+        int won = 0;
+        int lost = 0;
+        int errors = 0;
+        for (Outcome outcome : outcomes) {
+            System.out.println(outcome);
+            turns += outcome.getTurns();
+            if (outcome.getResult().equals("won")) {
+                won++;
+            } else if (outcome.getResult().equals("lost")) {
+                lost++;
+            } else if (outcome.getResult().startsWith("error")) {
+                errors++;
+            }
+        }
+        double seconds = elapsed / 1e9;
+        System.out.println(String.format("%d scripts on %d workers in %.0f ms: %d won, %d lost, %d errors",
+                outcomes.size(), workers, elapsed / 1e6, won, lost, errors));
+        System.out.println(String.format("%.0f scripts/s, %.0f turns/s", outcomes.size() / seconds, turns / seconds));
+    }
+}
@@ -0,0 +1,72 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A pool of direct ByteBuffers, all the same size, shared by every connection to a GameServer.<p>
+ * A direct buffer can be handed to a socket without being copied first, but it is slow to allocate
+ * and is only freed by the garbage collector, so buffers are borrowed for one turn's output and
+ * given back once it has been sent. A connection that is sitting idle holds no buffer at all.
+ */
+
+public class BufferPool {
+    // instance variables
+    private final int bufferSize;
+    private final ByteBuffer[] free;
+    private int freeCount;
+    private long allocated;
+
+    /**
+     * @param bufferSize The size of every buffer, in bytes.
+     * @param maxPooled The most free buffers kept; buffers given back beyond that are left to the garbage collector.
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        free = new ByteBuffer[maxPooled];
+    }
+
+    /**
+     * @return An empty buffer, from the pool if one is free.
+     */
+    public ByteBuffer acquire() {
+        synchronized (this) {
+            if (freeCount > 0) {
+                ByteBuffer buffer = free[--freeCount];
+                free[freeCount] = null;
+                return buffer;
+            }
+            allocated++;
+        }
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Gives a buffer back to the pool. The caller must not touch it afterwards.
+     *
+     * @param buffer A buffer from acquire().
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        synchronized (this) {
+            if (freeCount < free.length) {
+                free[freeCount++] = buffer;
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return The number of buffers the pool has ever had to allocate.
+     */
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * @return The number of buffers sitting free in the pool.
+     */
+    public synchronized int getFree() {
+        return freeCount;
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Catalog holds every item and terrain in the game.<p>
+ * It is read once from the catalog.txt resource when the game starts and never changes after that.
+ * Items and terrain are stored in arrays indexed by their id, so looking one up by id is
+ * an array access, and each Terrain is a single shared object rather than one per town.
+ */
+
+public final class Catalog {
+    // constants
+    private static final String RESOURCE = "/catalog.txt";
+    private static final int MAX_ITEMS = 31; // a kit is an int with one bit per item, and the sign bit is kept clear
+
+    // static variables
+    private static final Item[] ITEMS;
+    private static final Terrain[] TERRAINS;
+    private static final Map<String, Item> ITEMS_BY_NAME = new HashMap<>();
+
+    /**
+     * The shovel, needed to dig for gold.
+     */
+    public static final Item SHOVEL;
+
+    /**
+     * The samurai's sword, which makes everything in the shop free.
+     */
+    public static final Item SWORD;
+
+    static {
+        List<Item> items = new ArrayList<>();
+        List<Terrain> terrains = new ArrayList<>();
+        load(items, terrains);
+        ITEMS = items.toArray(new Item[0]);
+        TERRAINS = terrains.toArray(new Terrain[0]);
+        SHOVEL = required("shovel");
+        SWORD = required("sword");
+    }
+
+    private Catalog() {
+    }
+
+    /**
+     * Looks up an item by name.
+     *
+     * @param name The lower case name of the item.
+     * @return The item, or null if the catalog has no item with that name.
+     */
+    public static Item item(String name) {
+        return ITEMS_BY_NAME.get(name);
+    }
+
+    /**
+     * @param id The id of an item.
+     * @return The item with that id.
+     */
+    public static Item item(int id) {
+        return ITEMS[id];
+    }
+
+    public static int itemCount() {
+        return ITEMS.length;
+    }
+
+    /**
+     * @param id The id of a terrain.
+     * @return The terrain with that id.
+     */
+    public static Terrain terrain(int id) {
+        return TERRAINS[id];
+    }
+
+    public static int terrainCount() {
+        return TERRAINS.length;
+    }
+
+    /**
+     * @return A kit holding every item that is sold outside samurai mode.
+     */
+    public static int everyOrdinaryItem() {
+        int kit = 0;
+        for (Item item : ITEMS) {
+            if (!item.isSamuraiOnly()) {
+                kit |= item.bit();
+            }
+        }
+        return kit;
+    }
+
+    private static Item required(String name) {
+        Item item = ITEMS_BY_NAME.get(name);
+        if (item == null) {
+            throw new IllegalStateException(RESOURCE + " has no " + name);
+        }
+        return item;
+    }
+
+    /**
+     * Reads the catalog resource. Each line is blank, a # comment,
+     * "item name cost [samurai]" or "terrain Name item".
+     */
+    private static void load(List<Item> items, List<Terrain> terrains) {
+        InputStream in = Catalog.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IllegalStateException(RESOURCE + " is missing from the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields[0].equals("item") && (fields.length == 3 || fields.length == 4)) {
+                    if (items.size() == MAX_ITEMS) {
+                        throw new IllegalStateException(RESOURCE + ":" + lineNumber + ": more than " + MAX_ITEMS + " items");
+                    }
+                    String name = fields[1].toLowerCase();
+                    boolean samuraiOnly = fields.length == 4 && fields[3].equals("samurai");
+                    Item item = new Item(items.size(), name, Integer.parseInt(fields[2]), samuraiOnly);
+                    items.add(item);
+                    ITEMS_BY_NAME.put(item.getName(), item);
+                } else if (fields[0].equals("terrain") && fields.length == 3) {
+                    Item neededItem = ITEMS_BY_NAME.get(fields[2].toLowerCase());
+                    if (neededItem == null) {
+                        throw new IllegalStateException(RESOURCE + ":" + lineNumber + ": unknown item " + fields[2]);
+                    }
+                    terrains.add(new Terrain(terrains.size(), fields[1], neededItem));
+                } else {
+                    throw new IllegalStateException(RESOURCE + ":" + lineNumber + ": can't read \"" + line + "\"");
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Couldn't read " + RESOURCE, e);
+        }
+    }
+}
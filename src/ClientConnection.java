@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * One remote player's connection to a GameServer, and the Session it plays.<p>
+ * The protocol is plain lines of text: every line the player sends is the answer to the game's
+ * next question, and the game's text comes back with ANSI colors, one write per turn, so any
+ * telnet or netcat client can play.<p>
+ * Lines are read by the connection's selector thread, which cuts them out of its read buffer and
+ * looks them up in the InputTable; only a line split across two reads is copied aside. A player
+ * who sends more lines ahead of the game than the Session will queue is dropped. Output is
+ * written by the game's own thread as soon as a turn is flushed. If the socket can't take all of it,
+ * the rest waits here and the selector thread finishes the write when the socket has room again.
+ */
+
+public class ClientConnection {
+    // constants
+    private static final int MAX_LINE = 256; // longer lines are from something that isn't a player
+    private static final int MAX_PENDING = 64; // buffers waiting for a client that stopped reading before it is dropped
+
+    // instance variables
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final GameServer server;
+    private volatile Session session;
+    private byte[] partial; // the start of a line split across reads; only used by the selector thread
+    private int partialLength;
+    private ArrayDeque<ByteBuffer> pending; // buffers not yet fully written, guarded by this
+    private boolean finished; // the game is over; close once everything is written
+    private boolean closed;
+
+    /**
+     * Connections are created by the GameServer.
+     *
+     * @param channel The player's socket, already non-blocking.
+     * @param key The socket's registration with its selector thread.
+     * @param server The server the player connected to.
+     */
+    ClientConnection(SocketChannel channel, SelectionKey key, GameServer server) {
+        this.channel = channel;
+        this.key = key;
+        this.server = server;
+    }
+
+    /**
+     * @param session The game this connection's lines are sent to.
+     */
+    void start(Session session) {
+        this.session = session;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Reads what the player has sent and passes every complete line to the game.
+     * Only called by the selector thread.
+     *
+     * @param buffer The selector thread's read buffer.
+     * @param table Turns each line into the String the game reads.
+     */
+    void read(ByteBuffer buffer, InputTable table) {
+        buffer.clear();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        int limit = buffer.position();
+        int start = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                if (partialLength > 0) {
+                    if (!keep(buffer, start, i)) {
+                        return;
+                    }
+                    if (!line(ByteBuffer.wrap(partial), 0, partialLength, table)) {
+                        return;
+                    }
+                    partialLength = 0;
+                } else if (!line(buffer, start, i, table)) {
+                    return;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < limit) {
+            keep(buffer, start, limit);
+        }
+    }
+
+    /**
+     * Sends a line to the game.
+     *
+     * @return false if the game has too many lines waiting, in which case the connection has been closed.
+     */
+    private boolean line(ByteBuffer buffer, int from, int to, InputTable table) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        server.countLine();
+        if (!session.send(table.lookup(buffer, from, to))) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies part of a line aside until the rest of it arrives.
+     *
+     * @return false if the line is too long, in which case the connection has been closed.
+     */
+    private boolean keep(ByteBuffer buffer, int from, int to) {
+        int length = partialLength + to - from;
+        if (length > MAX_LINE) {
+            close();
+            return false;
+        }
+        if (partial == null) {
+            partial = new byte[MAX_LINE];
+        }
+        buffer.get(from, partial, partialLength, to - from);
+        partialLength = length;
+        return true;
+    }
+
+    /**
+     * Writes a turn's output, and keeps whatever the socket can't take yet. Called by the game's thread.
+     *
+     * @param buffers The turn's text, filled from position zero; the connection gives them back to the pool.
+     * @param count The number of buffers used.
+     */
+    synchronized void send(ByteBuffer[] buffers, int count) {
+        BufferPool pool = server.getPool();
+        for (int i = 0; i < count; i++) {
+            buffers[i].flip();
+        }
+        boolean waiting = pending != null && !pending.isEmpty();
+        if (!closed && !waiting) {
+            try {
+                channel.write(buffers, 0, count);
+            } catch (IOException e) {
+                close();
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (closed || (!waiting && !buffers[i].hasRemaining())) {
+                pool.release(buffers[i]);
+            } else {
+                if (pending == null) {
+                    pending = new ArrayDeque<>();
+                }
+                pending.add(buffers[i]);
+                waiting = true;
+            }
+        }
+        if (waiting && !closed) {
+            if (pending.size() > MAX_PENDING) {
+                close();
+            } else {
+                key.interestOpsOr(SelectionKey.OP_WRITE);
+                key.selector().wakeup();
+            }
+        }
+    }
+
+    /**
+     * Carries on writing what the socket couldn't take before. Only called by the selector thread.
+     */
+    synchronized void writePending() {
+        BufferPool pool = server.getPool();
+        while (pending != null && !pending.isEmpty()) {
+            ByteBuffer buffer = pending.peek();
+            try {
+                channel.write(buffer);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            pool.release(pending.poll());
+        }
+        key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        if (finished) {
+            close();
+        }
+    }
+
+    /**
+     * Called once the game has ended: the connection closes as soon as the last of its text is written.
+     */
+    synchronized void finish() {
+        finished = true;
+        if (pending == null || pending.isEmpty()) {
+            close();
+        }
+    }
+
+    /**
+     * Drops the connection and ends its game.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pending != null) {
+            for (ByteBuffer buffer : pending) {
+                server.getPool().release(buffer);
+            }
+            pending.clear();
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the socket is being dropped either way
+        }
+        server.closed();
+        Session playing = session;
+        if (playing != null && !finished) {
+            playing.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+/**
+ * The ConsolePlayer is the person sitting at the keyboard.
+ * Every question is answered with the next line typed into the console.<p>
+ * Lines are read with a plain BufferedReader rather than a Scanner: a Scanner loads the locale's
+ * number formats when it is made, which is most of the time a short game takes to start.
+ */
+
+public class ConsolePlayer implements Player {
+    // static variables
+    private static final BufferedReader CONSOLE = new BufferedReader(new InputStreamReader(System.in));
+
+    /**
+     * @throws NoSuchElementException If the console has been closed, as Scanner.nextLine() would.
+     */
+    public String respond(Prompt prompt, Hunter hunter, Town town) {
+        String line;
+        try {
+            line = CONSOLE.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (line == null) {
+            throw new NoSuchElementException("No line found");
+        }
+        return line;
+    }
+}
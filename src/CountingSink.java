@@ -0,0 +1,41 @@
+/**
+ * A RenderSink that shows nothing and only counts what it is given.<p>
+ * It tells callers it isn't rendering, so no text is formatted for it at all.
+ * Used when games are played by a strategy rather than by a person, such as in a Simulation.
+ */
+
+public class CountingSink implements RenderSink {
+    // instance variables
+    private long fragments;
+    private long clears;
+
+    public void addTextToWindow(String text, TextColor color) {
+        fragments++;
+    }
+
+    public void addNumberToWindow(int number, TextColor color) {
+        fragments++;
+    }
+
+    public void clear() {
+        clears++;
+    }
+
+    public boolean isRendering() {
+        return false;
+    }
+
+    /**
+     * @return The number of text fragments written to this sink.
+     */
+    public long getFragments() {
+        return fragments;
+    }
+
+    /**
+     * @return The number of times this sink has been cleared.
+     */
+    public long getClears() {
+        return clears;
+    }
+}
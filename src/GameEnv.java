@@ -0,0 +1,174 @@
+/**
+ * One game of Treasure Hunter behind the interface bots are trained against: reset(seed) starts
+ * a game, and step(action) plays one menu choice and gives back a reward, with the hunter's
+ * situation afterwards in the observation and whether the game is over in isDone().<p>
+ * The game is the real one. Each step answers the prompts the TreasureHunter asks for that
+ * choice, so the Town, Shop and Hunter rules apply exactly as when a person plays, and the same
+ * seed and actions always play out the same game. That makes it slow next to VectorEnv, which
+ * plays the same games over primitive arrays; this class is the reference VectorEnv is checked
+ * against.<p>
+ * An action is one of the constants below, with an item's id added for buying and selling. The
+ * observation is an int array indexed by the observation constants, and only holds what the
+ * player could see at the menu, so a town's treasure stays hidden until it is hunted for.
+ */
+
+public class GameEnv {
+    // actions
+    public static final int MOVE = 0;
+    public static final int TROUBLE = 1;
+    public static final int DIG = 2;
+    public static final int HUNT = 3;
+    public static final int EXIT = 4;
+    public static final int BUY = 5; // BUY + an item's id buys that item
+    public static final int SELL = BUY + Catalog.itemCount(); // SELL + an item's id sells that item
+    public static final int ACTIONS = SELL + Catalog.itemCount();
+
+    // the observation
+    public static final int GOLD = 0;
+    public static final int KIT = 1; // one bit per Item
+    public static final int TREASURES = 2; // one bit per Treasure
+    public static final int TERRAIN = 3; // the terrain's id
+    public static final int TOUGH = 4; // 1 if the town is tough
+    public static final int DUG = 5; // 1 if the hunter has dug here
+    public static final int SEARCHED = 6; // 1 if the hunter has found this town's treasure
+    public static final int TURNS = 7;
+    public static final int OBSERVATION_SIZE = 8;
+
+    // constants
+    public static final int MAX_TURNS = 500; // a game still going after this many turns is cut off
+    public static final double WIN_REWARD = 1;
+    public static final double LOSS_REWARD = -1;
+    private static final String NAME = "env";
+
+    // instance variables
+    private final String difficulty;
+    private final Balance balance;
+    private final RenderSink window = new CountingSink();
+    private final int[] observation = new int[OBSERVATION_SIZE];
+    private TreasureHunter game;
+    private String choice;
+    private String item;
+    private boolean done;
+
+    /**
+     * @param difficulty The difficulty every game is played at (e, n, h or s).
+     */
+    public GameEnv(String difficulty) {
+        this(difficulty, Balance.DEFAULT);
+    }
+
+    /**
+     * @param difficulty The difficulty every game is played at (e, n, h or s).
+     * @param balance The numbers every game is played with.
+     */
+    public GameEnv(String difficulty, Balance balance) {
+        this.difficulty = difficulty;
+        this.balance = balance;
+    }
+
+    /**
+     * Starts a new game and puts the hunter in the first town.
+     *
+     * @param seed The seed the game is played from.
+     * @return The observation, which is the same array after every step.
+     */
+    public int[] reset(long seed) {
+        game = new TreasureHunter(this::answer, window, seed);
+        game.setBalance(balance);
+        game.start();
+        done = false;
+        observe();
+        return observation;
+    }
+
+    /**
+     * Plays one menu choice.
+     *
+     * @param action MOVE, TROUBLE, DIG, HUNT, EXIT, or BUY or SELL plus an item's id.
+     * @return WIN_REWARD if the choice found the last treasure, LOSS_REWARD if it lost the game, and 0 otherwise.
+     * @throws IllegalStateException If the game is over and hasn't been reset.
+     * @throws IllegalArgumentException If there is no such action.
+     */
+    public double step(int action) {
+        if (done) {
+            throw new IllegalStateException("the game is over; reset it first");
+        }
+        item = null;
+        if (action == MOVE) {
+            choice = MenuAction.MOVE.getKey();
+        } else if (action == TROUBLE) {
+            choice = MenuAction.TROUBLE.getKey();
+        } else if (action == DIG) {
+            choice = MenuAction.DIG.getKey();
+        } else if (action == HUNT) {
+            choice = MenuAction.HUNT.getKey();
+        } else if (action == EXIT) {
+            choice = MenuAction.EXIT.getKey();
+        } else if (action >= BUY && action < SELL) {
+            choice = MenuAction.BUY.getKey();
+            item = Catalog.item(action - BUY).getName();
+        } else if (action >= SELL && action < ACTIONS) {
+            choice = MenuAction.SELL.getKey();
+            item = Catalog.item(action - SELL).getName();
+        } else {
+            throw new IllegalArgumentException("no such action: " + action);
+        }
+        game.playTurn();
+        if (!game.isOver() && game.getHunter().treasureKitIsFull()) {
+            // the game notices the win at the start of the next turn, before it asks anything
+            game.playTurn();
+        }
+        done = game.isOver() || game.getTurns() >= MAX_TURNS;
+        observe();
+        if (game.isWon()) {
+            return WIN_REWARD;
+        } else if (game.isLost()) {
+            return LOSS_REWARD;
+        }
+        return 0;
+    }
+
+    /**
+     * @return The hunter's situation after the last reset or step.
+     */
+    public int[] getObservation() {
+        return observation;
+    }
+
+    /**
+     * @return true once the game has been won, lost or given up, or has run for MAX_TURNS.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    public TreasureHunter getGame() {
+        return game;
+    }
+
+    private String answer(Prompt prompt, Hunter hunter, Town town) {
+        if (prompt == Prompt.NAME) {
+            return NAME;
+        } else if (prompt == Prompt.DIFFICULTY) {
+            return difficulty;
+        } else if (prompt == Prompt.MENU) {
+            return choice;
+        } else if (prompt == Prompt.BUY_ITEM || prompt == Prompt.SELL_ITEM) {
+            return item;
+        }
+        return "y";
+    }
+
+    private void observe() {
+        Hunter hunter = game.getHunter();
+        Town town = game.getCurrentTown();
+        observation[GOLD] = hunter.getGold();
+        observation[KIT] = hunter.getKit();
+        observation[TREASURES] = hunter.getTreasureKit();
+        observation[TERRAIN] = town.getTerrain().id();
+        observation[TOUGH] = town.isToughTown() ? 1 : 0;
+        observation[DUG] = town.isDug() ? 1 : 0;
+        observation[SEARCHED] = town.isTreasureSearched() ? 1 : 0;
+        observation[TURNS] = game.getTurns();
+    }
+}
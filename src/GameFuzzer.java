@@ -0,0 +1,483 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays huge numbers of games from random seeds and random lines of input, checking every
+ * Invariant after every turn, to find the rare paths where the rules go wrong.<p>
+ * A game is a seed and the answers a ScriptedPlayer gives: a name, a difficulty, then menu choices,
+ * item names, y/n and nonsense, mostly sensible so games get somewhere. Each core runs a Worker
+ * with its own corpus. Every turn is summed up as a feature: the choice, which way the gold, kit
+ * and treasures went, whether the hunter moved, how the game stands, how many answers it read and
+ * the difficulty. A game that makes a pair of features in a row the worker hasn't seen before is
+ * kept, and most new games are mutations of kept ones, so the fuzzer works its way into states
+ * that random input alone almost never reaches.<p>
+ * The first game that breaks an invariant stops every worker. It is then shrunk by removing runs
+ * of answers, from half of them down to one at a time and from every place in the game, for as
+ * long as the game still breaks the same invariant, and printed as a script in ScriptedPlayer's
+ * format that the batch mode replays.
+ */
+
+public class GameFuzzer {
+    // constants
+    private static final int DEFAULT_SECONDS = 10;
+    private static final long DEFAULT_SEED = 20240101L;
+    private static final int MAX_ANSWERS = 64;
+    private static final int MAX_CORPUS = 4096;
+    private static final int COVERAGE_LOG = 18;
+    private static final int COVERAGE_BITS = 1 << COVERAGE_LOG;
+    private static final int COUNT_EVERY = 256; // games a worker plays between adding to the shared count
+    private static final String[] NAMES = {"hunter", "a", "Zed", "\u00e9"};
+    private static final String[] DIFFICULTIES = {"e", "n", "h", "s", "test"};
+    private static final String[] CHOICES = {"b", "s", "e", "m", "l", "d", "h"}; // every menu choice but exit
+    private static final String[] CONFIRMS = {"y", "n", "Y", "yes"};
+    private static final String[] ODD = {"q", "B", "H", "bb", "SHOVEL", "dust", "\u00e9", "0"};
+    private static final String[] ITEMS = itemNames();
+    private static final int ALL_ITEMS = (1 << Catalog.itemCount()) - 1;
+    private static final int MAX_GOLD_CHANGE = maxGoldChange();
+
+    // instance variables
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final AtomicReference<Failure> failure = new AtomicReference<>();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder steps = new LongAdder();
+
+    private GameFuzzer() {
+    }
+
+    /**
+     * Plays one game and checks every invariant after every step.
+     *
+     * @param seed The seed the game is played from.
+     * @param answers The player's answers; once they run out the player gives up.
+     * @param worker Told about each turn's features, or null when replaying.
+     * @return How the game broke an invariant, or null if it didn't.
+     */
+    private static Failure play(long seed, String[] answers, Worker worker) {
+        ScriptedPlayer player = new ScriptedPlayer(Arrays.asList(answers), seed);
+        TreasureHunter game = new TreasureHunter(player, new CountingSink(), seed);
+        int step = 0;
+        try {
+            game.start();
+            Hunter hunter = game.getHunter();
+            Failure failure = check(game, step, hunter.getGold(), 0, false, 0, player.getAnswersUsed());
+            int previous = -1;
+            while (failure == null && !game.isOver()) {
+                int gold = hunter.getGold();
+                int kit = hunter.getKit();
+                int treasures = hunter.getTreasureKit();
+                int turns = game.getTurns();
+                int x = game.getX();
+                int y = game.getY();
+                int used = player.getAnswersUsed();
+                boolean full = hunter.treasureKitIsFull();
+                game.playTurn();
+                step++;
+                failure = check(game, step, gold, treasures, full, full ? turns : turns + 1, player.getAnswersUsed());
+                if (worker != null) {
+                    MenuAction action = MenuAction.fromChoice(used < answers.length ? answers[used].toLowerCase() : "x");
+                    int feature = full ? MenuAction.values().length : action.ordinal();
+                    feature = feature * 3 + Integer.signum(hunter.getGold() - gold) + 1;
+                    feature = feature * 3 + (hunter.getKit() == kit ? 0 : Integer.bitCount(hunter.getKit()) > Integer.bitCount(kit) ? 1 : 2);
+                    feature = feature * 2 + (hunter.getTreasureKit() == treasures ? 0 : 1);
+                    feature = feature * 2 + (game.getX() == x && game.getY() == y ? 0 : 1);
+                    feature = feature * 4 + (!game.isOver() ? 0 : game.isWon() ? 1 : game.isLost() ? 2 : 3);
+                    feature = feature * 4 + Math.min(player.getAnswersUsed() - used, 3);
+                    feature = feature * 4 + (game.isSamuraiMode() ? 1 : game.isHardMode() ? 2 : game.isEasyMode() ? 3 : 0);
+                    worker.cover(previous, feature);
+                    previous = feature;
+                }
+            }
+            if (worker != null) {
+                worker.countSteps(step);
+            }
+            return failure;
+        } catch (RuntimeException e) {
+            StackTraceElement[] trace = e.getStackTrace();
+            return new Failure(Invariant.NO_ERROR, step, e + (trace.length > 0 ? " at " + trace[0] : ""),
+                    player.getAnswersUsed());
+        }
+    }
+
+    /**
+     * Checks every invariant after a step.
+     *
+     * @param gold The hunter's gold before the step.
+     * @param treasures The treasure kit before the step.
+     * @param full true if the treasure kit was full before the step.
+     * @param turns The turns the game should have played by the end of the step.
+     * @param used The answers read so far.
+     * @return The invariant broken, or null.
+     */
+    private static Failure check(TreasureHunter game, int step, int gold, int treasures, boolean full, int turns, int used) {
+        Hunter hunter = game.getHunter();
+        int goldNow = hunter.getGold();
+        if (game.isLost() ? goldNow >= 0 : goldNow < 0) {
+            return new Failure(Invariant.GOLD, step, "the hunter has " + goldNow + " gold"
+                    + (game.isLost() ? " but lost" : " without losing"), used);
+        }
+        if (step > 0 && Math.abs(goldNow - gold) > MAX_GOLD_CHANGE) {
+            return new Failure(Invariant.GOLD, step, "the gold went from " + gold + " to " + goldNow + " in one turn", used);
+        }
+        int kit = hunter.getKit();
+        int kitSize = game.isSamuraiMode() ? Hunter.SAMURAI_KIT_SIZE : Hunter.KIT_SIZE;
+        if ((kit & ~ALL_ITEMS) != 0 || Integer.bitCount(kit) > kitSize
+                || (!game.isSamuraiMode() && hunter.hasItemInKit(Catalog.SWORD))) {
+            return new Failure(Invariant.KIT, step, "the kit is " + Integer.toBinaryString(kit)
+                    + " (" + hunter.getInventory().trim() + ")", used);
+        }
+        int treasuresNow = hunter.getTreasureKit();
+        if ((treasuresNow & ~Treasure.ALL_TREASURES) != 0 || (treasures & ~treasuresNow) != 0) {
+            return new Failure(Invariant.TREASURES, step, "the treasure kit went from "
+                    + Integer.toBinaryString(treasures) + " to " + Integer.toBinaryString(treasuresNow), used);
+        }
+        if (game.isWon() != full || (game.isWon() && game.isLost())
+                || (game.isOver() && !game.isWon() && hunter.treasureKitIsFull())) {
+            return new Failure(Invariant.WIN, step, "won " + game.isWon() + ", lost " + game.isLost()
+                    + ", with the treasure kit " + (full ? "full" : "not full") + " at the start of the turn and "
+                    + (hunter.treasureKitIsFull() ? "full" : "not full") + " at the end", used);
+        }
+        if (step > 0 && game.getTurns() != turns) {
+            return new Failure(Invariant.TURNS, step, "the turn count went to " + game.getTurns()
+                    + " instead of " + turns, used);
+        }
+        return null;
+    }
+
+    /**
+     * Makes a failing game as short as possible while it still breaks the same invariant.
+     *
+     * @return The shortest answers found, with how they fail.
+     */
+    private static Shrunk shrink(Case failing, Failure failure) {
+        // the answers after the failure were never read
+        String[] answers = Arrays.copyOf(failing.answers, Math.min(failing.answers.length, failure.answersUsed));
+        int replays = 0;
+        boolean shorter = true;
+        while (shorter) {
+            shorter = false;
+            for (int chunk = Math.max(answers.length / 2, 1); chunk >= 1; chunk /= 2) {
+                int start = 0;
+                while (start + chunk <= answers.length) {
+                    String[] candidate = new String[answers.length - chunk];
+                    System.arraycopy(answers, 0, candidate, 0, start);
+                    System.arraycopy(answers, start + chunk, candidate, start, answers.length - start - chunk);
+                    Failure again = play(failing.seed, candidate, null);
+                    replays++;
+                    if (again != null && again.invariant == failure.invariant) {
+                        answers = Arrays.copyOf(candidate, Math.min(candidate.length, again.answersUsed));
+                        failure = again;
+                        shorter = true;
+                    } else {
+                        start++;
+                    }
+                }
+            }
+        }
+        return new Shrunk(new Case(failing.seed, answers), failure, replays);
+    }
+
+    /**
+     * @return The game as a script for ScriptedPlayer.
+     */
+    private static String script(Case game, Failure failure) {
+        StringBuilder script = new StringBuilder();
+        script.append("# breaks ").append(failure.invariant).append(" at step ").append(failure.step)
+                .append(": ").append(failure.message).append('\n');
+        script.append("seed ").append(game.seed).append('\n');
+        for (String answer : game.answers) {
+            script.append(answer).append('\n');
+        }
+        return script.toString();
+    }
+
+    private static String[] itemNames() {
+        String[] names = new String[Catalog.itemCount()];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = Catalog.item(id).getName();
+        }
+        return names;
+    }
+
+    /**
+     * @return The most gold one turn can win or lose: a brawl, a dig, or buying or selling the dearest item.
+     */
+    private static int maxGoldChange() {
+        int most = Math.max(Balance.DEFAULT.getInt(BalanceParameter.MAX_BRAWL_GOLD),
+                Balance.DEFAULT.getInt(BalanceParameter.MAX_DUG_GOLD));
+        for (int id = 0; id < Catalog.itemCount(); id++) {
+            most = Math.max(most, Catalog.item(id).getCost());
+        }
+        return most;
+    }
+
+    /**
+     * Fuzzes the game on every core for a while, then shrinks and prints the first failure if there was one.
+     *
+     * @param args Optionally, how many seconds to fuzz for, the number of threads and then the seed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SECONDS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        GameFuzzer fuzzer = new GameFuzzer();
+        Worker[] workers = new Worker[threads];
+        Thread[] running = new Thread[threads];
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(fuzzer, GameRandom.seedForGame(seed, i));
+            running[i] = Thread.ofPlatform().name("fuzz-" + i).start(workers[i]);
+        }
+        long end = start + seconds * 1_000_000_000L;
+        while (fuzzer.failure.get() == null && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        fuzzer.stop.set(true);
+        for (Thread thread : running) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] covered = new long[COVERAGE_BITS / 64];
+        int corpus = 0;
+        for (Worker worker : workers) {
+            for (int i = 0; i < covered.length; i++) {
+                covered[i] |= worker.coverage[i];
+            }
+            corpus += worker.corpus.size();
+        }
+        int pairs = 0;
+        for (long word : covered) {
+            pairs += Long.bitCount(word);
+        }
+        long played = fuzzer.games.sum();
+        System.out.println(String.format("%d games, %d turns in %.1f s on %d threads: %.2f million games per minute",
+                played, fuzzer.steps.sum(), elapsed, threads, played / elapsed * 60 / 1e6));
+        System.out.println(String.format("%d pairs of turn features covered, %d games kept in the corpora", pairs, corpus));
+
+        Failure failure = fuzzer.failure.get();
+        if (failure == null) {
+            System.out.println("every invariant held");
+            return;
+        }
+        Case failing = fuzzer.failingGame(workers);
+        System.out.println(String.format("%s broke at step %d of a game of %d answers: %s",
+                failure.invariant, failure.step, failing.answers.length, failure.message));
+        Shrunk shrunk = shrink(failing, failure);
+        System.out.println(String.format("shrunk to %d answers in %d replays; save this as a .txt and replay it with the batch mode:",
+                shrunk.game.answers.length, shrunk.replays));
+        System.out.print(script(shrunk.game, shrunk.failure));
+    }
+
+    /**
+     * @return The game that failed, from whichever worker found it.
+     */
+    private Case failingGame(Worker[] workers) {
+        for (Worker worker : workers) {
+            if (worker.failing != null && worker.failure == failure.get()) {
+                return worker.failing;
+            }
+        }
+        throw new IllegalStateException("no worker has the failing game");
+    }
+
+    /**
+     * A game to play: a seed and the player's answers.
+     */
+    private static final class Case {
+        private final long seed;
+        private final String[] answers;
+
+        private Case(long seed, String[] answers) {
+            this.seed = seed;
+            this.answers = answers;
+        }
+    }
+
+    /**
+     * How a game broke an invariant.
+     */
+    private static final class Failure {
+        private final Invariant invariant;
+        private final int step;
+        private final String message;
+        private final int answersUsed;
+
+        private Failure(Invariant invariant, int step, String message, int answersUsed) {
+            this.invariant = invariant;
+            this.step = step;
+            this.message = message;
+            this.answersUsed = answersUsed;
+        }
+    }
+
+    /**
+     * A failing game after shrinking.
+     */
+    private static final class Shrunk {
+        private final Case game;
+        private final Failure failure;
+        private final int replays;
+
+        private Shrunk(Case game, Failure failure, int replays) {
+            this.game = game;
+            this.failure = failure;
+            this.replays = replays;
+        }
+    }
+
+    /**
+     * Plays games on one thread, keeping the ones that cover something new, until told to stop.
+     */
+    private static final class Worker implements Runnable {
+        private final GameFuzzer fuzzer;
+        private final GameRandom random;
+        private final long[] coverage = new long[COVERAGE_BITS / 64];
+        private final List<Case> corpus = new ArrayList<>();
+        private boolean fresh; // the game being played covered something new
+        private long steps;
+        private Case failing;
+        private Failure failure;
+
+        private Worker(GameFuzzer fuzzer, long seed) {
+            this.fuzzer = fuzzer;
+            random = new GameRandom(seed);
+        }
+
+        public void run() {
+            int played = 0;
+            while (!fuzzer.stop.get()) {
+                Case game = corpus.isEmpty() || random.nextInt(4) == 0
+                        ? generate() : mutate(corpus.get(random.nextInt(corpus.size())));
+                fresh = false;
+                Failure broken = play(game.seed, game.answers, this);
+                played++;
+                if (broken != null) {
+                    failing = game;
+                    failure = broken;
+                    fuzzer.failure.compareAndSet(null, broken);
+                    fuzzer.stop.set(true);
+                } else if (fresh && corpus.size() < MAX_CORPUS) {
+                    corpus.add(game);
+                }
+                if (played == COUNT_EVERY) {
+                    fuzzer.games.add(played);
+                    fuzzer.steps.add(steps);
+                    played = 0;
+                    steps = 0;
+                }
+            }
+            fuzzer.games.add(played);
+            fuzzer.steps.add(steps);
+        }
+
+        /**
+         * Marks a pair of turn features in a row as covered.
+         *
+         * @param previous The feature of the turn before, or -1 for the first turn.
+         * @param feature The feature of this turn.
+         */
+        private void cover(int previous, int feature) {
+            int bit = (previous * 0x9E3779B1 + feature) * 0x85EBCA6B >>> (32 - COVERAGE_LOG);
+            long mask = 1L << bit;
+            if ((coverage[bit >>> 6] & mask) == 0) {
+                coverage[bit >>> 6] |= mask;
+                fresh = true;
+            }
+        }
+
+        private void countSteps(int step) {
+            steps += step;
+        }
+
+        private Case generate() {
+            String[] answers = new String[2 + random.nextInt(MAX_ANSWERS - 1)];
+            for (int i = 0; i < answers.length; i++) {
+                answers[i] = answer(i);
+            }
+            return new Case(random.nextLong(), answers);
+        }
+
+        /**
+         * Makes a new game from a kept one by changing its seed, replacing, adding, removing or
+         * copying answers, or taking the rest of another kept game's answers, one to four times.
+         */
+        private Case mutate(Case parent) {
+            long seed = parent.seed;
+            String[] answers = parent.answers;
+            int changes = 1 + random.nextInt(4);
+            for (int change = 0; change < changes; change++) {
+                int kind = random.nextInt(6);
+                int at = random.nextInt(answers.length);
+                if (kind == 0) {
+                    seed = random.nextLong();
+                } else if (kind == 1) {
+                    answers = answers.clone();
+                    answers[at] = answer(at);
+                } else if (kind == 2 && answers.length < MAX_ANSWERS) {
+                    String[] longer = new String[answers.length + 1];
+                    System.arraycopy(answers, 0, longer, 0, at);
+                    longer[at] = answer(at);
+                    System.arraycopy(answers, at, longer, at + 1, answers.length - at);
+                    answers = longer;
+                } else if (kind == 3 && answers.length > 1) {
+                    String[] shorter = new String[answers.length - 1];
+                    System.arraycopy(answers, 0, shorter, 0, at);
+                    System.arraycopy(answers, at + 1, shorter, at, answers.length - at - 1);
+                    answers = shorter;
+                } else if (kind == 4) {
+                    int length = 1 + random.nextInt(Math.min(8, answers.length - at));
+                    int to = random.nextInt(answers.length + 1);
+                    String[] longer = new String[Math.min(answers.length + length, MAX_ANSWERS)];
+                    System.arraycopy(answers, 0, longer, 0, to);
+                    System.arraycopy(answers, at, longer, to, Math.min(length, longer.length - to));
+                    int rest = longer.length - to - length;
+                    if (rest > 0) {
+                        System.arraycopy(answers, to, longer, to + length, rest);
+                    }
+                    answers = longer;
+                } else if (kind == 5) {
+                    String[] other = corpus.get(random.nextInt(corpus.size())).answers;
+                    int from = random.nextInt(other.length);
+                    String[] spliced = new String[Math.min(at + other.length - from, MAX_ANSWERS)];
+                    System.arraycopy(answers, 0, spliced, 0, at);
+                    System.arraycopy(other, from, spliced, at, spliced.length - at);
+                    answers = spliced;
+                }
+            }
+            return new Case(seed, answers);
+        }
+
+        /**
+         * @param position Where in the game the answer goes: the name comes first and then the difficulty.
+         * @return A random answer, mostly one the game would expect.
+         */
+        private String answer(int position) {
+            if (position == 0) {
+                return pick(NAMES);
+            } else if (position == 1 && random.nextInt(10) > 0) {
+                return pick(DIFFICULTIES);
+            }
+            int kind = random.nextInt(100);
+            if (kind < 55) {
+                return pick(CHOICES);
+            } else if (kind < 75) {
+                return pick(ITEMS);
+            } else if (kind < 88) {
+                return pick(CONFIRMS);
+            } else if (kind < 89) {
+                return MenuAction.EXIT.getKey();
+            } else if (kind < 94) {
+                return pick(DIFFICULTIES);
+            }
+            return pick(ODD);
+        }
+
+        private String pick(String[] words) {
+            return words[random.nextInt(words.length)];
+        }
+    }
+}
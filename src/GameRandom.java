@@ -0,0 +1,175 @@
+/**
+ * The source of every random number in one game of Treasure Hunter.<p>
+ * A game owns one GameRandom made from an explicit seed, and each town gets its own child
+ * stream split from it. Because nothing is shared between games, games running on different
+ * threads never contend, and the same seed always plays out the same game.<p>
+ * This is the SplitMix64 generator behind java.util.SplittableRandom, and gives exactly the same
+ * numbers, but its state (a seed and a gamma) can be read and restored so that saved games
+ * carry on with the same random numbers they would have had.
+ */
+
+public class GameRandom {
+    // constants
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    // instance variables
+    private long seed;
+    private final long gamma;
+
+    /**
+     * @param seed The seed the whole game is played from.
+     */
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GameRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Rebuilds a stream from the state saved by getState() and getGamma().
+     *
+     * @param state The saved state.
+     * @param gamma The saved gamma.
+     * @return A stream that carries on exactly where the saved one was.
+     */
+    public static GameRandom restore(long state, long gamma) {
+        return new GameRandom(state, gamma);
+    }
+
+    /**
+     * @return The current position of the stream.
+     */
+    public long getState() {
+        return seed;
+    }
+
+    /**
+     * @return The fixed step of the stream; GOLDEN_GAMMA for a stream made from a seed.
+     */
+    public long getGamma() {
+        return gamma;
+    }
+
+    /**
+     * @return true if this stream was made from a seed rather than split from another stream.
+     */
+    public boolean isRoot() {
+        return gamma == GOLDEN_GAMMA;
+    }
+
+    /**
+     * @return A random number from 0 (inclusive) to 1 (exclusive).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * @param bound The number of possible values.
+     * @return A random number from 0 (inclusive) to bound (exclusive).
+     */
+    public int nextInt(int bound) {
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m;
+        } else {
+            // reject the few values that would make some results more likely than others
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+            }
+        }
+        return r;
+    }
+
+    /**
+     * @return A random 64 bit number, used to seed other games.
+     */
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    /**
+     * Creates a child stream that is independent of this one from now on.
+     * Splitting always happens in the same order in a game, so children are reproducible too.
+     *
+     * @return The new child stream.
+     */
+    public GameRandom split() {
+        return new GameRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Works out the seed of one game in a numbered series of games.<p>
+     * The seed depends only on the base seed and the game's number, never on which thread
+     * plays it, so a simulation gives the same results however many threads it runs on.
+     *
+     * @param baseSeed The seed of the whole series.
+     * @param game The game's number in the series.
+     * @return The seed for that game.
+     */
+    public static long seedForGame(long baseSeed, long game) {
+        return mix64(baseSeed + (game + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * The same as nextInt() on a stream made from a seed, for streams kept as one long each in an
+     * array, as VectorEnv keeps them, so that stepping many games allocates nothing.
+     *
+     * @param states The streams' states; states[i] is moved on.
+     * @param i Which stream to draw from.
+     * @param bound The number of possible values.
+     * @return A random number from 0 (inclusive) to bound (exclusive).
+     */
+    static int nextInt(long[] states, int i, int bound) {
+        int r = mix32(states[i] += GOLDEN_GAMMA);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m;
+        } else {
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(states[i] += GOLDEN_GAMMA) >>> 1) {
+            }
+        }
+        return r;
+    }
+
+    /**
+     * The same as nextDouble() on a stream kept in an array; see nextInt(long[], int, int).
+     */
+    static double nextDouble(long[] states, int i) {
+        return (mix64(states[i] += GOLDEN_GAMMA) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * The same as nextLong() on a stream kept in an array; see nextInt(long[], int, int).
+     */
+    static long nextLong(long[] states, int i) {
+        return mix64(states[i] += GOLDEN_GAMMA);
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L; // gamma must be odd
+        int n = Long.bitCount(z ^ (z >>> 1)); // and have enough bit transitions
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves Treasure Hunter to remote players over TCP, one game per connection.<p>
+ * Every connection's game is a Session in a SessionEngine, so a player who is thinking costs
+ * a parked virtual thread and nothing more. The sockets are watched by one or a few
+ * SelectorLoops instead of a thread each: the first loop accepts players and deals them out to
+ * all the loops in turn. Each turn's text goes out through a NetworkSink in one write from
+ * pooled direct buffers, and each line a player sends is looked up in an InputTable, so the
+ * answers the game hears all day never make a new String.<p>
+ * Nothing is shared between games but the pool and the table, so the server plays exactly the
+ * same game as the console for the same seed and the same lines.
+ */
+
+public final class GameServer implements AutoCloseable {
+    // constants
+    public static final int DEFAULT_PORT = 4000;
+    private static final int BUFFER_SIZE = 8192; // enough for any one turn's text
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final int BACKLOG = 1024;
+
+    // instance variables
+    private final ServerSocketChannel server;
+    private final SelectorLoop[] loops;
+    private final Thread[] threads;
+    private final SessionEngine engine = new SessionEngine();
+    private final BufferPool pool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final InputTable inputs = InputTable.forGame();
+    private final long seed;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private final LongAdder lines = new LongAdder();
+    private final AtomicLong acceptFailures = new AtomicLong();
+    private int nextLoop; // only used by the first loop
+    private boolean acceptFailing; // the last accept failed; only used by the first loop
+
+    /**
+     * Starts listening straight away.
+     *
+     * @param address Where to listen; use port 0 for any free port.
+     * @param selectorThreads The number of SelectorLoops.
+     * @param seed The seed every connection's game seed is drawn from.
+     * @throws IOException If the address can't be listened on.
+     */
+    public GameServer(InetSocketAddress address, int selectorThreads, long seed) throws IOException {
+        this.seed = seed;
+        server = ServerSocketChannel.open();
+        server.bind(address, BACKLOG);
+        server.configureBlocking(false);
+        loops = new SelectorLoop[selectorThreads];
+        threads = new Thread[selectorThreads];
+        for (int i = 0; i < selectorThreads; i++) {
+            loops[i] = new SelectorLoop(this, pool.acquire());
+        }
+        server.register(loops[0].getSelector(), SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < selectorThreads; i++) {
+            threads[i] = Thread.ofPlatform().name("selector-" + i).start(loops[i]);
+        }
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return The number of players connected right now.
+     */
+    public int getConnections() {
+        return open.get();
+    }
+
+    /**
+     * @return The number of lines every player has sent since the server started.
+     */
+    public long getLinesRead() {
+        return lines.sum();
+    }
+
+    /**
+     * @return The number of times accepting a player failed, as it does when the process runs out of file descriptors.
+     */
+    public long getAcceptFailures() {
+        return acceptFailures.get();
+    }
+
+    public BufferPool getPool() {
+        return pool;
+    }
+
+    InputTable getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Accepts every player waiting to connect. Only called by the first loop.<p>
+     * A socket that can't be set up is closed and the rest are still accepted. If accepting itself
+     * fails, the players wait in the backlog for the next try; the failure is counted, and reported
+     * on the first of a run of them, since running out of file descriptors shows up this way.
+     */
+    void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                acceptFailures.incrementAndGet();
+                if (!acceptFailing) {
+                    System.err.println("can't accept players: " + e.getMessage());
+                }
+                acceptFailing = true;
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            acceptFailing = false;
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // it was never playing
+                }
+                continue;
+            }
+            loops[nextLoop].add(channel);
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+    }
+
+    /**
+     * Registers a new player's socket and starts their game. Called by the loop the socket was dealt to.
+     */
+    void open(SocketChannel channel, Selector selector) {
+        try {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            ClientConnection connection = new ClientConnection(channel, key, this);
+            key.attach(connection);
+            open.incrementAndGet();
+            long gameSeed = GameRandom.seedForGame(seed, accepted.incrementAndGet());
+            connection.start(engine.open(new NetworkSink(connection, pool), gameSeed, connection::finish));
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // it was never playing
+            }
+        }
+    }
+
+    void countLine() {
+        lines.increment();
+    }
+
+    /**
+     * Called by a connection once it has closed.
+     */
+    void closed() {
+        open.decrementAndGet();
+    }
+
+    /**
+     * Stops listening, drops every player and waits for the selector threads to stop.
+     */
+    public void close() throws IOException {
+        for (SelectorLoop loop : loops) {
+            loop.stop();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        engine.close();
+        server.close();
+    }
+
+    /**
+     * Serves games on the local machine until the process is stopped.
+     *
+     * @param args Optionally, the port and then the number of selector threads.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int selectorThreads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        GameServer gameServer = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                selectorThreads, System.nanoTime());
+        System.out.println("Treasure Hunter is being served on localhost port " + gameServer.getPort()
+                + " with " + selectorThreads + " selector thread(s)");
+        for (Thread thread : gameServer.threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * A simple strategy that plays the game without a person at the keyboard.<p>
+ * Each turn it hunts for treasure in a town it hasn't searched yet, digs if it can,
+ * buys what it needs to cross the surrounding terrain, picks fights when it is short of gold,
+ * and otherwise moves on. It gives up once it has played a set number of turns.
+ */
+
+public class GreedyPlayer implements Player {
+    // constants
+    private static final int DEFAULT_TURN_LIMIT = 500;
+
+    // instance variables
+    private String difficulty;
+    private int turnLimit;
+    private int turns;
+    private String pendingItem;
+    private Town searchedTown;
+
+    /**
+     * @param difficulty The answer given when asked for the difficulty (e, n, h or s).
+     */
+    public GreedyPlayer(String difficulty) {
+        this(difficulty, DEFAULT_TURN_LIMIT);
+    }
+
+    /**
+     * @param difficulty The answer given when asked for the difficulty (e, n, h or s).
+     * @param turnLimit The number of turns played before giving up the hunt.
+     */
+    public GreedyPlayer(String difficulty, int turnLimit) {
+        this.difficulty = difficulty;
+        this.turnLimit = turnLimit;
+        pendingItem = "";
+    }
+
+    public String respond(Prompt prompt, Hunter hunter, Town town) {
+        switch (prompt) {
+            case NAME:
+                return "greedy";
+            case DIFFICULTY:
+                return difficulty;
+            case MENU:
+                return chooseMove(hunter, town);
+            case BUY_ITEM:
+            case SELL_ITEM:
+                return pendingItem;
+            default:
+                return "y";
+        }
+    }
+
+    /**
+     * Picks the next menu option.
+     *
+     * @param hunter The hunter being played.
+     * @param town The town the hunter is in.
+     * @return The menu option to take.
+     */
+    private String chooseMove(Hunter hunter, Town town) {
+        turns++;
+        if (turns > turnLimit) {
+            return "x";
+        }
+        // dust never marks a town as searched, so remember the town ourselves
+        if (searchedTown != town) {
+            searchedTown = town;
+            return "h";
+        }
+        if (hunter.hasItemInKit(Catalog.SHOVEL) && !town.isDug()) {
+            return "d";
+        }
+        if (difficulty.equals("s") && !hunter.hasItemInKit(Catalog.SWORD)) {
+            return buy(Catalog.SWORD);
+        }
+        Item neededItem = town.getTerrain().getNeededItem();
+        if (!hunter.hasItemInKit(neededItem)) {
+            if (canAfford(hunter, neededItem)) {
+                return buy(neededItem);
+            }
+            return "l";
+        }
+        if (!hunter.hasItemInKit(Catalog.SHOVEL) && canAfford(hunter, Catalog.SHOVEL)) {
+            return buy(Catalog.SHOVEL);
+        }
+        return "m";
+    }
+
+    private String buy(Item item) {
+        pendingItem = item.getName();
+        return "b";
+    }
+
+    private boolean canAfford(Hunter hunter, Item item) {
+        return hunter.hasItemInKit(Catalog.SWORD) || hunter.getGold() >= item.getCost();
+    }
+}
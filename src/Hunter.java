@@ -1,5 +1,3 @@
-import java.awt.*;
-
 /**
  * Hunter Class<br /><br />
  * This class represents the treasure hunter character (the player) in the Treasure Hunt game.
@@ -7,25 +5,39 @@ import java.awt.*;
  */
 
 public class Hunter {
+    // constants
+    static final int KIT_SIZE = 7; // only 7 possible items can be stored in kit
+    static final int SAMURAI_KIT_SIZE = 8;
+    private static final Treasure[] TREASURES = Treasure.values();
+    private static final int MAX_CACHED_ITEMS = 12;
+    private static final MessageTemplate GOLD = new MessageTemplate("{s} has {n} gold",
+            TextColor.BLACK, TextColor.BLACK, TextColor.YELLOW, TextColor.YELLOW);
+
+    // static variables
+    // printable inventories, indexed by kit; filled in as they are first needed
+    private static final String[] INVENTORIES =
+            new String[Catalog.itemCount() <= MAX_CACHED_ITEMS ? 1 << Catalog.itemCount() : 0];
+
     //instance variables
     private String hunterName;
-    private String[] kit;
-    private String[] treasureKit;
+    private int kit; // one bit per Item
+    private int kitSize;
+    private int treasureKit; // one bit per Treasure
     private int gold;
-    private OutputWindow window;
+    private RenderSink window;
 
     /**
      * The base constructor of a Hunter assigns the name to the hunter and an empty kit.
      *
      * @param hunterName The hunter's name.
      * @param startingGold The gold the hunter starts with.
+     * @param window Where the hunter's information is shown.
      */
-    public Hunter(String hunterName, int startingGold, OutputWindow window) {
+    public Hunter(String hunterName, int startingGold, RenderSink window) {
         this.window = window;
         this.hunterName = hunterName;
-        kit = new String[7]; // only 7 possible items can be stored in kit
+        kitSize = KIT_SIZE;
         gold = startingGold;
-        treasureKit = new String[3];
     }
 
     public int getGold() {
@@ -37,6 +49,20 @@ public class Hunter {
         return hunterName;
     }
 
+    /**
+     * @return The items in the kit, one bit per Item.
+     */
+    public int getKit() {
+        return kit;
+    }
+
+    /**
+     * @return The treasures found, one bit per Treasure.
+     */
+    public int getTreasureKit() {
+        return treasureKit;
+    }
+
     /**
      * Updates the amount of gold the hunter has.
      *
@@ -44,20 +70,33 @@ public class Hunter {
      */
     public void changeGold(int modifier) {
         gold += modifier;
+        Metrics.goldChanged(modifier);
     }
 
     /**
      * Buys an item from a shop.
      *
-     * @param item The item the hunter is buying.
+     * @param item The name of the item the hunter is buying.
      * @param costOfItem The cost of the item.
      * @return true if the item is successfully bought.
      */
     public boolean buyItem(String item, int costOfItem) {
-        if ((costOfItem == 0 && !item.equals("sword")) || gold < costOfItem || hasItemInKit(item)) {
+        return buyItem(Item.fromName(item), costOfItem);
+    }
+
+    /**
+     * Buys an item from a shop.
+     *
+     * @param item The item the hunter is buying, or null if there is no such item.
+     * @param costOfItem The cost of the item.
+     * @return true if the item is successfully bought.
+     */
+    public boolean buyItem(Item item, int costOfItem) {
+        if (item == null || (costOfItem == 0 && item != Catalog.SWORD) || gold < costOfItem
+                || hasItemInKit(item) || kitIsFull()) {
             return false;
         }
-        if (!hasItemInKit("sword")) {
+        if (!hasItemInKit(Catalog.SWORD)) {
             gold -= costOfItem;
         }
         addItem(item);
@@ -68,12 +107,23 @@ public class Hunter {
      * The Hunter is selling an item to a shop for gold.<p>
      * This method checks to make sure that the seller has the item and that the seller is getting more than 0 gold.
      *
-     * @param item The item being sold.
+     * @param item The name of the item being sold.
      * @param buyBackPrice the amount of gold earned from selling the item
      * @return true if the item was successfully sold.
      */
     public boolean sellItem(String item, int buyBackPrice) {
-        if (buyBackPrice <= 0 || !hasItemInKit(item)) {
+        return sellItem(Item.fromName(item), buyBackPrice);
+    }
+
+    /**
+     * The Hunter is selling an item to a shop for gold.
+     *
+     * @param item The item being sold, or null if there is no such item.
+     * @param buyBackPrice the amount of gold earned from selling the item
+     * @return true if the item was successfully sold.
+     */
+    public boolean sellItem(Item item, int buyBackPrice) {
+        if (buyBackPrice <= 0 || item == null || !hasItemInKit(item)) {
             return false;
         }
         gold += buyBackPrice;
@@ -82,64 +132,71 @@ public class Hunter {
     }
 
     /**
-     * Removes an item from the kit by setting the index of the item to null.
+     * Removes an item from the kit by clearing its bit.
      *
      * @param item The item to be removed.
      */
-    public void removeItemFromKit(String item) {
-        int itmIdx = findItemInKit(item);
-
-        // if item is found
-        if (itmIdx >= 0) {
-            kit[itmIdx] = null;
-        }
+    public void removeItemFromKit(Item item) {
+        kit &= ~item.bit();
     }
 
     /**
-     * Checks to make sure that the item is not already in the kit.
-     * If not, it assigns the item to an index in the kit with a null value ("empty" position).
+     * Checks to make sure that the item is not already in the kit and that there is room for it.
+     * If so, it sets the item's bit in the kit.
      *
      * @param item The item to be added to the kit.
      * @return true if the item is not in the kit and has been added.
      */
-    private boolean addItem(String item) {
-        if (!hasItemInKit(item)) {
-            int idx = emptyPositionInKit();
-            kit[idx] = item;
+    private boolean addItem(Item item) {
+        if (!hasItemInKit(item) && !kitIsFull()) {
+            kit |= item.bit();
             return true;
         }
         return false;
     }
 
     /**
-     * Checks if the kit Array has the specified item.
+     * Checks if the kit has the specified item.
      *
-     * @param item The search item
+     * @param item The name of the search item
      * @return true if the item is found.
      */
     public boolean hasItemInKit(String item) {
-        for (String tmpItem : kit) {
-            if (item.equals(tmpItem)) {
-                // early return
-                return true;
-            }
-        }
-        return false;
+        Item searchItem = Item.fromName(item);
+        return searchItem != null && hasItemInKit(searchItem);
+    }
+
+    /**
+     * Checks if the kit has the specified item.
+     *
+     * @param item The search item
+     * @return true if the item is found.
+     */
+    public boolean hasItemInKit(Item item) {
+        return (kit & item.bit()) != 0;
     }
 
      /**
      * Returns a printable representation of the inventory, which
-     * is a list of the items in kit, with a space between each item.
+     * is a list of the items in kit, with a space after each item.<p>
+     * With the usual catalog there are only a few hundred possible kits, so each one is only built once.
      *
      * @return The printable String representation of the inventory.
      */
     public String getInventory() {
-        String printableKit = "";
-        String space = " ";
-
-        for (String item : kit) {
-            if (item != null) {
-                printableKit += item + space;
+        boolean cached = kit < INVENTORIES.length;
+        String printableKit = cached ? INVENTORIES[kit] : null;
+        if (printableKit == null) {
+            StringBuilder builder = new StringBuilder();
+            for (int id = 0; id < Catalog.itemCount(); id++) {
+                Item item = Catalog.item(id);
+                if (hasItemInKit(item)) {
+                    builder.append(item.getName()).append(' ');
+                }
+            }
+            printableKit = builder.toString();
+            if (cached) {
+                INVENTORIES[kit] = printableKit;
             }
         }
         return printableKit;
@@ -149,123 +206,92 @@ public class Hunter {
      * @return A string representation of the hunter.
      */
     public void infoString() {
-        window.addTextToWindow(hunterName + " has ", Color.black);
-        window.addTextToWindow(gold + " gold", Color.yellow);
+        if (!window.isRendering()) {
+            return;
+        }
+        GOLD.write(window, hunterName, gold);
         if (!kitIsEmpty()) {
-            window.addTextToWindow(" and ", Color.black);
-            window.addTextToWindow(getInventory(), Color.magenta);
+            window.addTextToWindow(" and ", TextColor.BLACK);
+            window.addTextToWindow(getInventory(), TextColor.MAGENTA);
         }
-        window.addTextToWindow("\nTreasures found: ", Color.black);
+        window.addTextToWindow("\nTreasures found: ", TextColor.BLACK);
         if (treasureKitIsEmpty()) {
-            window.addTextToWindow("none", Color.black);
+            window.addTextToWindow("none", TextColor.BLACK);
         } else {
-            for (int current = 0; current < 3; current++) {
-                if (treasureKit[current] != null) {
-                    window.addTextToWindow(treasureKit[current] + " ", Color.black);
+            for (Treasure treasure : TREASURES) {
+                if (hasTreasure(treasure)) {
+                    window.addTextToWindow(treasure.getName(), TextColor.BLACK);
+                    window.addTextToWindow(" ", TextColor.BLACK);
                 }
             }
         }
-        window.addTextToWindow("\n", Color.black);
+        window.addTextToWindow("\n", TextColor.BLACK);
     }
 
     /**
-     * Searches kit Array for the index of the specified value.
+     * Check if the kit is empty - meaning no bits are set.
      *
-     * @param item String to look for.
-     * @return The index of the item, or -1 if not found.
+     * @return true if kit is completely empty.
      */
-    private int findItemInKit(String item) {
-        for (int i = 0; i < kit.length; i++) {
-            String tmpItem = kit[i];
-
-            if (item.equals(tmpItem)) {
-                return i;
-            }
-        }
-        return -1;
+    private boolean kitIsEmpty() {
+        return kit == 0;
     }
 
     /**
-     * Check if the kit is empty - meaning all elements are null.
-     *
-     * @return true if kit is completely empty.
+     * @return true if there is no room left in the kit.
      */
-    private boolean kitIsEmpty() {
-        for (String string : kit) {
-            if (string != null) {
-                return false;
-            }
-        }
-        return true;
+    private boolean kitIsFull() {
+        return Integer.bitCount(kit) >= kitSize;
     }
 
     private boolean treasureKitIsEmpty() {
-        for (String string : treasureKit) {
-            if (string != null) {
-                return false;
-            }
-        }
-        return true;
+        return treasureKit == 0;
     }
 
     /**
-     * Finds the first index where there is a null value.
+     * Adds a treasure to the treasure kit. Dust is never kept.
      *
-     * @return index of empty index, or -1 if not found.
+     * @param treasure The treasure found.
      */
-    private int emptyPositionInKit() {
-        for (int i = 0; i < kit.length; i++) {
-            if (kit[i] == null) {
-                return i;
-            }
+    public void addToTreasureKit(Treasure treasure) {
+        if (treasure != Treasure.DUST) {
+            treasureKit |= treasure.bit();
         }
-        return -1;
     }
 
-    public String[] getTreasureKit() {
-        return treasureKit;
-    }
-
-    private int emptyPositionInTreasureKit() {
-        for (int i = 0; i < treasureKit.length; i++) {
-            if (treasureKit[i] == null) {
-                return i;
-            }
-        }
-        return -1;
+    public boolean hasTreasure(Treasure treasure) {
+        return (treasureKit & treasure.bit()) != 0;
     }
-    public void addToTreasureKit(String input) {
-        treasureKit[emptyPositionInTreasureKit()] = input;
-    }
-
-    public int findItemInTreasureKit(String item) {
-        for (int i = 0; i < treasureKit.length; i++) {
-            String tmpItem = treasureKit[i];
 
-            if (item.equals(tmpItem)) {
-                return i;
-            }
-        }
-        return -1;
+    public boolean treasureKitIsFull() {
+        return treasureKit == Treasure.ALL_TREASURES;
     }
 
-    public boolean treasureKitIsFull() {
-        for (int current = 0; current < 3; current++) {
-            if (treasureKit[current] == null) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * Puts back the kit and treasures of a saved hunter. Used by GameCodec.
+     *
+     * @param kit The items, one bit per Item.
+     * @param samurai true if the kit has the samurai's extra slot.
+     * @param treasureKit The treasures, one bit per Treasure.
+     */
+    void restore(int kit, boolean samurai, int treasureKit) {
+        this.kit = kit;
+        kitSize = samurai ? SAMURAI_KIT_SIZE : KIT_SIZE;
+        this.treasureKit = treasureKit;
     }
 
     /**
      * stores items into the kit for the test game mode
      */
     public void test() {
-        kit = new String[]{"water", "rope", "machete", "horse", "boat", "boots", "shovel"};
+        kit = Catalog.everyOrdinaryItem();
     }
 
+    /**
+     * Empties the kit and makes room for an eighth item, the samurai's sword.
+     */
     public void samurai() {
-        kit = new String[8];
+        kit = 0;
+        kitSize = SAMURAI_KIT_SIZE;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,433 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A large population of hunters kept as parallel primitive arrays, for simulating millions of games at once.<p>
+ * Each rule is applied to the whole pool in one loop: lookForTrouble(), digForGold(), searchTreasure()
+ * and leaveTown() follow Town's rules, and buyNeededItems() buys each hunter whatever their terrain
+ * needs, as Shop and Hunter would. The loops only read and write arrays, so they stay in cache and
+ * the JIT can unroll them and vectorize the simple ones, such as searchTreasure().<p>
+ * Every hunter costs 29 bytes: their random stream and world seed (8 bytes each), gold (4), town
+ * coordinates (2 each), kit (2), treasures (1), the town's terrain (1) and one byte of flags for the
+ * town's toughness, treasure and progress and for whether the game is won or lost. A Hunter and
+ * TreasureHunter with their towns, shops and world take kilobytes.<p>
+ * The towns are laid out from the world seed exactly as the World lays them out, and the rules draw
+ * the same random numbers in the same order as the game, so a hunter plays the same game as a
+ * TreasureHunter given the same choices, until they come back to a town they have left. Only the
+ * current town's progress is kept, so a town visited again has not been dug or searched yet.
+ * The coordinates are shorts, so a hunter more than 32767 towns from home wraps round.
+ */
+
+public class HunterPool {
+    // constants
+    public static final int BYTES_PER_HUNTER = 8 + 8 + 4 + 2 + 2 + 2 + 1 + 1 + 1;
+    private static final int TOUGH = 1;
+    private static final int DUG = 1 << 1;
+    private static final int SEARCHED = 1 << 2;
+    private static final int TREASURE_SHIFT = 3; // two bits for the town treasure's ordinal
+    private static final int TREASURE_MASK = 3 << TREASURE_SHIFT;
+    private static final int WON = 1 << 5;
+    private static final int LOST = 1 << 6;
+    private static final int OVER = WON | LOST;
+    private static final int TREASURE_KINDS = Treasure.values().length;
+    private static final int DUST = Treasure.DUST.ordinal();
+    private static final long DEFAULT_SEED = 20240101L;
+    private static final int DEFAULT_HUNTERS = 1_000_000;
+    private static final int DEFAULT_ROUNDS = 100;
+    private static final int CHECKED_HUNTERS = 2_000;
+    private static final int RULES_PER_ROUND = 5;
+
+    // instance variables: the rules for the difficulty
+    private final int size;
+    private final boolean easy;
+    private final boolean samurai;
+    private final double toughness;
+    private final double toughTownTrouble;
+    private final double townTrouble;
+    private final double easyBrawlBonus;
+    private final int maxBrawlGold;
+    private final int digOdds;
+    private final int maxDugGold;
+    private final double breakChance;
+    private final int startingGold;
+    private final int kitSize;
+    private final int[] cost; // per item
+    private final boolean[] forSale; // per item, whether a shop will sell it in this mode
+    private final int swordBit;
+    private final int shovelBit;
+    private final int[] neededItem; // per terrain
+    private final long[] layout = new long[1]; // the stream of the town being laid out
+
+    // instance variables: one entry per hunter
+    private final long[] random;
+    private final long[] worldSeed;
+    private final int[] gold;
+    private final short[] x;
+    private final short[] y;
+    private final short[] kit;
+    private final byte[] treasureKit;
+    private final byte[] terrain;
+    private final byte[] flags;
+
+    /**
+     * @param difficulty The difficulty every hunter plays (e, n, h or s).
+     * @param size The number of hunters.
+     * @param balance The numbers the games are played with.
+     */
+    public HunterPool(String difficulty, int size, Balance balance) {
+        if (Catalog.itemCount() > Short.SIZE || Catalog.terrainCount() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("the catalog is too big for a HunterPool");
+        }
+        this.size = size;
+        boolean hard = difficulty.equals("h");
+        easy = difficulty.equals("e");
+        samurai = difficulty.equals("s");
+        toughness = balance.toughness(hard);
+        toughTownTrouble = balance.get(BalanceParameter.TOUGH_TOWN_TROUBLE);
+        townTrouble = balance.get(BalanceParameter.TOWN_TROUBLE);
+        easyBrawlBonus = easy ? balance.get(BalanceParameter.EASY_BRAWL_BONUS) : 0;
+        maxBrawlGold = balance.getInt(BalanceParameter.MAX_BRAWL_GOLD);
+        digOdds = balance.getInt(BalanceParameter.DIG_ODDS);
+        maxDugGold = balance.getInt(BalanceParameter.MAX_DUG_GOLD);
+        breakChance = easy ? 0 : balance.get(BalanceParameter.BREAK_CHANCE);
+        startingGold = balance.getInt(BalanceParameter.STARTING_GOLD)
+                + (easy ? balance.getInt(BalanceParameter.EASY_BONUS_GOLD) : 0);
+        kitSize = samurai ? Hunter.SAMURAI_KIT_SIZE : Hunter.KIT_SIZE;
+
+        int items = Catalog.itemCount();
+        cost = new int[items];
+        forSale = new boolean[items];
+        for (int id = 0; id < items; id++) {
+            Item item = Catalog.item(id);
+            cost[id] = item.getCost();
+            forSale[id] = (samurai || !item.isSamuraiOnly()) && (item.getCost() > 0 || item == Catalog.SWORD);
+        }
+        swordBit = Catalog.SWORD.bit();
+        shovelBit = Catalog.SHOVEL.bit();
+        neededItem = new int[Catalog.terrainCount()];
+        for (int t = 0; t < neededItem.length; t++) {
+            neededItem[t] = Catalog.terrain(t).getNeededItem().id();
+        }
+
+        random = new long[size];
+        worldSeed = new long[size];
+        gold = new int[size];
+        x = new short[size];
+        y = new short[size];
+        kit = new short[size];
+        treasureKit = new byte[size];
+        terrain = new byte[size];
+        flags = new byte[size];
+    }
+
+    /**
+     * Starts every hunter's game, as TreasureHunter.start() does; hunter i plays from seedForGame(seed, i).
+     *
+     * @param seed The seed of the whole pool.
+     */
+    public void reset(long seed) {
+        for (int h = 0; h < size; h++) {
+            random[h] = GameRandom.seedForGame(seed, h);
+            worldSeed[h] = GameRandom.nextLong(random, h);
+            gold[h] = startingGold;
+            x[h] = 0;
+            y[h] = 0;
+            kit[h] = 0;
+            treasureKit[h] = 0;
+            flags[h] = 0;
+            enterTown(h);
+        }
+    }
+
+    /**
+     * Every hunter still playing looks for trouble, as in Town.lookForTrouble().
+     * A hunter who loses more gold than they have has lost the game.
+     */
+    public void lookForTrouble() {
+        for (int h = 0; h < size; h++) {
+            int flag = flags[h];
+            if ((flag & OVER) != 0) {
+                continue;
+            }
+            double noTroubleChance = (flag & TOUGH) != 0 ? toughTownTrouble : townTrouble;
+            if (GameRandom.nextDouble(random, h) > noTroubleChance) {
+                continue;
+            }
+            int goldDiff = GameRandom.nextInt(random, h, maxBrawlGold) + 1;
+            if (samurai && (kit[h] & swordBit) != 0) {
+                gold[h] += goldDiff;
+            } else if (GameRandom.nextDouble(random, h) + easyBrawlBonus > noTroubleChance) {
+                gold[h] += goldDiff;
+            } else {
+                int left = gold[h] - goldDiff;
+                gold[h] = left;
+                flags[h] = (byte) (left < 0 ? flag | LOST : flag);
+            }
+        }
+    }
+
+    /**
+     * Every hunter still playing with a shovel digs, unless they already have in this town, as in Town.digForGold().
+     */
+    public void digForGold() {
+        for (int h = 0; h < size; h++) {
+            int flag = flags[h];
+            if ((flag & (OVER | DUG)) != 0 || (kit[h] & shovelBit) == 0) {
+                continue;
+            }
+            if (GameRandom.nextInt(random, h, digOdds) == digOdds - 1) {
+                gold[h] += GameRandom.nextInt(random, h, maxDugGold) + 1;
+            }
+            flags[h] = (byte) (flag | DUG);
+        }
+    }
+
+    /**
+     * Every hunter still playing searches their town, as in Town.searchTreasure().
+     * A hunter holding all three treasures afterwards has won.
+     * There is nothing random here, so the loop is all masks and no branches.
+     */
+    public void searchTreasure() {
+        for (int h = 0; h < size; h++) {
+            int flag = flags[h];
+            int treasure = (flag & TREASURE_MASK) >>> TREASURE_SHIFT;
+            // 1 if the hunter is playing, the town hasn't been searched and its treasure isn't dust, else 0
+            int finds = ((flag & (OVER | SEARCHED)) == 0 ? 1 : 0) & (treasure != DUST ? 1 : 0);
+            int treasures = treasureKit[h] | (finds << treasure);
+            treasureKit[h] = (byte) treasures;
+            flags[h] = (byte) (flag | (finds * SEARCHED) | (finds * (treasures == Treasure.ALL_TREASURES ? WON : 0)));
+        }
+    }
+
+    /**
+     * Every hunter still playing who has what their terrain needs crosses it to a neighbouring town,
+     * as in Town.leaveTown() and TreasureHunter.travel(). The item breaks half the time, except in easy mode.
+     */
+    public void leaveTown() {
+        for (int h = 0; h < size; h++) {
+            int needed = 1 << neededItem[terrain[h]];
+            if ((flags[h] & OVER) != 0 || (kit[h] & needed) == 0) {
+                continue;
+            }
+            if (!easy && GameRandom.nextDouble(random, h) < breakChance) {
+                kit[h] = (short) (kit[h] & ~needed);
+            }
+            int direction = GameRandom.nextInt(random, h, TreasureHunter.DX.length);
+            x[h] = (short) (x[h] + TreasureHunter.DX[direction]);
+            y[h] = (short) (y[h] + TreasureHunter.DY[direction]);
+            enterTown(h);
+        }
+    }
+
+    /**
+     * Every hunter still playing buys the item their terrain needs, if they can, as in Shop.buy()
+     * with the player agreeing to the price. A samurai with the sword gets it free.
+     */
+    public void buyNeededItems() {
+        for (int h = 0; h < size; h++) {
+            int item = neededItem[terrain[h]];
+            int bit = 1 << item;
+            int hunterKit = kit[h] & 0xffff; // the sixteenth item's bit would otherwise sign-extend
+            if ((flags[h] & OVER) != 0 || !forSale[item] || gold[h] < cost[item] || (hunterKit & bit) != 0
+                    || Integer.bitCount(hunterKit) >= kitSize) {
+                continue;
+            }
+            if ((hunterKit & swordBit) == 0) {
+                gold[h] -= cost[item];
+            }
+            kit[h] = (short) (hunterKit | bit);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getGold(int h) {
+        return gold[h];
+    }
+
+    /**
+     * @return One bit per Item.
+     */
+    public int getKit(int h) {
+        return kit[h] & 0xffff;
+    }
+
+    /**
+     * @return One bit per Treasure.
+     */
+    public int getTreasureKit(int h) {
+        return treasureKit[h];
+    }
+
+    /**
+     * @return The id of the hunter's current terrain.
+     */
+    public int getTerrain(int h) {
+        return terrain[h];
+    }
+
+    public boolean isToughTown(int h) {
+        return (flags[h] & TOUGH) != 0;
+    }
+
+    public boolean isDug(int h) {
+        return (flags[h] & DUG) != 0;
+    }
+
+    public boolean isTreasureSearched(int h) {
+        return (flags[h] & SEARCHED) != 0;
+    }
+
+    public boolean isWon(int h) {
+        return (flags[h] & WON) != 0;
+    }
+
+    public boolean isLost(int h) {
+        return (flags[h] & LOST) != 0;
+    }
+
+    /**
+     * @return The number of hunters who have won.
+     */
+    public int countWon() {
+        int won = 0;
+        for (int h = 0; h < size; h++) {
+            won += (flags[h] >>> 5) & 1;
+        }
+        return won;
+    }
+
+    /**
+     * @return The number of hunters who have lost.
+     */
+    public int countLost() {
+        int lost = 0;
+        for (int h = 0; h < size; h++) {
+            lost += (flags[h] >>> 6) & 1;
+        }
+        return lost;
+    }
+
+    /**
+     * Lays out the town at the hunter's coordinates as World.townAt() and the Town constructor do,
+     * then does what entering a town does to a samurai.
+     */
+    private void enterTown(int h) {
+        layout[0] = GameRandom.seedForGame(worldSeed[h], TownDeltas.key(x[h], y[h]));
+        terrain[h] = (byte) GameRandom.nextInt(layout, 0, neededItem.length);
+        int flag = flags[h] & OVER;
+        if (GameRandom.nextDouble(layout, 0) < toughness) {
+            flag |= TOUGH;
+        }
+        flag |= GameRandom.nextInt(layout, 0, TREASURE_KINDS) << TREASURE_SHIFT;
+        flags[h] = (byte) flag;
+        if (samurai) {
+            kit[h] = 0;
+        }
+    }
+
+    /**
+     * Plays one round of every rule in turn, as the turns of a game: hunt, look for trouble, buy, dig and move on.
+     */
+    private void playRound() {
+        searchTreasure();
+        lookForTrouble();
+        buyNeededItems();
+        digForGold();
+        leaveTown();
+    }
+
+    /**
+     * Checks the pool against real games given the same choices, then times a large pool and reports its size.
+     *
+     * @param args Optionally the difficulty (default n), the number of hunters and the number of rounds to play.
+     */
+    public static void main(String[] args) {
+        String difficulty = args.length > 0 ? args[0] : "n";
+        int hunters = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_HUNTERS;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+        HunterPool pool = new HunterPool(difficulty, CHECKED_HUNTERS, Balance.DEFAULT);
+        pool.reset(DEFAULT_SEED);
+        GameEnv[] reference = new GameEnv[CHECKED_HUNTERS];
+        List<Set<Long>> visited = new ArrayList<>();
+        boolean[] checking = new boolean[CHECKED_HUNTERS];
+        for (int h = 0; h < CHECKED_HUNTERS; h++) {
+            reference[h] = new GameEnv(difficulty);
+            reference[h].reset(GameRandom.seedForGame(DEFAULT_SEED, h));
+            visited.add(new HashSet<>());
+            visited.get(h).add(TownDeltas.key(0, 0));
+            checking[h] = true;
+        }
+        long mismatches = 0;
+        long checks = 0;
+        int[] round = {GameEnv.HUNT, GameEnv.TROUBLE, -1, GameEnv.DIG, GameEnv.MOVE};
+        for (int r = 0; r < GameEnv.MAX_TURNS / round.length; r++) {
+            for (int action : round) {
+                if (action == GameEnv.HUNT) {
+                    pool.searchTreasure();
+                } else if (action == GameEnv.TROUBLE) {
+                    pool.lookForTrouble();
+                } else if (action == GameEnv.DIG) {
+                    pool.digForGold();
+                } else if (action == GameEnv.MOVE) {
+                    pool.leaveTown();
+                } else {
+                    pool.buyNeededItems();
+                }
+                for (int h = 0; h < CHECKED_HUNTERS; h++) {
+                    GameEnv env = reference[h];
+                    if (!checking[h] || env.isDone()) {
+                        continue;
+                    }
+                    int[] observation = env.getObservation();
+                    long from = TownDeltas.key(env.getGame().getX(), env.getGame().getY());
+                    env.step(action >= 0 ? action : GameEnv.BUY + pool.neededItem[observation[GameEnv.TERRAIN]]);
+                    long to = TownDeltas.key(env.getGame().getX(), env.getGame().getY());
+                    if (to != from && !visited.get(h).add(to)) {
+                        // back in a town the pool has forgotten, so the games part ways here
+                        checking[h] = false;
+                        continue;
+                    }
+                    checks++;
+                    if (observation[GameEnv.GOLD] != pool.getGold(h) || observation[GameEnv.KIT] != pool.getKit(h)
+                            || observation[GameEnv.TREASURES] != pool.getTreasureKit(h)
+                            || observation[GameEnv.TERRAIN] != pool.getTerrain(h)
+                            || (observation[GameEnv.TOUGH] == 1) != pool.isToughTown(h)
+                            || (observation[GameEnv.DUG] == 1) != pool.isDug(h)
+                            || (observation[GameEnv.SEARCHED] == 1) != pool.isTreasureSearched(h)
+                            || env.getGame().isWon() != pool.isWon(h) || env.getGame().isLost() != pool.isLost(h)) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        System.out.println(String.format("checked %d hunters against GameEnv up to their first return to a town: %d checks, %d mismatches",
+                CHECKED_HUNTERS, checks, mismatches));
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        pool = new HunterPool(difficulty, hunters, Balance.DEFAULT);
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        pool.reset(DEFAULT_SEED);
+        for (int r = 0; r < rounds / 4; r++) {
+            pool.playRound();
+        }
+        pool.reset(DEFAULT_SEED);
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            pool.playRound();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d hunters (%d bytes each, %.1f measured) x %d rounds in %.0f ms: "
+                        + "%.2f ns per hunter per rule, finished hunters included; %d won, %d lost",
+                hunters, BYTES_PER_HUNTER, (double) (after - before) / hunters, rounds, seconds * 1000,
+                seconds * 1e9 / ((double) hunters * rounds * RULES_PER_ROUND), pool.countWon(), pool.countLost()));
+    }
+}
@@ -0,0 +1,102 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns the bytes of a line a remote player sent into the String the game reads, without
+ * making a new String for the answers players give over and over.<p>
+ * The table holds one String for every menu letter, every item name and every other short answer
+ * the game knows. A line is hashed and compared straight out of the network buffer, ignoring case
+ * just as the game's own toLowerCase() would, and a known line comes back as the table's String,
+ * which toLowerCase() then returns unchanged. Only lines the game doesn't know, such as the hunter's
+ * name, are decoded into a new String.
+ */
+
+public class InputTable {
+    // instance variables
+    private final String[] lines;
+    private final byte[][] bytes;
+    private final int mask;
+
+    /**
+     * @param known The lower case ASCII lines to keep a String for.
+     */
+    public InputTable(String... known) {
+        int size = Integer.highestOneBit(Math.max(known.length, 1) * 4 - 1) << 1;
+        lines = new String[size];
+        bytes = new byte[size][];
+        mask = size - 1;
+        for (String line : known) {
+            byte[] encoded = line.getBytes(StandardCharsets.US_ASCII);
+            int slot = hash(ByteBuffer.wrap(encoded), 0, encoded.length) & mask;
+            while (lines[slot] != null && !lines[slot].equals(line)) {
+                slot = (slot + 1) & mask;
+            }
+            lines[slot] = line;
+            bytes[slot] = encoded;
+        }
+    }
+
+    /**
+     * @return A table of every answer the game's questions expect: the menu letters, the difficulties,
+     *         y and n, and the name of every item in the Catalog.
+     */
+    public static InputTable forGame() {
+        Set<String> known = new LinkedHashSet<>();
+        for (MenuAction action : MenuAction.values()) {
+            if (!action.getKey().isEmpty()) {
+                known.add(action.getKey());
+            }
+        }
+        known.addAll(List.of("e", "n", "h", "s", "test", "y"));
+        for (int i = 0; i < Catalog.itemCount(); i++) {
+            known.add(Catalog.item(i).getName());
+        }
+        return new InputTable(known.toArray(new String[0]));
+    }
+
+    /**
+     * @param buffer Holds the line; its position and limit are left alone.
+     * @param from Where the line starts in the buffer.
+     * @param to Where the line ends, not counting the line break.
+     * @return The line, from the table if the game knows it.
+     */
+    public String lookup(ByteBuffer buffer, int from, int to) {
+        int slot = hash(buffer, from, to) & mask;
+        while (lines[slot] != null) {
+            if (matches(bytes[slot], buffer, from, to)) {
+                return lines[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte[] raw = new byte[to - from];
+        buffer.get(from, raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static boolean matches(byte[] known, ByteBuffer buffer, int from, int to) {
+        if (known.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < known.length; i++) {
+            if (known[i] != lowerCase(buffer.get(from + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(ByteBuffer buffer, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = hash * 31 + lowerCase(buffer.get(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte lowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
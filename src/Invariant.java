@@ -0,0 +1,14 @@
+/**
+ * The rules of the game that must hold after every turn, whatever the player types.<p>
+ * GameFuzzer checks each one after every step of every game it plays, and names the one that broke
+ * when a game goes wrong, so a shrunk game is still failing for the same reason as the original.
+ */
+
+public enum Invariant {
+    GOLD,      // the hunter's gold is never negative unless the game was lost, and no turn moves it by more than the game can pay out or take
+    KIT,       // the kit holds only catalog items, each at most once, no more than fit, and the sword only in samurai mode
+    TREASURES, // the treasure kit holds only real treasures, never dust, and never loses one
+    WIN,       // the game is won exactly when the treasure kit is full, at the start of the turn after the last treasure is found
+    TURNS,     // each step plays at most one menu choice
+    NO_ERROR   // the game never throws
+}
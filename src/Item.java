@@ -0,0 +1,81 @@
+/**
+ * An item a Hunter can carry in their kit, as listed in the Catalog.<p>
+ * Each item owns one bit, so a whole kit fits in an int and checking, adding or
+ * removing an item is a single bit operation. There is exactly one Item object per
+ * catalog entry, so items can be compared with ==.
+ */
+
+public final class Item {
+    // instance variables
+    private final int id;
+    private final String name;
+    private final String displayName;
+    private final int cost;
+    private final boolean samuraiOnly;
+
+    /**
+     * Items are only created by the Catalog.
+     *
+     * @param id The item's position in the catalog, which is also its bit in a kit.
+     * @param name The lower case name the item is bought and sold by.
+     * @param cost The price of the item in a shop.
+     * @param samuraiOnly true if the item is only sold in samurai mode.
+     */
+    Item(int id, String name, int cost, boolean samuraiOnly) {
+        this.id = id;
+        this.name = name.intern();
+        displayName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        this.cost = cost;
+        this.samuraiOnly = samuraiOnly;
+    }
+
+    /**
+     * @return The item's position in the catalog.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return The bit that stands for this item in a kit.
+     */
+    public int bit() {
+        return 1 << id;
+    }
+
+    /**
+     * @return The lower case name the item is bought and sold by.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The name shown in the shop's price list.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public boolean isSamuraiOnly() {
+        return samuraiOnly;
+    }
+
+    /**
+     * Looks up an item by the name a player types.
+     *
+     * @param name The lower case name of the item.
+     * @return The item, or null if there is no item with that name.
+     */
+    public static Item fromName(String name) {
+        return Catalog.item(name);
+    }
+
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,407 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * The Journal is an append-only file of everything needed to rebuild games after a crash:
+ * the seed each session's game was played from, every answer its player gave, and whether it ended.<p>
+ * Records are made durable with group commit. A writer thread takes every record appended since its
+ * last write, writes them together and calls fsync once for the whole batch, so thousands of sessions
+ * answering at once cost a handful of fsyncs. An append returns once its record is on disk.<p>
+ * Each record is its length, a CRC32C of its contents, then its contents. A record cut short by a
+ * crash fails its check, and the journal is truncated back to the last whole record when reopened.<p>
+ * The journal is never compacted, so it is read a window at a time rather than mapped whole, and
+ * may grow past the 2 GB one mapping can hold.
+ */
+
+public class Journal implements AutoCloseable {
+    // constants
+    private static final byte START = 1;
+    private static final byte INPUT = 2;
+    private static final byte END = 3;
+    private static final int HEADER_SIZE = 8; // length and CRC
+    private static final int MAX_INPUT_SIZE = 0xffff; // an input's length is kept in two bytes
+    private static final int MAX_RECORD_SIZE = 1 + 8 + 1 + 2 + MAX_INPUT_SIZE;
+    private static final long SCAN_WINDOW = 64L << 20; // how much of the file is mapped at once when reading it
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final Prompt[] PROMPTS = Prompt.values();
+    private static final int DEFAULT_SESSIONS = 5_000;
+
+    // instance variables
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appendedRecords = lock.newCondition();
+    private final Condition committedRecords = lock.newCondition();
+    private final Thread writer;
+    private ByteBuffer filling = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appended; // number of records appended
+    private long durable; // number of records on disk
+    private long batches;
+    private long highestSessionId; // the highest id of a session started in the journal before it was opened
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens a journal for appending, creating it if it doesn't exist.
+     * A record left half written by a crash is cut off first.
+     *
+     * @param path The journal file.
+     * @throws IOException If the file can't be opened.
+     */
+    public Journal(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validLength = scan(channel, null, id -> highestSessionId = Math.max(highestSessionId, id));
+        channel.truncate(validLength);
+        channel.position(validLength);
+        writer = new Thread(this::writeBatches, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records that a session's game has started.
+     *
+     * @param sessionId The session.
+     * @param seed The seed the session's game is played from.
+     */
+    public void start(long sessionId, long seed) {
+        append(START, sessionId, seed, null, null);
+    }
+
+    /**
+     * Records an answer given by a session's player.
+     *
+     * @param sessionId The session.
+     * @param prompt The question that was answered.
+     * @param line The answer.
+     */
+    public void input(long sessionId, Prompt prompt, String line) {
+        append(INPUT, sessionId, 0, prompt, line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records that a session's game is over, so it is never recovered.
+     *
+     * @param sessionId The session.
+     */
+    public void end(long sessionId) {
+        append(END, sessionId, 0, null, null);
+    }
+
+    /**
+     * @return The number of fsyncs made so far.
+     */
+    public long getBatches() {
+        lock.lock();
+        try {
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of records made durable so far.
+     */
+    public long getRecords() {
+        lock.lock();
+        try {
+            return durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The highest id of any session started in the journal before it was opened, or 0 if there is none.
+     */
+    public long getHighestSessionId() {
+        return highestSessionId;
+    }
+
+    /**
+     * Writes whatever has been appended, then closes the file.
+     *
+     * @throws IOException If the last batch could not be written.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            appendedRecords.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Adds a record to the batch being filled, then waits until the writer has made it durable.
+     */
+    private void append(byte type, long sessionId, long seed, Prompt prompt, byte[] text) {
+        int length = 1 + 8;
+        if (type == START) {
+            length += 8;
+        } else if (type == INPUT) {
+            if (text.length > MAX_INPUT_SIZE) {
+                throw new IllegalArgumentException("input of " + text.length + " bytes is too long to journal");
+            }
+            length += 1 + 2 + text.length;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            if (filling.remaining() < HEADER_SIZE + length) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(filling.capacity() * 2, filling.position() + HEADER_SIZE + length));
+                filling.flip();
+                bigger.put(filling);
+                filling = bigger;
+            }
+            int start = filling.position();
+            filling.putInt(length);
+            filling.putInt(0); // CRC, filled in below
+            filling.put(type);
+            filling.putLong(sessionId);
+            if (type == START) {
+                filling.putLong(seed);
+            } else if (type == INPUT) {
+                filling.put((byte) prompt.ordinal());
+                filling.putShort((short) text.length);
+                filling.put(text);
+            }
+            filling.putInt(start + 4, crc(filling, start + HEADER_SIZE, length));
+            long record = ++appended;
+            appendedRecords.signal();
+            while (durable < record && failure == null) {
+                committedRecords.awaitUninterruptibly();
+            }
+            if (durable < record) {
+                throw new UncheckedIOException("journal write failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The writer thread: swaps the filling and flushing buffers, writes and fsyncs the batch,
+     * then wakes every appender whose record was in it.
+     */
+    private void writeBatches() {
+        while (true) {
+            long batchEnd;
+            lock.lock();
+            try {
+                while (filling.position() == 0 && !closed) {
+                    appendedRecords.awaitUninterruptibly();
+                }
+                if (filling.position() == 0) {
+                    return;
+                }
+                ByteBuffer full = filling;
+                filling = flushing;
+                flushing = full;
+                batchEnd = appended;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    channel.write(flushing);
+                }
+                channel.force(false);
+                flushing.clear();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    committedRecords.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                durable = batchEnd;
+                batches++;
+                committedRecords.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads every whole record in a journal.
+     *
+     * @param path The journal file.
+     * @return Every session in the journal by id, in the order they started.
+     * @throws IOException If the file can't be read.
+     */
+    public static Map<Long, JournaledSession> read(Path path) throws IOException {
+        Map<Long, JournaledSession> sessions = new LinkedHashMap<>();
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            scan(in, sessions, null);
+        }
+        return sessions;
+    }
+
+    /**
+     * Walks the records in a journal, checking each one.
+     *
+     * @param in The journal file.
+     * @param sessions Filled in with the sessions read, or null to only check the records.
+     * @param started Given the id of every session started in the journal, or null.
+     * @return The length of the journal up to the end of the last whole record.
+     */
+    private static long scan(FileChannel in, Map<Long, JournaledSession> sessions, LongConsumer started) throws IOException {
+        long size = in.size();
+        if (size == 0) {
+            return 0;
+        }
+        long windowStart = 0;
+        while (true) {
+            long windowLength = Math.min(SCAN_WINDOW, size - windowStart);
+            boolean lastWindow = windowStart + windowLength == size;
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int crc = buffer.getInt();
+                if (length < 9 || length > MAX_RECORD_SIZE) {
+                    return windowStart + start;
+                }
+                if (length > buffer.remaining()) {
+                    // cut short by a crash, or carried on in the next window
+                    buffer.position(start);
+                    break;
+                }
+                if (crc(buffer, start + HEADER_SIZE, length) != crc) {
+                    return windowStart + start;
+                }
+                byte type = buffer.get();
+                long sessionId = buffer.getLong();
+                if (type == START) {
+                    long seed = buffer.getLong();
+                    if (started != null) {
+                        started.accept(sessionId);
+                    }
+                    if (sessions != null) {
+                        sessions.put(sessionId, new JournaledSession(sessionId, seed));
+                    }
+                } else if (type == INPUT) {
+                    Prompt prompt = PROMPTS[buffer.get()];
+                    byte[] text = new byte[buffer.getShort() & 0xffff];
+                    buffer.get(text);
+                    JournaledSession session = sessions == null ? null : sessions.get(sessionId);
+                    if (session != null) {
+                        session.addInput(prompt, new String(text, StandardCharsets.UTF_8));
+                    }
+                } else if (type == END) {
+                    JournaledSession session = sessions == null ? null : sessions.get(sessionId);
+                    if (session != null) {
+                        session.finish();
+                    }
+                } else {
+                    return windowStart + start;
+                }
+                buffer.position(start + HEADER_SIZE + length);
+            }
+            if (lastWindow) {
+                return windowStart + buffer.position();
+            }
+            // a window is far bigger than any record, so every window reads at least one
+            windowStart += buffer.position();
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int from, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(from, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Plays many games at once into a journal, then rebuilds every one of them from it
+     * and checks that each rebuilt game matches the original.
+     *
+     * @param args Optionally, the number of games to play.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = DEFAULT_SESSIONS;
+        if (args.length > 0) {
+            count = Integer.parseInt(args[0]);
+        }
+        Path path = Files.createTempFile("treasurehunter", ".journal");
+        try {
+            TreasureHunter[] games = new TreasureHunter[count];
+            long start = System.nanoTime();
+            try (Journal journal = new Journal(path)) {
+                List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    int id = i;
+                    threads.add(Thread.ofVirtual().start(() -> {
+                        long seed = GameRandom.seedForGame(0, id);
+                        journal.start(id, seed);
+                        Player player = new JournalingPlayer(new GreedyPlayer("n"), journal, id, 0);
+                        games[id] = new TreasureHunter(player, new CountingSink(), seed);
+                        games[id].play();
+                        journal.end(id);
+                    }));
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                System.out.println(String.format("journaled %d records from %d games in %d fsyncs, %.0f ms",
+                        journal.getRecords(), count, journal.getBatches(), (System.nanoTime() - start) / 1e6));
+            }
+
+            start = System.nanoTime();
+            Map<Long, JournaledSession> sessions = read(path);
+            long events = 0;
+            int mismatches = 0;
+            for (JournaledSession session : sessions.values()) {
+                TreasureHunter rebuilt = ReplayPlayer.rebuild(session);
+                TreasureHunter original = games[(int) session.getId()];
+                events += session.size();
+                if (rebuilt.getTurns() != original.getTurns()
+                        || rebuilt.getHunter().getGold() != original.getHunter().getGold()
+                        || rebuilt.isWon() != original.isWon()) {
+                    mismatches++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("replayed %d events from %d sessions in %.0f ms, %.0f events per second, %d mismatches",
+                    events, sessions.size(), seconds * 1000, events / seconds, mismatches));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the Journal recorded about one session: the seed its game was played from
+ * and every answer its player gave, in order. Replaying those answers into a game with
+ * the same seed rebuilds the game exactly.
+ */
+
+public class JournaledSession {
+    // instance variables
+    private final long id;
+    private final long seed;
+    private final List<Prompt> prompts = new ArrayList<>();
+    private final List<String> inputs = new ArrayList<>();
+    private boolean finished;
+
+    public JournaledSession(long id, long seed) {
+        this.id = id;
+        this.seed = seed;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return true if the journal recorded the end of the session's game.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int size() {
+        return inputs.size();
+    }
+
+    /**
+     * @param index The position of an answer in the session.
+     * @return The question that was answered.
+     */
+    public Prompt getPrompt(int index) {
+        return prompts.get(index);
+    }
+
+    /**
+     * @param index The position of an answer in the session.
+     * @return The answer the player gave.
+     */
+    public String getInput(int index) {
+        return inputs.get(index);
+    }
+
+    void addInput(Prompt prompt, String input) {
+        prompts.add(prompt);
+        inputs.add(input);
+    }
+
+    void finish() {
+        finished = true;
+    }
+}
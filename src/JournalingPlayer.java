@@ -0,0 +1,36 @@
+/**
+ * A Player that writes every answer given by another player to a Journal before
+ * handing it to the game, so the game can be rebuilt after a crash.
+ */
+
+public class JournalingPlayer implements Player {
+    // instance variables
+    private final Player player;
+    private final Journal journal;
+    private final long sessionId;
+    private int alreadyJournaled;
+
+    /**
+     * @param player The player whose answers are recorded.
+     * @param journal The journal to record them in.
+     * @param sessionId The session the answers belong to.
+     * @param alreadyJournaled The number of answers at the start that are being replayed
+     *                         from the journal and so must not be recorded again.
+     */
+    public JournalingPlayer(Player player, Journal journal, long sessionId, int alreadyJournaled) {
+        this.player = player;
+        this.journal = journal;
+        this.sessionId = sessionId;
+        this.alreadyJournaled = alreadyJournaled;
+    }
+
+    public String respond(Prompt prompt, Hunter hunter, Town town) {
+        String line = player.respond(prompt, hunter, town);
+        if (alreadyJournaled > 0) {
+            alreadyJournaled--;
+        } else {
+            journal.input(sessionId, prompt, line);
+        }
+        return line;
+    }
+}
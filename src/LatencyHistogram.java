@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how long something takes, in buckets that double in size: bucket i holds the times
+ * under 2^i nanoseconds that didn't fit in bucket i - 1.<p>
+ * Recording is a leading-zero count and a LongAdder increment, so it never allocates and
+ * threads recording at once don't fight over a single counter.
+ */
+
+public class LatencyHistogram {
+    // constants
+    public static final int BUCKETS = 40; // the last bucket holds everything from about 4.5 minutes up
+
+    // instance variables
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos How long it took.
+     */
+    public void record(long nanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+        buckets[Math.min(bucket, BUCKETS - 1)].increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * @param bucket A bucket.
+     * @return The number of times recorded in it.
+     */
+    public long getCount(int bucket) {
+        return buckets[bucket].sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Writes the histogram in the Prometheus text format, in seconds.
+     *
+     * @param out Where the text goes.
+     * @param name The metric's name.
+     * @param labels The metric's labels, such as action="buy", or an empty string.
+     */
+    public void writeTo(StringBuilder out, String name, String labels) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{").append(labels).append(separator)
+                    .append("le=\"").append((1L << i) / 1e9).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[BUCKETS - 1].sum();
+        out.append(name).append("_bucket{").append(labels).append(separator)
+                .append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ").append(totalNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,843 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Leaderboard ranks finished games, kept on disk so that there can be far more of them than fit in memory.<p>
+ * Games are ranked within their difficulty: wins come first, then fewer turns, then more gold, and
+ * a tie goes to the game added first. Each game gets a 64-bit key that sorts in exactly that order,
+ * with the difficulty in its top bits, so every difficulty is one run of keys.<p>
+ * It is stored like a log-structured merge tree. New games collect in a small table in memory, and
+ * once it fills they are sorted and written out as a segment file: the games in key order, an index
+ * of them by the hash of the hunter's name, and the names. Segments are never changed once written,
+ * and are read through memory maps, so a query only touches the pages it binary-searches. Whenever a
+ * segment is no more than twice the size of the one written after it, the two are merged into one,
+ * so there are only about log(games) segments, until they reach MAX_SEGMENT_SIZE. Segments that big
+ * are not merged again; past that size the number of segments grows with the games, one more for
+ * every two million or so, in exchange for a merge, which runs inside add() with the leaderboard
+ * locked, never taking longer than it takes to rewrite 64 MB. A query looks in every segment and the
+ * table in memory and merges what it finds.<p>
+ * Games still in memory reach the disk on flush() or close(). Every segment is written under a
+ * temporary name and renamed to a new id, never over a file that is in use, and the two a merge
+ * replaces are deleted after it, so a crash leaves either the old segments or the new one beside
+ * them, which opening the leaderboard tidies away. Windows won't delete a file while it is still
+ * mapped, and a map is only dropped once it is garbage collected, so a file that can't be deleted
+ * is tried again on later flushes, and failing that is deleted when the leaderboard is next opened.<p>
+ * Its methods are synchronized, so games finishing on different threads can share one leaderboard.
+ * A segment is mapped as one buffer, which limits it to 2 GB; one that would be bigger, which only a
+ * table in memory full of very long names can make, is refused before it replaces anything.
+ */
+
+public class Leaderboard implements AutoCloseable {
+    // constants
+    public static final String[] DIFFICULTIES = {"e", "n", "h", "s"};
+    private static final int MEMTABLE_SIZE = 1 << 16;
+    private static final long MAX_SEGMENT_SIZE = 64L << 20; // two segments that would add up to more than this aren't merged
+    private static final int MAGIC = 0x4c445231; // "LDR1"
+    private static final int HEADER_SIZE = 32; // magic, games, name bytes, unused, first and last sequence number
+    private static final int RECORD_SIZE = 24; // key, sequence number, name offset, name length
+    private static final int NAME_ENTRY_SIZE = 8; // name hash, record number
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".ldr";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int DIFFICULTY_SHIFT = 60;
+    private static final int LOST_SHIFT = 59;
+    private static final int TURNS_SHIFT = 32;
+    private static final int MAX_TURNS = (1 << 27) - 1;
+    private static final long GOLD_MASK = 0xffffffffL;
+    private static final int DEFAULT_GAMES = 2_000_000;
+    private static final int DEFAULT_HUNTERS = 100_000;
+    private static final long DEFAULT_SEED = 20240101L;
+
+    // instance variables
+    private final Path directory;
+    private final List<Segment> segments = new ArrayList<>(); // oldest first
+    private final List<Path> obsolete = new ArrayList<>(); // files of merged segments not deleted yet
+    private Memtable memtable;
+    private long nextSequence;
+    private int nextId;
+
+    /**
+     * One game's place on the leaderboard.
+     */
+    public static class Entry {
+        // instance variables
+        private final long rank;
+        private final String name;
+        private final String difficulty;
+        private final boolean won;
+        private final int turns;
+        private final int gold;
+
+        Entry(long rank, String name, long key) {
+            this.rank = rank;
+            this.name = name;
+            difficulty = DIFFICULTIES[(int) (key >>> DIFFICULTY_SHIFT)];
+            won = ((key >>> LOST_SHIFT) & 1) == 0;
+            turns = (int) ((key >>> TURNS_SHIFT) & MAX_TURNS);
+            gold = (int) (Integer.MAX_VALUE - (key & GOLD_MASK));
+        }
+
+        /**
+         * @return The game's place within its difficulty, starting from 1.
+         */
+        public long getRank() {
+            return rank;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDifficulty() {
+            return difficulty;
+        }
+
+        public boolean isWon() {
+            return won;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public int getGold() {
+            return gold;
+        }
+
+        public String toString() {
+            return String.format("%10d  %-16s %s %-4s %6d turns %6d gold", rank, name, difficulty, won ? "won" : "-", turns, gold);
+        }
+    }
+
+    /**
+     * Opens the leaderboard kept in a directory, creating the directory if it doesn't exist.
+     * A merge cut short by a crash is tidied away first.
+     *
+     * @param directory Where the segment files are kept.
+     * @throws IOException If the segments can't be read.
+     */
+    public Leaderboard(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path path : files) {
+                String file = path.getFileName().toString();
+                if (file.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(path);
+                } else if (file.endsWith(SUFFIX)) {
+                    paths.add(path);
+                }
+            }
+        }
+        paths.sort((a, b) -> Integer.compare(idOf(a), idOf(b)));
+        // the segments a merge replaced are left behind by a crash before they were deleted, or by
+        // a system that wouldn't delete them while mapped, with all their games in the merged one;
+        // they are found from the headers alone, so they are deleted before anything maps them
+        List<Path> kept = new ArrayList<>();
+        List<long[]> keptSequences = new ArrayList<>();
+        for (Path path : paths) {
+            long[] sequences = sequencesOf(path);
+            nextId = Math.max(nextId, idOf(path) + 1);
+            while (!kept.isEmpty() && keptSequences.get(kept.size() - 1)[0] >= sequences[0]) {
+                keptSequences.remove(kept.size() - 1);
+                Files.delete(kept.remove(kept.size() - 1));
+            }
+            if (!kept.isEmpty() && keptSequences.get(kept.size() - 1)[1] >= sequences[1]) {
+                Files.delete(path);
+                continue;
+            }
+            kept.add(path);
+            keptSequences.add(sequences);
+        }
+        for (Path path : kept) {
+            Segment segment = Segment.open(path);
+            segments.add(segment);
+            nextSequence = Math.max(nextSequence, segment.lastSequence + 1);
+        }
+        memtable = new Memtable(nextSequence);
+    }
+
+    /**
+     * Adds a finished game.
+     *
+     * @param game A game that is over.
+     */
+    public void add(TreasureHunter game) {
+        String difficulty = "n";
+        if (game.isEasyMode()) {
+            difficulty = "e";
+        } else if (game.isHardMode()) {
+            difficulty = "h";
+        } else if (game.isSamuraiMode()) {
+            difficulty = "s";
+        }
+        add(game.getHunter().getHunterName(), difficulty, game.isWon(), game.getTurns(), game.getHunter().getGold());
+    }
+
+    /**
+     * Adds a finished game.
+     *
+     * @param name The hunter's name.
+     * @param difficulty The difficulty it was played at (e, n, h or s).
+     * @param won true if the hunter found all three treasures.
+     * @param turns The number of turns the game took.
+     * @param gold The hunter's gold at the end.
+     * @throws UncheckedIOException If the table in memory was full and couldn't be written out, in
+     *         which case the game isn't added and the next add() tries the write again.
+     */
+    public synchronized void add(String name, String difficulty, boolean won, int turns, int gold) {
+        long key = key(difficultyIndex(difficulty), won, turns, gold);
+        if (memtable.size() == MEMTABLE_SIZE) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        memtable.add(key, name);
+        nextSequence++;
+    }
+
+    /**
+     * @param difficulty The difficulty (e, n, h or s).
+     * @return The number of games played at that difficulty.
+     */
+    public synchronized long count(String difficulty) {
+        int d = difficultyIndex(difficulty);
+        List<Run> runs = runs();
+        long count = 0;
+        for (Run run : runs) {
+            count += run.lowerBound(start(d + 1), Long.MIN_VALUE) - run.lowerBound(start(d), Long.MIN_VALUE);
+        }
+        return count;
+    }
+
+    /**
+     * @param difficulty The difficulty (e, n, h or s).
+     * @param k The most games to return.
+     * @return The best k games at that difficulty, best first.
+     */
+    public synchronized List<Entry> top(String difficulty, int k) {
+        return range(difficulty, 1, k);
+    }
+
+    /**
+     * Finds the best game a hunter has played at a difficulty, and where it ranks.
+     *
+     * @param name The hunter's name.
+     * @param difficulty The difficulty (e, n, h or s).
+     * @return The hunter's best game, or null if they haven't played that difficulty.
+     */
+    public synchronized Entry rank(String name, String difficulty) {
+        int d = difficultyIndex(difficulty);
+        List<Run> runs = runs();
+        long bestKey = 0;
+        long bestSequence = 0;
+        boolean found = false;
+        for (Run run : runs) {
+            int index = run.best(name, run.lowerBound(start(d), Long.MIN_VALUE), run.lowerBound(start(d + 1), Long.MIN_VALUE));
+            if (index >= 0 && (!found || compare(run.key(index), run.sequence(index), bestKey, bestSequence) < 0)) {
+                bestKey = run.key(index);
+                bestSequence = run.sequence(index);
+                found = true;
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        return new Entry(1 + countBelow(runs, d, bestKey, bestSequence), name, bestKey);
+    }
+
+    /**
+     * Lists the games at a run of ranks.
+     *
+     * @param difficulty The difficulty (e, n, h or s).
+     * @param fromRank The first rank to list, starting from 1.
+     * @param count The most games to list.
+     * @return The games ranked fromRank, fromRank + 1 and so on, best first.
+     */
+    public synchronized List<Entry> range(String difficulty, long fromRank, int count) {
+        int d = difficultyIndex(difficulty);
+        List<Run> runs = runs();
+        List<Entry> entries = new ArrayList<>();
+        long below = fromRank - 1;
+        if (count <= 0 || below < 0 || countBelow(runs, d, start(d + 1), Long.MIN_VALUE) <= below) {
+            return entries;
+        }
+
+        // find the key of the game at the rank, then its sequence number among games with that key
+        long low = start(d);
+        long high = start(d + 1) - 1;
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            if (countBelow(runs, d, mid + 1, Long.MIN_VALUE) > below) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        long key = low;
+        low = 0;
+        high = nextSequence - 1;
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            if (countBelow(runs, d, key, mid + 1) > below) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        // then merge forward from there
+        int[] cursors = new int[runs.size()];
+        int[] ends = new int[runs.size()];
+        for (int r = 0; r < runs.size(); r++) {
+            cursors[r] = runs.get(r).lowerBound(key, low);
+            ends[r] = runs.get(r).lowerBound(start(d + 1), Long.MIN_VALUE);
+        }
+        long rank = fromRank;
+        while (entries.size() < count) {
+            int next = -1;
+            for (int r = 0; r < runs.size(); r++) {
+                if (cursors[r] < ends[r] && (next < 0 || compare(runs.get(r), cursors[r], runs.get(next), cursors[next]) < 0)) {
+                    next = r;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            Run run = runs.get(next);
+            entries.add(new Entry(rank++, run.name(cursors[next]), run.key(cursors[next])));
+            cursors[next]++;
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the games still in memory out to a segment, merging segments as needed.
+     *
+     * @throws IOException If the segment can't be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (memtable.size() == 0) {
+            return;
+        }
+        memtable.sort();
+        segments.add(write(pathOf(nextId++), memtable, null));
+        memtable = new Memtable(nextSequence);
+        while (segments.size() >= 2) {
+            Segment older = segments.get(segments.size() - 2);
+            Segment newer = segments.get(segments.size() - 1);
+            if (older.size() > 2 * newer.size() || older.bytes() + newer.bytes() > MAX_SEGMENT_SIZE) {
+                break;
+            }
+            // the merged segment holds the newest games, so giving it the next id keeps the files in the order of the games
+            Segment merged = write(pathOf(nextId++), older, newer);
+            segments.remove(segments.size() - 1);
+            segments.set(segments.size() - 1, merged);
+            obsolete.add(older.path);
+            obsolete.add(newer.path);
+        }
+        deleteObsolete();
+    }
+
+    /**
+     * Deletes the files of merged segments, leaving any the system won't delete yet for the next try.
+     */
+    private void deleteObsolete() {
+        Iterator<Path> paths = obsolete.iterator();
+        while (paths.hasNext()) {
+            try {
+                Files.deleteIfExists(paths.next());
+                paths.remove();
+            } catch (IOException e) {
+                // still mapped; deleted by a later flush or when the leaderboard is next opened
+            }
+        }
+    }
+
+    /**
+     * @return The number of segment files.
+     */
+    public synchronized int getSegments() {
+        return segments.size();
+    }
+
+    public synchronized void close() throws IOException {
+        flush();
+    }
+
+    private List<Run> runs() {
+        memtable.sort();
+        List<Run> runs = new ArrayList<>(segments);
+        runs.add(memtable);
+        return runs;
+    }
+
+    /**
+     * @return The number of games at difficulty d that rank ahead of the given key and sequence number.
+     */
+    private static long countBelow(List<Run> runs, int d, long key, long sequence) {
+        long count = 0;
+        for (Run run : runs) {
+            count += run.lowerBound(key, sequence) - run.lowerBound(start(d), Long.MIN_VALUE);
+        }
+        return count;
+    }
+
+    private static long key(int difficulty, boolean won, int turns, int gold) {
+        return ((long) difficulty << DIFFICULTY_SHIFT)
+                | ((won ? 0L : 1L) << LOST_SHIFT)
+                | ((long) Math.min(Math.max(turns, 0), MAX_TURNS) << TURNS_SHIFT)
+                | (Integer.MAX_VALUE - (long) gold);
+    }
+
+    /**
+     * @return The lowest key at difficulty d; start(d + 1) is one past its highest.
+     */
+    private static long start(int d) {
+        return (long) d << DIFFICULTY_SHIFT;
+    }
+
+    private static int difficultyIndex(String difficulty) {
+        for (int d = 0; d < DIFFICULTIES.length; d++) {
+            if (DIFFICULTIES[d].equals(difficulty)) {
+                return d;
+            }
+        }
+        throw new IllegalArgumentException("no such difficulty: " + difficulty);
+    }
+
+    private static int compare(long key, long sequence, long otherKey, long otherSequence) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Long.compare(sequence, otherSequence);
+    }
+
+    private static int compare(Run run, int i, Run other, int j) {
+        return compare(run.key(i), run.sequence(i), other.key(j), other.sequence(j));
+    }
+
+    private Path pathOf(int id) {
+        return directory.resolve(String.format("%s%08d%s", PREFIX, id, SUFFIX));
+    }
+
+    /**
+     * Reads a segment's first and last sequence numbers from its header, without mapping it.
+     */
+    private static long[] sequencesOf(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            int read = 0;
+            while (header.hasRemaining() && read >= 0) {
+                read = in.read(header);
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a leaderboard segment");
+        }
+        return new long[] {header.getLong(16), header.getLong(24)};
+    }
+
+    private static int idOf(Path path) {
+        String file = path.getFileName().toString();
+        return Integer.parseInt(file.substring(PREFIX.length(), file.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Writes the games of one run, or two merged, to a new segment.
+     * The segment is written under a temporary name, forced to disk and then renamed to its own.
+     *
+     * @throws IOException If the segment can't be written, or would be too big to map, in which
+     *         case nothing is renamed and the temporary file is deleted.
+     */
+    private static Segment write(Path path, Run first, Run second) throws IOException {
+        int firstSize = first.size();
+        int secondSize = second == null ? 0 : second.size();
+        int count = firstSize + secondSize;
+        long[] nameIndex = new long[count];
+        Map<String, Long> nameSpans = new HashMap<>(); // each distinct name's offset and length
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        long firstSequence = Long.MAX_VALUE;
+        long lastSequence = Long.MIN_VALUE;
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+                out.position(HEADER_SIZE);
+                int i = 0;
+                int j = 0;
+                for (int record = 0; record < count; record++) {
+                    Run run;
+                    int index;
+                    if (j >= secondSize || (i < firstSize && compare(first, i, second, j) < 0)) {
+                        run = first;
+                        index = i++;
+                    } else {
+                        run = second;
+                        index = j++;
+                    }
+                    String name = run.name(index);
+                    Long span = nameSpans.get(name);
+                    if (span == null) {
+                        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                        span = ((long) names.size() << 32) | bytes.length;
+                        names.write(bytes, 0, bytes.length);
+                        nameSpans.put(name, span);
+                    }
+                    long sequence = run.sequence(index);
+                    firstSequence = Math.min(firstSequence, sequence);
+                    lastSequence = Math.max(lastSequence, sequence);
+                    if (buffer.remaining() < RECORD_SIZE) {
+                        drain(out, buffer);
+                    }
+                    buffer.putLong(run.key(index)).putLong(sequence).putInt((int) (span >>> 32)).putInt((int) (long) span);
+                    nameIndex[record] = ((long) name.hashCode() << 32) | record;
+                }
+                long size = HEADER_SIZE + (long) count * (RECORD_SIZE + NAME_ENTRY_SIZE) + names.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException(path + " would be " + size + " bytes, more than one segment can hold");
+                }
+                // sorting the longs sorts by hash, then by record, which is the order lookups expect
+                Arrays.sort(nameIndex);
+                for (long entry : nameIndex) {
+                    if (buffer.remaining() < NAME_ENTRY_SIZE) {
+                        drain(out, buffer);
+                    }
+                    buffer.putLong(entry);
+                }
+                drain(out, buffer);
+                out.write(ByteBuffer.wrap(names.toByteArray()));
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(count).putInt(names.size()).putInt(0).putLong(firstSequence).putLong(lastSequence);
+                header.flip();
+                out.write(header, 0);
+                out.force(true);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Segment.open(path);
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Games in key order, either in a segment or in the table in memory.
+     */
+    private abstract static class Run {
+        abstract int size();
+
+        abstract long key(int i);
+
+        abstract long sequence(int i);
+
+        abstract String name(int i);
+
+        /**
+         * @return The first game among [from, to) played by the hunter, or -1 if there isn't one.
+         */
+        abstract int best(String name, int from, int to);
+
+        /**
+         * @return The index of the first game not ranked ahead of the given key and sequence number.
+         */
+        int lowerBound(long key, long sequence) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(key(mid), sequence(mid), key, sequence) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A segment file, read through a memory map.
+     */
+    private static class Segment extends Run {
+        // instance variables
+        private final Path path;
+        private final MappedByteBuffer map;
+        private final int count;
+        private final int indexStart;
+        private final int namesStart;
+        private final long firstSequence;
+        private final long lastSequence;
+
+        private Segment(Path path, MappedByteBuffer map) throws IOException {
+            this.path = path;
+            this.map = map;
+            if (map.capacity() < HEADER_SIZE || map.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a leaderboard segment");
+            }
+            count = map.getInt(4);
+            indexStart = HEADER_SIZE + count * RECORD_SIZE;
+            namesStart = indexStart + count * NAME_ENTRY_SIZE;
+            if (namesStart + map.getInt(8) != map.capacity()) {
+                throw new IOException(path + " is cut short");
+            }
+            firstSequence = map.getLong(16);
+            lastSequence = map.getLong(24);
+        }
+
+        static Segment open(Path path) throws IOException {
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new Segment(path, in.map(FileChannel.MapMode.READ_ONLY, 0, in.size()));
+            }
+        }
+
+        int size() {
+            return count;
+        }
+
+        /**
+         * @return The length of the segment file.
+         */
+        long bytes() {
+            return map.capacity();
+        }
+
+        long key(int i) {
+            return map.getLong(HEADER_SIZE + i * RECORD_SIZE);
+        }
+
+        long sequence(int i) {
+            return map.getLong(HEADER_SIZE + i * RECORD_SIZE + 8);
+        }
+
+        String name(int i) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            byte[] bytes = new byte[map.getInt(record + 20)];
+            map.get(namesStart + map.getInt(record + 16), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int best(String name, int from, int to) {
+            int hash = name.hashCode();
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int entry = indexStart + mid * NAME_ENTRY_SIZE;
+                int byHash = Integer.compare(map.getInt(entry), hash);
+                if (byHash < 0 || (byHash == 0 && map.getInt(entry + 4) < from)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int n = low; n < count; n++) {
+                int entry = indexStart + n * NAME_ENTRY_SIZE;
+                int record = map.getInt(entry + 4);
+                if (map.getInt(entry) != hash || record >= to) {
+                    break;
+                }
+                if (nameEquals(record, bytes)) {
+                    return record;
+                }
+            }
+            return -1;
+        }
+
+        private boolean nameEquals(int i, byte[] bytes) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            if (map.getInt(record + 20) != bytes.length) {
+                return false;
+            }
+            int offset = namesStart + map.getInt(record + 16);
+            for (int b = 0; b < bytes.length; b++) {
+                if (map.get(offset + b) != bytes[b]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The newest games, not yet written to a segment. They are kept in the order they were added,
+     * and put in key order only when a query or a flush needs it.
+     */
+    private static class Memtable extends Run {
+        // instance variables
+        private final long firstSequence;
+        private final long[] keys = new long[MEMTABLE_SIZE];
+        private final String[] names = new String[MEMTABLE_SIZE];
+        private int[] order = new int[MEMTABLE_SIZE];
+        private int[] spare = new int[MEMTABLE_SIZE];
+        private int count;
+        private boolean sorted = true;
+
+        Memtable(long firstSequence) {
+            this.firstSequence = firstSequence;
+        }
+
+        void add(long key, String name) {
+            keys[count] = key;
+            names[count] = name;
+            count++;
+            sorted = false;
+        }
+
+        /**
+         * Puts the games in key order with a merge sort, which is stable, so games with the same
+         * key stay in the order they were added.
+         */
+        void sort() {
+            if (sorted) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            for (int width = 1; width < count; width *= 2) {
+                for (int left = 0; left < count; left += 2 * width) {
+                    int mid = Math.min(left + width, count);
+                    int right = Math.min(left + 2 * width, count);
+                    int i = left;
+                    int j = mid;
+                    for (int k = left; k < right; k++) {
+                        if (j >= right || (i < mid && keys[order[i]] <= keys[order[j]])) {
+                            spare[k] = order[i++];
+                        } else {
+                            spare[k] = order[j++];
+                        }
+                    }
+                }
+                int[] swap = order;
+                order = spare;
+                spare = swap;
+            }
+            sorted = true;
+        }
+
+        int size() {
+            return count;
+        }
+
+        long key(int i) {
+            return keys[order[i]];
+        }
+
+        long sequence(int i) {
+            return firstSequence + order[i];
+        }
+
+        String name(int i) {
+            return names[order[i]];
+        }
+
+        int best(String name, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (names[order[i]].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Checks that a flush that fails, as it would on a full disk, loses no games and is tried again
+     * by the next add(). The failure is made by removing the leaderboard's directory from under it.
+     */
+    private static void checkFailedFlush() throws IOException {
+        Path directory = Files.createTempDirectory("leaderboard");
+        try (Leaderboard leaderboard = new Leaderboard(directory)) {
+            for (int game = 0; game < MEMTABLE_SIZE; game++) {
+                leaderboard.add("hunter" + game, "n", true, game + 1, 0);
+            }
+            Files.delete(directory);
+            int refused = 0;
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try {
+                    leaderboard.add("late", "n", true, 1, 0);
+                } catch (UncheckedIOException e) {
+                    refused++;
+                }
+            }
+            Files.createDirectories(directory);
+            leaderboard.add("late", "n", true, 1, 0);
+            System.out.println(String.format("checked a failed flush: %d of 2 adds refused while it failed, %d of %d games kept in %d segment(s)",
+                    refused, leaderboard.count("n"), MEMTABLE_SIZE + 1, leaderboard.getSegments()));
+        }
+    }
+
+    /**
+     * Checks that a failed flush is tried again, then fills a leaderboard with made-up results and times its queries.
+     *
+     * @param args Optionally, the number of games to add and then the directory to keep them in.
+     */
+    public static void main(String[] args) throws IOException {
+        int games = DEFAULT_GAMES;
+        if (args.length > 0) {
+            games = Integer.parseInt(args[0]);
+        }
+        checkFailedFlush();
+        Path directory = args.length > 1 ? Path.of(args[1]) : Files.createTempDirectory("leaderboard");
+        GameRandom random = new GameRandom(DEFAULT_SEED);
+        try (Leaderboard leaderboard = new Leaderboard(directory)) {
+            long start = System.nanoTime();
+            for (int game = 0; game < games; game++) {
+                boolean won = random.nextDouble() < 0.5;
+                leaderboard.add("hunter" + random.nextInt(DEFAULT_HUNTERS), DIFFICULTIES[random.nextInt(DIFFICULTIES.length)],
+                        won, random.nextInt(200) + 1, random.nextInt(100) - (won ? 0 : 10));
+            }
+            leaderboard.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("added %d games in %.1f s (%.0f per second) to %s: %d segments",
+                    games, seconds, games / seconds, directory, leaderboard.getSegments()));
+
+            for (String difficulty : DIFFICULTIES) {
+                start = System.nanoTime();
+                List<Entry> top = leaderboard.top(difficulty, 10);
+                double topMillis = (System.nanoTime() - start) / 1e6;
+                start = System.nanoTime();
+                Entry hunter = leaderboard.rank("hunter42", difficulty);
+                double rankMillis = (System.nanoTime() - start) / 1e6;
+                long middle = leaderboard.count(difficulty) / 2;
+                start = System.nanoTime();
+                List<Entry> range = leaderboard.range(difficulty, middle, 10);
+                double rangeMillis = (System.nanoTime() - start) / 1e6;
+                System.out.println(String.format("%s: %d games; top 10 in %.2f ms, hunter42's rank in %.2f ms, ranks %d on in %.2f ms",
+                        difficulty, leaderboard.count(difficulty), topMillis, rankMillis, middle, rangeMillis));
+                System.out.println(top.get(0));
+                System.out.println(hunter);
+                System.out.println(range.get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,867 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates how well the best possible player can do at each difficulty, by treating a simplified
+ * game as a Markov decision process and solving it with value iteration. The answer is exact only
+ * for the simplified game, whose states are truncated as described below, so it is an approximation
+ * of the real one.<p>
+ * A state is what the hunter sees at the menu: their gold, their kit, how many treasures they have,
+ * and the town's terrain, toughness, whether it has been dug, and whether a treasure they don't
+ * have yet is still there to find. The three treasures are interchangeable, so which ones the
+ * hunter has doesn't matter, only how many. Each menu action leads to the next states with the
+ * probabilities the game's rules give them. Looking for trouble until some is found is treated as
+ * one step, since the best player never stops half way.<p>
+ * Treasures are only ever gained, so the states are solved one treasure count at a time, starting
+ * with the count nearest to winning. Within a count the values are iterated in parallel sweeps
+ * until they stop changing. The expected value of walking into a new town, which every move needs
+ * and which only depends on the hunter's gold and kit, is worked out once per sweep and looked up.<p>
+ * Two approximations keep the model finite. Gold above the cap counts as the cap, which undercounts
+ * the best play a little, since where brawls favour the hunter they can always fight for more; the
+ * higher the cap the closer the answer, and the longer the best games get. And every move leads to
+ * a new town, as it did before the World remembered towns, so a hunter coming back to a town they
+ * have searched is not modelled. Since the World remembers the towns near the hunter, a walk often
+ * comes back to one, which the model counts as new, so its chances are too kind. To show by how
+ * much, solve() keeps the policy it finds and play() plays it in a VectorEnv, where towns are
+ * remembered as in the game; the solve mode prints both.<p>
+ * Solving is slow: at the default cap of 63 a difficulty takes 30 to 40 seconds on one core, and
+ * samurai, with twice the kits, about 70, shared out across cores when there are more; the time
+ * grows with the cap. Each thread sweeps its fibers in arrays of its own, so a sweep allocates
+ * nothing. The game's numbers come from a Balance, so other settings can be solved.
+ */
+
+public class MarkovSolver {
+    // constants
+    public static final int DEFAULT_GOLD_CAP = 63;
+    private static final double EPSILON = 1e-10; // how little the win chances may change in the last sweep
+    private static final double TURNS_EPSILON = 1e-7; // the same for the expected turns
+    private static final double TIE = 1e-9; // how close to the best an action must be to count as best
+    private static final int MAX_SWEEPS = 100_000;
+    private static final int INNER_PASSES = 4; // passes over looking for trouble per sweep
+    private static final int EVALUATIONS = 4; // sweeps that only follow the chosen actions, per sweep that chooses them
+    private static final int TOWN_TREASURES = Treasure.values().length; // a new town holds each one equally often
+    private static final int TREASURES = Integer.bitCount(Treasure.ALL_TREASURES);
+    private static final int PLAYED_GAMES = 100_000; // games play() is checked with in the solve mode
+    private static final long DEFAULT_SEED = 20240101L;
+
+    // actions, with the item's cost in the bits above the type for buying
+    private static final int HUNT = 0;
+    private static final int DIG = 1;
+    private static final int TROUBLE = 2;
+    private static final int MOVE = 3;
+    private static final int BUY = 4;
+    private static final int SELL = 5;
+    private static final int TYPE_BITS = 3;
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    /**
+     * The arrays a sweep of one fiber works in, one set per thread, so a sweep allocates nothing.
+     */
+    private static class Scratch {
+        // instance variables
+        private final double[] others; // per gold, the value of the best action other than looking for trouble
+        private final double[] otherWins;
+        private final double[] otherWinTurns;
+        private final double[] troubleWins;
+        private final boolean[] troubleBest;
+        private final int[] other;
+        private double[] own; // the fiber's values, iterated over looking for trouble
+        private double[] ownWinTurns;
+        private final double[] ownSums;
+        private final double[] ownWinTurnSums;
+        private double[] ownNext;
+        private double[] ownNextWinTurns;
+
+        Scratch(int golds) {
+            others = new double[golds];
+            otherWins = new double[golds];
+            otherWinTurns = new double[golds];
+            troubleWins = new double[golds];
+            troubleBest = new boolean[golds];
+            other = new int[golds];
+            own = new double[golds];
+            ownWinTurns = new double[golds];
+            ownSums = new double[golds];
+            ownWinTurnSums = new double[golds];
+            ownNext = new double[golds];
+            ownNextWinTurns = new double[golds];
+        }
+    }
+
+    /**
+     * The solution for one difficulty.
+     */
+    public static class Result {
+        // instance variables
+        private final String difficulty;
+        private final double winProbability;
+        private final double expectedTurns;
+        private final double turnsPerWin;
+        private final long states;
+        private final int sweeps;
+        private final long nanos;
+
+        Result(String difficulty, double winProbability, double expectedTurns, double turnsPerWin,
+               long states, int sweeps, long nanos) {
+            this.difficulty = difficulty;
+            this.winProbability = winProbability;
+            this.expectedTurns = expectedTurns;
+            this.turnsPerWin = turnsPerWin;
+            this.states = states;
+            this.sweeps = sweeps;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return The chance of winning with the best play.
+         */
+        public double getWinProbability() {
+            return winProbability;
+        }
+
+        /**
+         * @return The expected number of turns of a game with the best play, won or lost.
+         */
+        public double getExpectedTurns() {
+            return expectedTurns;
+        }
+
+        /**
+         * @return The expected number of turns of a game that is won with the best play.
+         */
+        public double getTurnsPerWin() {
+            return turnsPerWin;
+        }
+
+        public String toString() {
+            return String.format("%-10s %10.6f%% %10.6f%% %10.3f %10.3f %,12d %8d %9.0f",
+                    difficulty, 100 * winProbability, 100 * Math.max(0, 1 - winProbability), expectedTurns, turnsPerWin,
+                    states, sweeps, nanos / 1e6);
+        }
+    }
+
+    // instance variables: the rules for the difficulty
+    private final String difficulty;
+    private final Balance balance;
+    private final int goldCap;
+    private final int golds;
+    private final boolean easy;
+    private final boolean samurai;
+    private final int startingGold;
+    private final double toughness;
+    private final double toughTownTrouble;
+    private final double townTrouble;
+    private final double easyBrawlBonus;
+    private final int maxBrawlGold;
+    private final double digChance; // Town.digForGold digs up gold on one roll in DIG_ODDS
+    private final int maxDugGold;
+    private final double breakChance;
+    private final int slots; // the items that can be bought in this mode; a kit has one bit per slot
+    private final int[] slotOf; // per item, or -1 if the shop won't sell it in this mode
+    private final int[] itemOf; // per slot
+    private final int[] buyCost;
+    private final int shovelBit;
+    private final int swordBit;
+    private final int terrains;
+    private final int[] neededBit; // per terrain, or 0 if it can't be crossed
+
+    // instance variables: the state space of one treasure count
+    private final int kits;
+    private final int fibers; // states with everything but the gold fixed
+    private final int size;
+    private final int[][] actions; // per fiber
+    private final int[][] targets; // per action, where the values it leads to start
+    private final int[][] amounts; // per action, the gold paid or got, or where a move with a broken item leads
+    private final int[][] envActions; // per action, the GameEnv action that takes it
+    private final double[] brawlChances; // per fiber, the chance of winning a fight
+
+    // values of the treasure counts already solved, at towns with nothing left to find
+    private final double[][] searchedWins = new double[TREASURES][];
+    private final double[][] searchedTurns = new double[TREASURES][];
+    private final double[][] searchedWinTurns = new double[TREASURES][];
+
+    // values of the treasure count being solved: win chance, expected turns, expected turns when won
+    private double[] wins;
+    private double[] turns;
+    private double[] winTurns;
+    private double[] nextWins;
+    private double[] nextTurns;
+    private double[] nextWinTurns;
+    private final double[] winSums; // running sums of each fiber over gold
+    private final double[] turnSums;
+    private final double[] winTurnSums;
+    private final double[] freshWins; // the value of walking into a new town, by kit and gold
+    private final double[] freshTurns;
+    private final double[] freshWinTurns;
+    private final byte[][] policies = new byte[TREASURES][]; // per treasure count, the chosen action in every state
+    private final byte[] chosen; // per state, the place in the fiber's list of the action that wins most often
+    private final double[] chosenWins; // per state, the win chance after the chosen action, which stays put while turns are iterated
+    private final int[] best; // per state, one bit for each of the fiber's actions that wins as often as any
+    private final ThreadLocal<Scratch> scratch;
+    private boolean choosing;
+    private int found;
+    private int sweeps;
+
+    /**
+     * @param difficulty e, n, h or s, as answered when the game asks.
+     * @param goldCap The most gold told apart; more counts as this much.
+     */
+    public MarkovSolver(String difficulty, int goldCap) {
+        this(difficulty, goldCap, Balance.DEFAULT);
+    }
+
+    /**
+     * @param difficulty e, n, h or s, as answered when the game asks.
+     * @param goldCap The most gold told apart; more counts as this much.
+     * @param balance The numbers the game is played with.
+     */
+    public MarkovSolver(String difficulty, int goldCap, Balance balance) {
+        this.difficulty = difficulty;
+        this.balance = balance;
+        this.goldCap = goldCap;
+        golds = goldCap + 1;
+        boolean hard = difficulty.equals("h");
+        easy = difficulty.equals("e");
+        samurai = difficulty.equals("s");
+        startingGold = Math.min(goldCap, balance.getInt(BalanceParameter.STARTING_GOLD)
+                + (easy ? balance.getInt(BalanceParameter.EASY_BONUS_GOLD) : 0));
+        toughness = balance.toughness(hard);
+        toughTownTrouble = balance.get(BalanceParameter.TOUGH_TOWN_TROUBLE);
+        townTrouble = balance.get(BalanceParameter.TOWN_TROUBLE);
+        easyBrawlBonus = balance.get(BalanceParameter.EASY_BRAWL_BONUS);
+        maxBrawlGold = balance.getInt(BalanceParameter.MAX_BRAWL_GOLD);
+        digChance = 1.0 / balance.getInt(BalanceParameter.DIG_ODDS);
+        maxDugGold = balance.getInt(BalanceParameter.MAX_DUG_GOLD);
+        breakChance = balance.get(BalanceParameter.BREAK_CHANCE);
+        double markdown = balance.markdown(hard, easy);
+        int kitSize = samurai ? Hunter.SAMURAI_KIT_SIZE : Hunter.KIT_SIZE;
+
+        // only the items the shop will sell in this mode get a slot
+        slotOf = new int[Catalog.itemCount()];
+        int slotCount = 0;
+        for (int id = 0; id < Catalog.itemCount(); id++) {
+            Item item = Catalog.item(id);
+            boolean canBuy = (samurai || !item.isSamuraiOnly()) && (item.getCost() > 0 || item == Catalog.SWORD);
+            slotOf[id] = canBuy ? slotCount++ : -1;
+        }
+        slots = slotCount;
+        buyCost = new int[slots];
+        itemOf = new int[slots];
+        for (int id = 0; id < Catalog.itemCount(); id++) {
+            if (slotOf[id] >= 0) {
+                Item item = Catalog.item(id);
+                buyCost[slotOf[id]] = item.getCost();
+                itemOf[slotOf[id]] = id;
+            }
+        }
+        shovelBit = bitOf(slotOf, Catalog.SHOVEL);
+        swordBit = bitOf(slotOf, Catalog.SWORD);
+        terrains = Catalog.terrainCount();
+        neededBit = new int[terrains];
+        for (int t = 0; t < terrains; t++) {
+            neededBit[t] = bitOf(slotOf, Catalog.terrain(t).getNeededItem());
+        }
+
+        kits = 1 << slots;
+        fibers = kits * terrains * 2 * 2 * 2;
+        size = fibers * golds;
+        actions = new int[fibers][];
+        targets = new int[fibers][];
+        amounts = new int[fibers][];
+        envActions = new int[fibers][];
+        brawlChances = new double[fibers];
+        for (int f = 0; f < fibers; f++) {
+            listActions(f, kitSize, markdown);
+        }
+        wins = new double[size];
+        turns = new double[size];
+        winTurns = new double[size];
+        nextWins = new double[size];
+        nextTurns = new double[size];
+        nextWinTurns = new double[size];
+        winSums = new double[size];
+        turnSums = new double[size];
+        winTurnSums = new double[size];
+        freshWins = new double[kits * golds];
+        freshTurns = new double[kits * golds];
+        freshWinTurns = new double[kits * golds];
+        chosen = new byte[size];
+        chosenWins = new double[size];
+        best = new int[size];
+        scratch = ThreadLocal.withInitial(() -> new Scratch(golds));
+    }
+
+    private static int bitOf(int[] slotOf, Item item) {
+        return slotOf[item.id()] < 0 ? 0 : 1 << slotOf[item.id()];
+    }
+
+    /**
+     * Lists the actions that can be taken in a fiber, whatever the gold, and where each one leads.
+     */
+    private void listActions(int f, int kitSize, double markdown) {
+        int[] list = new int[4 + slots];
+        int[] to = new int[list.length];
+        int[] amount = new int[list.length];
+        int[] envAction = new int[list.length];
+        int count = 0;
+        int kit = kitOf(f);
+        int terrain = terrainOf(f);
+        if (treasureOf(f) == 1) {
+            to[count] = searched(f) * golds;
+            envAction[count] = GameEnv.HUNT;
+            list[count++] = HUNT;
+        }
+        if ((kit & shovelBit) != 0 && dugOf(f) == 0) {
+            to[count] = (f | 1) * golds;
+            envAction[count] = GameEnv.DIG;
+            list[count++] = DIG;
+        }
+        to[count] = f * golds;
+        envAction[count] = GameEnv.TROUBLE;
+        list[count++] = TROUBLE;
+        int needed = neededBit[terrain];
+        if (needed != 0 && (kit & needed) != 0) {
+            if (samurai) {
+                // entering a town empties a samurai's kit
+                to[count] = 0;
+                amount[count] = 0;
+            } else {
+                to[count] = kit * golds;
+                amount[count] = (easy ? kit : kit & ~needed) * golds;
+            }
+            envAction[count] = GameEnv.MOVE;
+            list[count++] = MOVE;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            int bit = 1 << slot;
+            int cost = buyCost[slot];
+            int price = (int) (cost * markdown);
+            if ((kit & bit) == 0 && Integer.bitCount(kit) < kitSize) {
+                to[count] = fiber(kit | bit, terrain, treasureOf(f), toughOf(f), dugOf(f)) * golds;
+                amount[count] = (kit & swordBit) != 0 ? 0 : cost;
+                envAction[count] = GameEnv.BUY + itemOf[slot];
+                list[count++] = BUY | cost << TYPE_BITS;
+            } else if ((kit & bit) != 0 && price > 0) {
+                to[count] = fiber(kit & ~bit, terrain, treasureOf(f), toughOf(f), dugOf(f)) * golds;
+                amount[count] = price;
+                envAction[count] = GameEnv.SELL + itemOf[slot];
+                list[count++] = SELL;
+            }
+        }
+        actions[f] = Arrays.copyOf(list, count);
+        targets[f] = Arrays.copyOf(to, count);
+        amounts[f] = Arrays.copyOf(amount, count);
+        envActions[f] = Arrays.copyOf(envAction, count);
+        double chance = troubleChance(f);
+        if (samurai && (kit & swordBit) != 0) {
+            brawlChances[f] = 1;
+        } else {
+            brawlChances[f] = Math.min(1, Math.max(0, 1 - chance + (easy ? easyBrawlBonus : 0)));
+        }
+    }
+
+    /**
+     * Solves every treasure count, then reads off the value of the first town of a new game.
+     *
+     * @return The best play's chance of winning and expected turns.
+     */
+    public Result solve() {
+        long start = System.nanoTime();
+        for (found = TREASURES - 1; found >= 0; found--) {
+            solveWins();
+            solveTurns();
+            keepSearched();
+            policies[found] = chosen.clone();
+        }
+        // the game starts with no treasures and an empty kit in a new town
+        found = 0;
+        fresh(true);
+        double win = freshWins[startingGold];
+        return new Result(difficulty, win, freshTurns[startingGold],
+                win > 0 ? freshWinTurns[startingGold] / win : Double.NaN,
+                (long) size * TREASURES, sweeps, System.nanoTime() - start);
+    }
+
+    /**
+     * Plays the policy solve() found in a VectorEnv, where a move can lead back to a town the World
+     * still remembers, and counts how often it wins. Looking for trouble is played one turn at a
+     * time, and the policy picks it again until a fight changes the gold. The VectorEnv tells it
+     * the town's treasure, which the model knows too.
+     *
+     * @param games The number of games to play, one in each of the VectorEnv's games.
+     * @param seed The seed of the VectorEnv's run.
+     * @return The share of the games won.
+     * @throws IllegalStateException If solve() hasn't been called.
+     */
+    public double play(int games, long seed) {
+        if (policies[0] == null) {
+            throw new IllegalStateException("there is no policy to play until solve() has been called");
+        }
+        VectorEnv env = new VectorEnv(difficulty, games, balance);
+        int[] observations = env.reset(seed);
+        int[] choices = new int[games];
+        boolean[] ended = new boolean[games];
+        int left = games;
+        int won = 0;
+        while (left > 0) {
+            for (int g = 0; g < games; g++) {
+                // a game that has ended is started again by the VectorEnv, and is just left again
+                choices[g] = ended[g] ? GameEnv.EXIT : choose(observations, g * GameEnv.OBSERVATION_SIZE, env.getTownTreasure(g));
+            }
+            env.step(choices);
+            for (int g = 0; g < games; g++) {
+                if (!ended[g] && env.getDones()[g]) {
+                    ended[g] = true;
+                    left--;
+                    if (env.getRewards()[g] == GameEnv.WIN_REWARD) {
+                        won++;
+                    }
+                }
+            }
+        }
+        return (double) won / games;
+    }
+
+    /**
+     * @param at Where the game's observation starts.
+     * @param townTreasure The ordinal of the Treasure in the hunter's town.
+     * @return The GameEnv action the policy takes in the state observed.
+     */
+    private int choose(int[] observations, int at, int townTreasure) {
+        int kit = 0;
+        for (int items = observations[at + GameEnv.KIT]; items != 0; items &= items - 1) {
+            kit |= 1 << slotOf[Integer.numberOfTrailingZeros(items)];
+        }
+        int treasures = observations[at + GameEnv.TREASURES];
+        boolean treasureLeft = observations[at + GameEnv.SEARCHED] == 0 && townTreasure != Treasure.DUST.ordinal()
+                && (treasures & 1 << townTreasure) == 0;
+        int f = fiber(kit, observations[at + GameEnv.TERRAIN], treasureLeft ? 1 : 0,
+                observations[at + GameEnv.TOUGH], observations[at + GameEnv.DUG]);
+        int gold = Math.min(goldCap, observations[at + GameEnv.GOLD]);
+        return envActions[f][policies[Integer.bitCount(treasures)][f * golds + gold]];
+    }
+
+    /**
+     * Iterates the chance of winning with the best play until it settles.<p>
+     * This is modified policy iteration: one sweep in EVALUATIONS + 1 tries every action and
+     * chooses the best, and the sweeps in between only follow the chosen actions, which is much
+     * cheaper and converges just as surely, since the values start at zero and only go up.
+     */
+    private void solveWins() {
+        Arrays.fill(wins, 0);
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            sweeps++;
+            choosing = sweep % (EVALUATIONS + 1) == 0;
+            sums(wins, winSums);
+            fresh(false);
+            double change = IntStream.range(0, fibers).parallel().mapToDouble(this::sweepWins).max().orElse(0);
+            double[] swap = wins;
+            wins = nextWins;
+            nextWins = swap;
+            if (choosing && change < EPSILON) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * With the chances of winning settled, iterates the expected turns of the quickest of the best
+     * actions, choosing and following them the same way.
+     */
+    private void solveTurns() {
+        IntStream.range(0, fibers).parallel().forEach(this::findBest);
+        Arrays.fill(turns, 0);
+        Arrays.fill(winTurns, 0);
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            sweeps++;
+            choosing = sweep % (EVALUATIONS + 1) == 0;
+            sums(turns, turnSums);
+            sums(winTurns, winTurnSums);
+            fresh(true);
+            double change = IntStream.range(0, fibers).parallel().mapToDouble(this::sweepTurns).max().orElse(0);
+            double[] swap = turns;
+            turns = nextTurns;
+            nextTurns = swap;
+            swap = winTurns;
+            winTurns = nextWinTurns;
+            nextWinTurns = swap;
+            if (choosing && change < TURNS_EPSILON) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Keeps the values at towns with nothing left to find, which is all that lower counts look up.
+     */
+    private void keepSearched() {
+        searchedWins[found] = new double[size / 2];
+        searchedTurns[found] = new double[size / 2];
+        searchedWinTurns[found] = new double[size / 2];
+        for (int f = 0; f < fibers; f++) {
+            if (treasureOf(f) == 0) {
+                int to = searched(f) * golds;
+                System.arraycopy(wins, f * golds, searchedWins[found], to, golds);
+                System.arraycopy(turns, f * golds, searchedTurns[found], to, golds);
+                System.arraycopy(winTurns, f * golds, searchedWinTurns[found], to, golds);
+            }
+        }
+    }
+
+    /**
+     * Fills in running sums over gold within each fiber, so the sum over a range of gold is a subtraction.
+     */
+    private void sums(double[] values, double[] sums) {
+        IntStream.range(0, fibers).parallel().forEach(f -> sums(values, sums, f * golds));
+    }
+
+    private void sums(double[] values, double[] sums, int base) {
+        double sum = 0;
+        for (int i = base; i < base + golds; i++) {
+            sum += values[i];
+            sums[i] = sum;
+        }
+    }
+
+    /**
+     * Works out the value of walking into a new town with each kit and amount of gold: any terrain,
+     * any treasure and tough or not, with the chances the Town constructor gives them.
+     *
+     * @param counting true to work out the turns as well as the win chances.
+     */
+    private void fresh(boolean counting) {
+        double newTreasure = (double) (TREASURES - found) / TOWN_TREASURES;
+        IntStream.range(0, kits).parallel().forEach(kit -> {
+            for (int gold = 0; gold < golds; gold++) {
+                double win = 0;
+                double turn = 0;
+                double winTurn = 0;
+                for (int terrain = 0; terrain < terrains; terrain++) {
+                    for (int treasure = 0; treasure < 2; treasure++) {
+                        for (int tough = 0; tough < 2; tough++) {
+                            double p = (treasure == 1 ? newTreasure : 1 - newTreasure)
+                                    * (tough == 1 ? toughness : 1 - toughness) / terrains;
+                            int i = fiber(kit, terrain, treasure, tough, 0) * golds + gold;
+                            win += p * wins[i];
+                            if (counting) {
+                                turn += p * turns[i];
+                                winTurn += p * winTurns[i];
+                            }
+                        }
+                    }
+                }
+                freshWins[kit * golds + gold] = win;
+                freshTurns[kit * golds + gold] = turn;
+                freshWinTurns[kit * golds + gold] = winTurn;
+            }
+        });
+    }
+
+    /**
+     * Updates the chance of winning in every state of one fiber, choosing the best actions again
+     * if this is a choosing sweep.<p>
+     * Looking for trouble is the only action that stays in the fiber, so once the other actions
+     * are worked out from the last sweep it is iterated on its own a few times over, which moves
+     * gold up and down the fiber much faster than one step per sweep.
+     *
+     * @return The biggest change.
+     */
+    private double sweepWins(int f) {
+        int[] list = actions[f];
+        int base = f * golds;
+        int troubleAt = troubleAt(list);
+        Scratch s = scratch.get();
+        double[] others = s.others;
+        int[] other = s.other;
+        for (int gold = 0; gold < golds; gold++) {
+            double most = 0;
+            int mostAt = troubleAt;
+            if (choosing) {
+                for (int a = 0; a < list.length; a++) {
+                    if (a != troubleAt) {
+                        double value = after(f, a, gold, wins, winSums, freshWins, searchedWins, 1);
+                        if (value > most) {
+                            most = value;
+                            mostAt = a;
+                        }
+                    }
+                }
+            } else if (chosen[base + gold] != troubleAt) {
+                mostAt = chosen[base + gold];
+                most = after(f, mostAt, gold, wins, winSums, freshWins, searchedWins, 1);
+            }
+            others[gold] = most;
+            other[gold] = mostAt;
+        }
+        double[] own = s.own;
+        double[] ownSums = s.ownSums;
+        double[] ownNext = s.ownNext;
+        System.arraycopy(wins, base, own, 0, golds);
+        for (int pass = 0; pass < INNER_PASSES; pass++) {
+            sums(own, ownSums, 0);
+            for (int gold = 0; gold < golds; gold++) {
+                double trouble = choosing || chosen[base + gold] == troubleAt ? trouble(f, gold, own, ownSums, 0) : 0;
+                if (choosing && pass == INNER_PASSES - 1) {
+                    chosen[base + gold] = (byte) (trouble > others[gold] ? troubleAt : other[gold]);
+                }
+                ownNext[gold] = Math.max(others[gold], trouble);
+            }
+            double[] swap = own;
+            own = ownNext;
+            ownNext = swap;
+        }
+        s.own = own;
+        s.ownNext = ownNext;
+        double change = 0;
+        for (int gold = 0; gold < golds; gold++) {
+            nextWins[base + gold] = own[gold];
+            change = Math.max(change, Math.abs(own[gold] - wins[base + gold]));
+        }
+        return change;
+    }
+
+    /**
+     * Marks the actions in every state of one fiber that win as often as the best one.
+     */
+    private void findBest(int f) {
+        int[] list = actions[f];
+        for (int gold = 0; gold < golds; gold++) {
+            int i = f * golds + gold;
+            int mask = 0;
+            for (int a = 0; a < list.length; a++) {
+                if (after(f, a, gold, wins, winSums, freshWins, searchedWins, 1) >= wins[i] - TIE) {
+                    mask |= 1 << a;
+                }
+            }
+            best[i] = mask;
+        }
+    }
+
+    /**
+     * Updates the expected turns in every state of one fiber, taking the quickest of the best
+     * actions, with the same passes over looking for trouble as sweepWins.
+     *
+     * @return The biggest change.
+     */
+    private double sweepTurns(int f) {
+        int[] list = actions[f];
+        int base = f * golds;
+        Scratch s = scratch.get();
+        double[] others = s.others;
+        double[] otherWins = s.otherWins;
+        double[] otherWinTurns = s.otherWinTurns;
+        double[] troubleWins = s.troubleWins;
+        boolean[] troubleBest = s.troubleBest;
+        int[] other = s.other;
+        Arrays.fill(troubleBest, false);
+        Arrays.fill(other, 0);
+        double taken = 1 / troubleChance(f);
+        for (int gold = 0; gold < golds; gold++) {
+            int i = base + gold;
+            double quickest = Double.MAX_VALUE;
+            double quickestWinTurns = 0;
+            for (int a = 0; a < list.length; a++) {
+                if ((best[i] & (1 << a)) == 0 || !choosing && a != chosen[i]) {
+                    continue;
+                }
+                if (list[a] == TROUBLE) {
+                    troubleBest[gold] = true;
+                    troubleWins[gold] = choosing ? trouble(f, gold, wins, winSums, base) : chosenWins[i];
+                } else {
+                    double t = 1 + after(f, a, gold, turns, turnSums, freshTurns, searchedTurns, 0);
+                    if (t < quickest) {
+                        quickest = t;
+                        other[gold] = a;
+                        otherWins[gold] = choosing ? after(f, a, gold, wins, winSums, freshWins, searchedWins, 1) : chosenWins[i];
+                        // E[turns when won] = turns taken * P(win) + the same from where the action leads
+                        quickestWinTurns = otherWins[gold]
+                                + after(f, a, gold, winTurns, winTurnSums, freshWinTurns, searchedWinTurns, 0);
+                    }
+                }
+            }
+            others[gold] = quickest;
+            otherWinTurns[gold] = quickestWinTurns;
+        }
+        double[] own = s.own;
+        double[] ownWinTurns = s.ownWinTurns;
+        double[] ownSums = s.ownSums;
+        double[] ownWinTurnSums = s.ownWinTurnSums;
+        double[] ownNext = s.ownNext;
+        double[] ownNextWinTurns = s.ownNextWinTurns;
+        System.arraycopy(turns, base, own, 0, golds);
+        System.arraycopy(winTurns, base, ownWinTurns, 0, golds);
+        for (int pass = 0; pass < INNER_PASSES; pass++) {
+            sums(own, ownSums, 0);
+            sums(ownWinTurns, ownWinTurnSums, 0);
+            for (int gold = 0; gold < golds; gold++) {
+                double quickest = others[gold];
+                double quickestWinTurns = otherWinTurns[gold];
+                double quickestWins = otherWins[gold];
+                int quickestAt = other[gold];
+                if (troubleBest[gold]) {
+                    double t = taken + trouble(f, gold, own, ownSums, 0);
+                    if (t < quickest) {
+                        quickest = t;
+                        quickestWinTurns = taken * troubleWins[gold] + trouble(f, gold, ownWinTurns, ownWinTurnSums, 0);
+                        quickestWins = troubleWins[gold];
+                        quickestAt = troubleAt(list);
+                    }
+                }
+                if (choosing && pass == INNER_PASSES - 1) {
+                    chosen[base + gold] = (byte) quickestAt;
+                    chosenWins[base + gold] = quickestWins;
+                }
+                ownNext[gold] = quickest;
+                ownNextWinTurns[gold] = quickestWinTurns;
+            }
+            double[] swap = own;
+            own = ownNext;
+            ownNext = swap;
+            swap = ownWinTurns;
+            ownWinTurns = ownNextWinTurns;
+            ownNextWinTurns = swap;
+        }
+        s.own = own;
+        s.ownNext = ownNext;
+        s.ownWinTurns = ownWinTurns;
+        s.ownNextWinTurns = ownNextWinTurns;
+        double change = 0;
+        for (int gold = 0; gold < golds; gold++) {
+            nextTurns[base + gold] = own[gold];
+            nextWinTurns[base + gold] = ownWinTurns[gold];
+            change = Math.max(change, Math.abs(own[gold] - turns[base + gold]));
+        }
+        return change;
+    }
+
+    private static int troubleAt(int[] list) {
+        int a = 0;
+        while (list[a] != TROUBLE) {
+            a++;
+        }
+        return a;
+    }
+
+    private double troubleChance(int f) {
+        return toughOf(f) == 1 ? toughTownTrouble : townTrouble;
+    }
+
+    /**
+     * @param a The action's place in the fiber's list.
+     * @param values The win chances, expected turns or expected turns when won being iterated.
+     * @param sums Their running sums.
+     * @param fresh The value of a new town, from the same values.
+     * @param searched The same values for the treasure counts above this one.
+     * @param won The value of finding the last treasure.
+     * @return The expected value of where taking the action leads, or -1 if it can't be taken.
+     */
+    private double after(int f, int a, int gold, double[] values, double[] sums, double[] fresh,
+                         double[][] searched, double won) {
+        int action = actions[f][a];
+        int to = targets[f][a];
+        int type = action & TYPE_MASK;
+        if (type == HUNT) {
+            return found + 1 == TREASURES ? won : searched[found + 1][to + gold];
+        } else if (type == DIG) {
+            return (1 - digChance) * values[to + gold] + digChance * up(values, sums, to, gold, maxDugGold);
+        } else if (type == TROUBLE) {
+            return trouble(f, gold, values, sums, to);
+        } else if (type == MOVE) {
+            return (1 - breakChance) * fresh[to + gold] + breakChance * fresh[amounts[f][a] + gold];
+        } else if (type == BUY) {
+            if (gold < action >>> TYPE_BITS) {
+                return -1;
+            }
+            return values[to + gold - amounts[f][a]];
+        } else {
+            return values[to + Math.min(goldCap, gold + amounts[f][a])];
+        }
+    }
+
+    /**
+     * @param base Where the fiber's values start in values and sums.
+     * @return The expected value after the fight that looking for trouble ends in.
+     */
+    private double trouble(int f, int gold, double[] values, double[] sums, int base) {
+        double winChance = brawlChances[f];
+        double up = up(values, sums, base, gold, maxBrawlGold);
+        if (winChance == 1) {
+            return up;
+        }
+        return winChance * up + (1 - winChance) * down(values, sums, base, gold, maxBrawlGold);
+    }
+
+    /**
+     * @return The average value after gaining 1 to most gold, with gold past the cap counted as the cap.
+     */
+    private double up(double[] values, double[] sums, int base, int gold, int most) {
+        int top = Math.min(goldCap, gold + most);
+        double sum = sums[base + top] - sums[base + gold] + (gold + most - top) * values[base + goldCap];
+        return sum / most;
+    }
+
+    /**
+     * @return The average value after losing 1 to most gold, where going below zero loses the game.
+     */
+    private double down(double[] values, double[] sums, int base, int gold, int most) {
+        if (gold == 0) {
+            return 0;
+        }
+        int bottom = Math.max(0, gold - most);
+        double sum = sums[base + gold - 1] - (bottom > 0 ? sums[base + bottom - 1] : 0);
+        return sum / most;
+    }
+
+    // a fiber number is kit, terrain, treasure left (0 or 1), tough (0 or 1) and dug (0 or 1), in that order
+    private int fiber(int kit, int terrain, int treasure, int tough, int dug) {
+        return (((kit * terrains + terrain) * 2 + treasure) * 2 + tough) * 2 + dug;
+    }
+
+    // the same fiber with nothing left to find, numbered among those fibers only
+    private int searched(int f) {
+        return ((f >> 3) << 2) | (f & 3);
+    }
+
+    private int dugOf(int f) {
+        return f & 1;
+    }
+
+    private int toughOf(int f) {
+        return (f >> 1) & 1;
+    }
+
+    private int treasureOf(int f) {
+        return (f >> 2) & 1;
+    }
+
+    private int terrainOf(int f) {
+        return (f >> 3) % terrains;
+    }
+
+    private int kitOf(int f) {
+        return (f >> 3) / terrains;
+    }
+
+    /**
+     * Solves every difficulty and prints the best play's approximate chances and turns, then plays
+     * the policy in PLAYED_GAMES games of a VectorEnv and prints how often it won there and how far
+     * that is from the chance solved for.
+     *
+     * @param args Optionally the gold cap (default 63), then the difficulties to solve (default enhs).
+     */
+    public static void main(String[] args) {
+        int goldCap = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GOLD_CAP;
+        System.out.println("best play, approximated with gold above " + goldCap + " counted as " + goldCap
+                + " and no town visited twice, then played in " + PLAYED_GAMES + " games where towns are revisited:");
+        System.out.println(String.format("%-10s %11s %11s %10s %10s %12s %8s %9s %11s %10s",
+                "difficulty", "win", "loss", "turns", "turns/win", "states", "sweeps", "ms", "played win", "gap"));
+        String difficulties = args.length > 1 ? args[1] : "enhs";
+        for (String difficulty : difficulties.split("")) {
+            MarkovSolver solver = new MarkovSolver(difficulty, goldCap);
+            Result result = solver.solve();
+            double played = solver.play(PLAYED_GAMES, DEFAULT_SEED);
+            System.out.println(result + String.format(" %10.3f%% %+9.3f%%",
+                    100 * played, 100 * (result.getWinProbability() - played)));
+        }
+    }
+}
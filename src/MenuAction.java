@@ -0,0 +1,77 @@
+import java.util.function.Consumer;
+
+/**
+ * The options on the main menu, by the letter the player types for each one, and what each one does.<p>
+ * TreasureHunter.processChoice looks the letter up in a table indexed by character and runs the
+ * option's handler, instead of comparing the choice against every letter in turn.
+ */
+
+public enum MenuAction {
+    BUY("b", game -> game.getCurrentTown().enterShop("b")),
+    SELL("s", game -> game.getCurrentTown().enterShop("s")),
+    EXPLORE("e", game -> game.getCurrentTown().getTerrain().infoString(game.window)),
+    MOVE("m", TreasureHunter::move),
+    TROUBLE("l", TreasureHunter::lookForTrouble),
+    DIG("d", game -> game.getCurrentTown().digForGold(game.getHunter())),
+    HUNT("h", game -> game.getCurrentTown().searchTreasure()),
+    EXIT("x", TreasureHunter::exit),
+    INVALID("", TreasureHunter::invalidChoice);
+
+    // constants
+    private static final MenuAction[] BY_KEY = new MenuAction[128];
+
+    static {
+        for (MenuAction action : values()) {
+            if (!action.key.isEmpty()) {
+                BY_KEY[action.key.charAt(0)] = action;
+            }
+        }
+    }
+
+    // instance variables
+    private final String key;
+    private final String metricName;
+    private final Consumer<TreasureHunter> handler;
+
+    MenuAction(String key, Consumer<TreasureHunter> handler) {
+        this.key = key;
+        this.handler = handler;
+        metricName = name().toLowerCase();
+    }
+
+    /**
+     * Carries out this option.
+     *
+     * @param game The game it was chosen in.
+     */
+    public void perform(TreasureHunter game) {
+        handler.accept(game);
+    }
+
+    /**
+     * @return The letter the player types for this option.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The name this option is reported under in Metrics.
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+
+    /**
+     * @param choice What the player typed at the menu.
+     * @return The option chosen, or INVALID if there is no such option.
+     */
+    public static MenuAction fromChoice(String choice) {
+        if (choice.length() != 1) {
+            return INVALID;
+        }
+        char c = choice.charAt(0);
+        MenuAction action = c < BY_KEY.length ? BY_KEY[c] : null;
+        return action == null ? INVALID : action;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * A message the game shows often, split once into its pieces so that showing it builds no new text.<p>
+ * The pattern is plain text with a slot marked {s} wherever a name goes and {n} wherever a number
+ * goes. Each piece of the pattern that isn't empty, text or slot, is given its own color, in order:
+ * "It'll cost you {n} gold.\n" has three pieces, so it is made with three colors.<p>
+ * Writing the message hands each piece to the RenderSink as it is, and the number to
+ * addNumberToWindow, so a sink that isn't rendering never formats anything.
+ */
+
+public class MessageTemplate {
+    // constants
+    private static final String TEXT_SLOT = "{s}";
+    private static final String NUMBER_SLOT = "{n}";
+
+    // instance variables
+    private final String[] pieces; // the text of each piece, or null for a slot
+    private final boolean[] numbers; // true for a number slot
+    private final TextColor[] colors;
+
+    /**
+     * @param pattern The message, with {s} where a name goes and {n} where a number goes.
+     * @param colors One color for each piece of the message that isn't empty, in order.
+     * @throws IllegalArgumentException If there isn't exactly one color for each piece.
+     */
+    public MessageTemplate(String pattern, TextColor... colors) {
+        int count = 0;
+        String[] found = new String[pattern.length()];
+        boolean[] slots = new boolean[pattern.length()];
+        int start = 0;
+        int i = 0;
+        while (i < pattern.length()) {
+            boolean text = pattern.startsWith(TEXT_SLOT, i);
+            boolean number = pattern.startsWith(NUMBER_SLOT, i);
+            if (text || number) {
+                if (i > start) {
+                    found[count++] = pattern.substring(start, i);
+                }
+                slots[count++] = number;
+                i += TEXT_SLOT.length();
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (i > start) {
+            found[count++] = pattern.substring(start, i);
+        }
+        if (colors.length != count) {
+            throw new IllegalArgumentException("\"" + pattern + "\" has " + count + " pieces but " + colors.length + " colors");
+        }
+        pieces = new String[count];
+        numbers = new boolean[count];
+        System.arraycopy(found, 0, pieces, 0, count);
+        System.arraycopy(slots, 0, numbers, 0, count);
+        this.colors = colors.clone();
+    }
+
+    /**
+     * Writes a message without slots.
+     */
+    public void write(RenderSink window) {
+        write(window, null, null, 0);
+    }
+
+    /**
+     * Writes a message with one {s} slot.
+     */
+    public void write(RenderSink window, String text) {
+        write(window, text, null, 0);
+    }
+
+    /**
+     * Writes a message with one {n} slot.
+     */
+    public void write(RenderSink window, int number) {
+        write(window, null, null, number);
+    }
+
+    /**
+     * Writes a message with two {s} slots, filled in order.
+     */
+    public void write(RenderSink window, String first, String second) {
+        write(window, first, second, 0);
+    }
+
+    /**
+     * Writes a message with one {s} slot and one {n} slot.
+     */
+    public void write(RenderSink window, String text, int number) {
+        write(window, text, null, number);
+    }
+
+    /**
+     * @return The message as it is shown, with the slots left as {s} and {n}.
+     */
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] != null) {
+                str.append(pieces[i]);
+            } else if (numbers[i]) {
+                str.append(NUMBER_SLOT);
+            } else {
+                str.append(TEXT_SLOT);
+            }
+        }
+        return str.toString();
+    }
+
+    private void write(RenderSink window, String first, String second, int number) {
+        boolean usedFirst = false;
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] != null) {
+                window.addTextToWindow(pieces[i], colors[i]);
+            } else if (numbers[i]) {
+                window.addNumberToWindow(number, colors[i]);
+            } else if (!usedFirst) {
+                window.addTextToWindow(first, colors[i]);
+                usedFirst = true;
+            } else {
+                window.addTextToWindow(second, colors[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what happens in every game played in this process: how many of each menu action were
+ * taken and how long they took, the gold won and lost, the items bought and sold, and the games
+ * won and lost.<p>
+ * Recording only ever increments LongAdders, which spread contended updates over several cells,
+ * so games on many threads can record at once without allocating or waiting on each other.
+ * Every action is counted, but only about one in LATENCY_SAMPLE is timed, since reading the clock
+ * twice can cost more than the action itself. Which ones is drawn at random rather than taken
+ * from the game, so a player who repeats a few actions in turn doesn't have one of them timed
+ * every time and the others never.
+ * serve() makes the numbers available in the Prometheus text format on a local HTTP endpoint.
+ */
+
+public class Metrics {
+    // constants
+    public static final int LATENCY_SAMPLE = 8; // a power of two
+    public static final long NOT_TIMED = Long.MIN_VALUE; // what actionStarted() gives for an action it won't time
+    private static final MenuAction[] ACTIONS = MenuAction.values();
+
+    // static variables
+    private static final LongAdder[] ACTION_COUNTS = new LongAdder[ACTIONS.length];
+    private static final LatencyHistogram[] ACTION_LATENCIES = new LatencyHistogram[ACTIONS.length];
+    private static final LongAdder GOLD_GAINED = new LongAdder();
+    private static final LongAdder GOLD_LOST = new LongAdder();
+    private static final LongAdder ITEMS_BOUGHT = new LongAdder();
+    private static final LongAdder GOLD_SPENT = new LongAdder();
+    private static final LongAdder ITEMS_SOLD = new LongAdder();
+    private static final LongAdder GOLD_EARNED = new LongAdder();
+    private static final LongAdder GAMES_WON = new LongAdder();
+    private static final LongAdder GAMES_LOST = new LongAdder();
+
+    static {
+        for (int i = 0; i < ACTIONS.length; i++) {
+            ACTION_COUNTS[i] = new LongAdder();
+            ACTION_LATENCIES[i] = new LatencyHistogram();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Called just before an action is processed, and paired with actionEnded() just after.
+     *
+     * @return The time the action started, about once in LATENCY_SAMPLE calls, or else NOT_TIMED.
+     */
+    public static long actionStarted() {
+        boolean timed = (ThreadLocalRandom.current().nextInt() & (LATENCY_SAMPLE - 1)) == 0;
+        return timed ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Counts an action, and records how long it took if it was timed.
+     *
+     * @param action The menu action taken.
+     * @param started What actionStarted() gave before it was processed.
+     */
+    public static void actionEnded(MenuAction action, long started) {
+        ACTION_COUNTS[action.ordinal()].increment();
+        if (started != NOT_TIMED) {
+            ACTION_LATENCIES[action.ordinal()].record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * @param modifier The gold a hunter gained, or lost if negative.
+     */
+    public static void goldChanged(int modifier) {
+        if (modifier > 0) {
+            GOLD_GAINED.add(modifier);
+        } else if (modifier < 0) {
+            GOLD_LOST.add(-modifier);
+        }
+    }
+
+    /**
+     * @param cost The gold paid for an item bought from a shop.
+     */
+    public static void itemBought(int cost) {
+        ITEMS_BOUGHT.increment();
+        GOLD_SPENT.add(cost);
+    }
+
+    /**
+     * @param price The gold paid for an item sold to a shop.
+     */
+    public static void itemSold(int price) {
+        ITEMS_SOLD.increment();
+        GOLD_EARNED.add(price);
+    }
+
+    public static void gameWon() {
+        GAMES_WON.increment();
+    }
+
+    public static void gameLost() {
+        GAMES_LOST.increment();
+    }
+
+    /**
+     * @param action A menu action.
+     * @return The number of times it has been taken.
+     */
+    public static long getActionCount(MenuAction action) {
+        return ACTION_COUNTS[action.ordinal()].sum();
+    }
+
+    /**
+     * @return Every metric, in the Prometheus text format.
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(32 * 1024);
+        out.append("# TYPE treasure_hunter_actions_total counter\n");
+        for (MenuAction action : ACTIONS) {
+            out.append("treasure_hunter_actions_total{action=\"").append(action.getMetricName()).append("\"} ")
+                    .append(ACTION_COUNTS[action.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP treasure_hunter_action_seconds About one in ").append(LATENCY_SAMPLE).append(" actions, timed\n");
+        out.append("# TYPE treasure_hunter_action_seconds histogram\n");
+        for (MenuAction action : ACTIONS) {
+            ACTION_LATENCIES[action.ordinal()].writeTo(out, "treasure_hunter_action_seconds",
+                    "action=\"" + action.getMetricName() + "\"");
+        }
+        counter(out, "treasure_hunter_gold_gained_total", GOLD_GAINED);
+        counter(out, "treasure_hunter_gold_lost_total", GOLD_LOST);
+        counter(out, "treasure_hunter_items_bought_total", ITEMS_BOUGHT);
+        counter(out, "treasure_hunter_gold_spent_total", GOLD_SPENT);
+        counter(out, "treasure_hunter_items_sold_total", ITEMS_SOLD);
+        counter(out, "treasure_hunter_gold_earned_total", GOLD_EARNED);
+        counter(out, "treasure_hunter_games_won_total", GAMES_WON);
+        counter(out, "treasure_hunter_games_lost_total", GAMES_LOST);
+        return out.toString();
+    }
+
+    /**
+     * Serves scrape() at /metrics on the loopback address only.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @return The running server; stop it when the process is done.
+     * @throws IOException If the port can't be bound.
+     */
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void counter(StringBuilder out, String name, LongAdder value) {
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value.sum()).append('\n');
+    }
+}
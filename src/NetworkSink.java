@@ -0,0 +1,113 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A RenderSink that sends the game to a remote player's terminal, with the same ANSI colors as a TerminalSink.<p>
+ * Text is encoded straight into direct buffers borrowed from the server's BufferPool, and flush(), which
+ * the game calls before every question, hands the whole turn to the ClientConnection to go out in one
+ * gathering write. The buffers go back to the pool once they are sent, so between turns the sink holds
+ * nothing but its connection.
+ */
+
+public class NetworkSink implements RenderSink {
+    // constants
+    private static final int INITIAL_BUFFERS = 4;
+
+    // instance variables
+    private final ClientConnection connection;
+    private final BufferPool pool;
+    private ByteBuffer[] buffers = new ByteBuffer[INITIAL_BUFFERS];
+    private int count;
+    private TextColor currentColor;
+
+    /**
+     * @param connection Where each turn's text is sent.
+     * @param pool Where the buffers the text is encoded into come from.
+     */
+    public NetworkSink(ClientConnection connection, BufferPool pool) {
+        this.connection = connection;
+        this.pool = pool;
+    }
+
+    public void addTextToWindow(String text, TextColor color) {
+        if (color != currentColor) {
+            append(TerminalSink.codeFor(color));
+            currentColor = color;
+        }
+        append(text);
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            pool.release(buffers[i]);
+            buffers[i] = null;
+        }
+        count = 0;
+        currentColor = null;
+        append(TerminalSink.CLEAR_SCREEN);
+    }
+
+    /**
+     * Sends everything written since the last flush in one go.
+     */
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        if (currentColor != null) {
+            append(TerminalSink.RESET);
+            currentColor = null;
+        }
+        connection.send(buffers, count);
+        for (int i = 0; i < count; i++) {
+            buffers[i] = null;
+        }
+        count = 0;
+    }
+
+    private void append(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ByteBuffer buffer = room();
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Encodes the text into the buffers; the game's own text is all ASCII, so only a name
+     * typed by the player ever needs a real encoder.
+     */
+    private void append(String text) {
+        int textLength = text.length();
+        ByteBuffer buffer = room();
+        for (int i = 0; i < textLength; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                append(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                buffer = room();
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    /**
+     * @return The buffer being filled, or a new one from the pool if it is full.
+     */
+    private ByteBuffer room() {
+        if (count > 0 && buffers[count - 1].hasRemaining()) {
+            return buffers[count - 1];
+        }
+        if (count == buffers.length) {
+            ByteBuffer[] more = new ByteBuffer[count * 2];
+            System.arraycopy(buffers, 0, more, 0, count);
+            buffers = more;
+        }
+        buffers[count] = pool.acquire();
+        return buffers[count++];
+    }
+}
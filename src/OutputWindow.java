@@ -1,17 +1,52 @@
 import java.awt.Color;
+import java.util.EnumMap;
+import java.util.Map;
 import javax.swing.JFrame;
 import javax.swing.JTextPane;
-import javax.swing.text.Style;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
+import javax.swing.text.StyleContext;
 import javax.swing.text.StyledDocument;
 
-public class OutputWindow {
+/**
+ * The window the game is played in.<p>
+ * The window keeps a Screen of what it is showing, and the text and clears it is given only change
+ * that model; flush() then brings the document up to date region by region. A region whose text is
+ * the same as before is not touched at all, and in one that changed only the text after the last
+ * fragment still the same is removed and inserted again, so a turn where only the gold changed edits
+ * a few characters of the status line instead of clearing the pane and laying out every line again.<p>
+ * With a scrollback limit the Screen keeps only the latest text: once there are more characters than
+ * the limit between clears, the oldest fragments are dropped a chunk at a time, so the document, and
+ * the work of laying it out, never grows past the limit.<p>
+ * Each color's text attributes are made once, the first time the color is used, and shared by every
+ * insert in that color afterwards; the attribute sets come from the StyleContext, so they can't change.<p>
+ * Like any Swing component it must only be made and used on the Event Dispatch Thread; the game
+ * writes to it through an AsyncWindow.
+ */
+
+public class OutputWindow implements RenderSink {
+    // constants
+    public static final int UNBOUNDED = Screen.UNBOUNDED;
+    public static final int DEFAULT_SCROLLBACK = 20_000; // characters
+    private static final int FONT_SIZE = 25;
 
     private StyledDocument doc;
-    private Style style;
     private JTextPane textPane;
+    private final AttributeSet base;
+    private final Map<TextColor, AttributeSet> attributes = new EnumMap<>(TextColor.class);
+    private final Screen screen;
 
     public OutputWindow() {
+        this(UNBOUNDED);
+    }
+
+    /**
+     * @param scrollback The most characters kept in the window, or UNBOUNDED to keep everything until cleared.
+     */
+    public OutputWindow(int scrollback) {
+        screen = new Screen(scrollback);
         JFrame frame = new JFrame("Test");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // causes program to end when window is X'd out
         frame.setSize(500, 800); // window size
@@ -19,20 +54,68 @@ public class OutputWindow {
         textPane = new JTextPane(); // panel that can handle custom text
         textPane.setEditable(false); // prevents user from typing into window
         doc = textPane.getStyledDocument(); // call getter method for panel's style doc
-        style = doc.addStyle("my style", null); // add a custom style to the doc
-        StyleConstants.setFontSize(style, 25); // apply font size to custom style
+        base = StyleContext.getDefaultStyleContext().addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.FontSize, FONT_SIZE);
         frame.add(textPane); // add the panel to the frame
         frame.setVisible(true); // display the frame on screen
     }
 
-    public void addTextToWindow(String text, Color color) {
-        StyleConstants.setForeground(style, color); // apply color to custom style
-        try {
-            doc.insertString(doc.getLength(), text, style); } // insert text at end the panel
-        catch (Exception e) { }
+    public void addTextToWindow(String text, TextColor color) {
+        screen.add(text, color);
+    }
+
+    public void addNumberToWindow(int number, TextColor color) {
+        screen.addNumber(number, color);
     }
 
     public void clear() {
-        textPane.setText("");  // set panel's text to empty string to "reset it"
+        screen.clear();
+    }
+
+    public void startRegion(ScreenRegion region) {
+        screen.startRegion(region);
+    }
+
+    /**
+     * Brings the document up to date with the Screen, touching only the text that changed.
+     */
+    public void flush() {
+        int offset = 0;
+        try {
+            for (int region = 0; region < Screen.regionCount(); region++) {
+                if (screen.isChanged(region)) {
+                    int unchanged = screen.getUnchanged(region);
+                    int at = offset + screen.getLength(region, unchanged);
+                    int stale = offset + screen.getShownLength(region) - at;
+                    if (stale > 0) {
+                        doc.remove(at, stale);
+                    }
+                    for (int i = unchanged; i < screen.getCount(region); i++) {
+                        String text = screen.getText(region, i);
+                        if (text == null) {
+                            text = String.valueOf(screen.getNumber(region, i));
+                        }
+                        doc.insertString(at, text, attributesFor(screen.getColor(region, i)));
+                        at += text.length();
+                    }
+                }
+                offset += screen.getLength(region);
+            }
+        } catch (BadLocationException e) {
+            // the document only ever holds what the screen showed, so this can't happen
+            throw new IllegalStateException(e);
+        }
+        screen.show();
+    }
+
+    /**
+     * @return The attributes text in this color is shown with, made the first time the color is used.
+     */
+    private AttributeSet attributesFor(TextColor color) {
+        AttributeSet set = attributes.get(color);
+        if (set == null) {
+            set = StyleContext.getDefaultStyleContext().addAttribute(base, StyleConstants.Foreground, new Color(color.getRgb()));
+            attributes.put(color, set);
+        }
+        return set;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+/**
+ * A Player answers the questions the game asks.<p>
+ * The game used to read every answer straight from the keyboard; it now asks a Player instead,
+ * so the same game can be driven by a person at the keyboard or by a strategy in a simulation.
+ */
+
+public interface Player {
+
+    /**
+     * Answers a question asked by the game.
+     *
+     * @param prompt The question being asked.
+     * @param hunter The hunter being played, or null before the hunter has been created.
+     * @param town The town the hunter is in, or null before the first town has been entered.
+     * @return The line of input the game should act on.
+     */
+    String respond(Prompt prompt, Hunter hunter, Town town);
+}
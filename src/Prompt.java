@@ -0,0 +1,14 @@
+/**
+ * The questions the Treasure Hunter game can ask a player.<p>
+ * Every line of input the game reads is tagged with one of these so that a
+ * Player can answer it without parsing the text that was printed.
+ */
+
+public enum Prompt {
+    NAME,       // "What's your name, Hunter?"
+    DIFFICULTY, // "Easy, Normal, or Hard mode? (e/n/h)"
+    MENU,       // "What's your next move?"
+    BUY_ITEM,   // "What're you lookin' to buy?"
+    SELL_ITEM,  // "What're you lookin' to sell?"
+    CONFIRM     // "Buy it (y/n)?" and "Sell it (y/n)?"
+}
@@ -0,0 +1,166 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A queue of render commands passed from one thread that writes text to one thread that shows it.<p>
+ * The commands sit in a ring of slots, and the two threads only share the count of commands added
+ * and the count taken, each written by one side alone, so neither ever takes a lock. A command is
+ * colored text or a colored number to append, a clear, or the start of a ScreenRegion.<p>
+ * When the consumer drains the queue it skips straight past everything before the last clear in
+ * the batch, since that text would be wiped before anyone saw it.
+ */
+
+public class RenderQueue {
+    // constants
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int SPINS = 100; // times a full queue is checked before the producer starts sleeping
+    private static final long PARK_NANOS = 100_000;
+    private static final byte TEXT = 0;
+    private static final byte NUMBER = 1;
+    private static final byte CLEAR = 2;
+    private static final byte REGION = 3;
+    private static final ScreenRegion[] REGIONS = ScreenRegion.values();
+
+    // instance variables
+    private final byte[] kinds;
+    private final String[] texts;
+    private final int[] values; // the number, or the region's ordinal
+    private final TextColor[] colors;
+    private final int mask;
+    private final AtomicLong added = new AtomicLong(); // only written by the producer
+    private final AtomicLong taken = new AtomicLong(); // only written by the consumer
+    private long takenCache; // the producer's last look at taken
+
+    /**
+     * @param capacity The most commands waiting at once; rounded up to a power of two.
+     */
+    public RenderQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        kinds = new byte[size];
+        texts = new String[size];
+        values = new int[size];
+        colors = new TextColor[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds text to the end of the queue. Only called by the producer.
+     *
+     * @param text The text to append.
+     * @param color The color to show it in.
+     * @param whenFull Run, once, if the queue is full, so the caller can get the consumer going;
+     *                 the producer then waits for room.
+     */
+    public void addText(String text, TextColor color, Runnable whenFull) {
+        add(TEXT, text, 0, color, whenFull);
+    }
+
+    /**
+     * Adds a number to the end of the queue. Only called by the producer.
+     *
+     * @param number The number to append.
+     * @param color The color to show it in.
+     * @param whenFull As for addText.
+     */
+    public void addNumber(int number, TextColor color, Runnable whenFull) {
+        add(NUMBER, null, number, color, whenFull);
+    }
+
+    /**
+     * Adds a clear to the end of the queue. Only called by the producer.
+     *
+     * @param whenFull As for addText.
+     */
+    public void addClear(Runnable whenFull) {
+        add(CLEAR, null, 0, null, whenFull);
+    }
+
+    /**
+     * Adds the start of a region to the end of the queue. Only called by the producer.
+     *
+     * @param region The region the text after it belongs to.
+     * @param whenFull As for addText.
+     */
+    public void addRegion(ScreenRegion region, Runnable whenFull) {
+        add(REGION, null, region.ordinal(), null, whenFull);
+    }
+
+    private void add(byte kind, String text, int value, TextColor color, Runnable whenFull) {
+        long slot = waitForRoom(whenFull);
+        int index = (int) slot & mask;
+        kinds[index] = kind;
+        texts[index] = text;
+        values[index] = value;
+        colors[index] = color;
+        added.lazySet(slot + 1);
+    }
+
+    /**
+     * Applies every command waiting to a sink. Only called by the consumer.
+     *
+     * @param sink Where the commands are carried out.
+     * @return The number of commands taken off the queue.
+     */
+    public int drainTo(RenderSink sink) {
+        long first = taken.get();
+        long end = added.get();
+        long start = first;
+        for (long slot = end - 1; slot >= first; slot--) {
+            if (kinds[(int) slot & mask] == CLEAR) {
+                start = slot;
+                break;
+            }
+        }
+        for (long slot = start; slot < end; slot++) {
+            int index = (int) slot & mask;
+            byte kind = kinds[index];
+            if (kind == TEXT) {
+                sink.addTextToWindow(texts[index], colors[index]);
+            } else if (kind == NUMBER) {
+                sink.addNumberToWindow(values[index], colors[index]);
+            } else if (kind == CLEAR) {
+                sink.clear();
+            } else {
+                sink.startRegion(REGIONS[values[index]]);
+            }
+        }
+        for (long slot = first; slot < end; slot++) {
+            texts[(int) slot & mask] = null;
+            colors[(int) slot & mask] = null;
+        }
+        taken.lazySet(end);
+        return (int) (end - first);
+    }
+
+    /**
+     * @return The number of commands waiting, as seen from either thread.
+     */
+    public int size() {
+        return (int) (added.get() - taken.get());
+    }
+
+    /**
+     * @return The next slot to fill, once there is room for it.
+     */
+    private long waitForRoom(Runnable whenFull) {
+        long slot = added.get();
+        if (slot - takenCache < texts.length) {
+            return slot;
+        }
+        takenCache = taken.get();
+        if (slot - takenCache < texts.length) {
+            return slot;
+        }
+        whenFull.run();
+        int spins = 0;
+        while (slot - (takenCache = taken.get()) >= texts.length) {
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * A RenderSink is where the game writes its text.<p>
+ * The game classes only ever talk to this interface, so the same game can be shown in a
+ * Swing OutputWindow (through an AsyncWindow), in a terminal with a TerminalSink, or not at all with a CountingSink.
+ */
+
+public interface RenderSink {
+
+    /**
+     * Adds a fragment of text to the end of what is being shown.
+     *
+     * @param text The text to add.
+     * @param color The color to show the text in.
+     */
+    void addTextToWindow(String text, TextColor color);
+
+    /**
+     * Adds a number to the end of what is being shown.<p>
+     * Callers use this instead of concatenating numbers into their text, so that
+     * a sink that throws text away never has to format the number.
+     *
+     * @param number The number to add.
+     * @param color The color to show the number in.
+     */
+    default void addNumberToWindow(int number, TextColor color) {
+        addTextToWindow(String.valueOf(number), color);
+    }
+
+    /**
+     * Removes everything that is being shown.
+     */
+    void clear();
+
+    /**
+     * Says which part of the screen the text written next belongs to, until the next clear(),
+     * which starts again at ScreenRegion.EVENTS. A sink that keeps a Screen can then redraw only
+     * the regions that changed; other sinks ignore it.
+     *
+     * @param region The region being written.
+     */
+    default void startRegion(ScreenRegion region) {
+    }
+
+    /**
+     * Sends everything written so far to the screen. The game calls this before every question
+     * it asks, so a sink that collects a turn's text can show it all at once, or show only what
+     * changed since the last flush.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Callers check this before building text that is only used for display.
+     *
+     * @return false if everything written to this sink is thrown away.
+     */
+    default boolean isRendering() {
+        return true;
+    }
+}
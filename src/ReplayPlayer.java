@@ -0,0 +1,70 @@
+/**
+ * A Player that gives the answers recorded in a journal, in the order they were recorded.<p>
+ * Once the recorded answers run out it hands over to another player, so a recovered session can
+ * carry on live; replaying into a game with the session's seed puts the game back exactly where it was.
+ */
+
+public class ReplayPlayer implements Player {
+    // instance variables
+    private final JournaledSession session;
+    private final Player next;
+    private int position;
+
+    /**
+     * @param session The recorded session to replay.
+     * @param next Answers everything after the recorded answers, or null to stop the game there.
+     */
+    public ReplayPlayer(JournaledSession session, Player next) {
+        this.session = session;
+        this.next = next;
+    }
+
+    /**
+     * @return true while there are recorded answers left.
+     */
+    public boolean isReplaying() {
+        return position < session.size();
+    }
+
+    public String respond(Prompt prompt, Hunter hunter, Town town) {
+        if (position < session.size()) {
+            if (session.getPrompt(position) != prompt) {
+                throw new IllegalStateException("session " + session.getId() + " asked " + prompt
+                        + " where the journal recorded " + session.getPrompt(position));
+            }
+            return session.getInput(position++);
+        }
+        if (next == null) {
+            throw new EndOfJournalException();
+        }
+        return next.respond(prompt, hunter, town);
+    }
+
+    /**
+     * Rebuilds a session's game by replaying its journal, stopping after the last recorded answer.
+     *
+     * @param session The recorded session.
+     * @return The game, in the state it was in when its last answer was recorded.
+     */
+    public static TreasureHunter rebuild(JournaledSession session) {
+        TreasureHunter game = new TreasureHunter(new ReplayPlayer(session, null), new CountingSink(), session.getSeed());
+        try {
+            game.play();
+        } catch (EndOfJournalException e) {
+            // the game is waiting for an answer the journal never recorded
+        }
+        return game;
+    }
+
+    /**
+     * Stops a rebuilt game when it asks for more answers than were recorded.
+     * It carries no stack trace, since it is thrown once per rebuilt session.
+     */
+    private static class EndOfJournalException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        EndOfJournalException() {
+            super("end of journal", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * A retained model of what the game is showing, so a sink can update the screen instead of redrawing it.<p>
+ * The text since the last clear() is kept as colored fragments in the ScreenRegions, next to the
+ * fragments that were on screen at the last show(). A sink compares the two region by region: a
+ * region whose fragments are all the same is left alone, and in a region that changed only the
+ * fragments after the last one still the same need redrawing, so when only the hunter's gold
+ * changes just the end of the status line is touched.<p>
+ * Numbers are kept as numbers, so comparing and keeping them never makes a String. Fragments are
+ * kept in arrays reused from turn to turn, so a screen that has grown to the size of a turn
+ * allocates nothing more.
+ */
+
+public class Screen {
+    // constants
+    public static final int UNBOUNDED = 0;
+    private static final ScreenRegion[] REGIONS = ScreenRegion.values();
+    private static final int INITIAL_FRAGMENTS = 16;
+
+    // instance variables
+    private final Region[] regions = new Region[REGIONS.length];
+    private final Region[] shown = new Region[REGIONS.length];
+    private final int limit;
+    private int current; // the region being written
+    private int length; // characters in every region
+    private boolean everShown;
+
+    /**
+     * @param limit The most characters kept between clears, or UNBOUNDED. When there are more,
+     *              the oldest fragments are dropped, a quarter of the limit at a time.
+     */
+    public Screen(int limit) {
+        this.limit = limit;
+        for (int i = 0; i < REGIONS.length; i++) {
+            regions[i] = new Region();
+            shown[i] = new Region();
+        }
+    }
+
+    /**
+     * @return The number of regions, which are numbered by ScreenRegion.ordinal().
+     */
+    public static int regionCount() {
+        return REGIONS.length;
+    }
+
+    public void add(String text, TextColor color) {
+        if (text.isEmpty()) {
+            return;
+        }
+        regions[current].add(text, 0, color);
+        length += text.length();
+        trim();
+    }
+
+    public void addNumber(int number, TextColor color) {
+        regions[current].add(null, number, color);
+        length += digits(number);
+        trim();
+    }
+
+    /**
+     * Starts a new screen: every region is emptied and writing starts again in EVENTS.
+     */
+    public void clear() {
+        for (Region region : regions) {
+            region.count = 0;
+            region.length = 0;
+        }
+        current = 0;
+        length = 0;
+    }
+
+    /**
+     * @param region The region the text added next belongs to.
+     */
+    public void startRegion(ScreenRegion region) {
+        current = region.ordinal();
+    }
+
+    /**
+     * Remembers the screen as it is now as what is being shown.
+     */
+    public void show() {
+        for (int i = 0; i < REGIONS.length; i++) {
+            shown[i].copy(regions[i]);
+        }
+        everShown = true;
+    }
+
+    /**
+     * @return false until the first show().
+     */
+    public boolean isEverShown() {
+        return everShown;
+    }
+
+    /**
+     * @param region A region number.
+     * @return true if the region's fragments differ from the ones being shown.
+     */
+    public boolean isChanged(int region) {
+        Region now = regions[region];
+        return now.count != shown[region].count || getUnchanged(region) < now.count;
+    }
+
+    /**
+     * @param region A region number.
+     * @return The number of fragments at the start of the region that are the same as the ones being shown.
+     */
+    public int getUnchanged(int region) {
+        Region now = regions[region];
+        Region then = shown[region];
+        int count = Math.min(now.count, then.count);
+        for (int i = 0; i < count; i++) {
+            if (!now.same(i, then)) {
+                return i;
+            }
+        }
+        return count;
+    }
+
+    public int getCount(int region) {
+        return regions[region].count;
+    }
+
+    public int getShownCount(int region) {
+        return shown[region].count;
+    }
+
+    /**
+     * @param region A region number.
+     * @param fragment A fragment in the region.
+     * @return The fragment's text, or null if the fragment is a number.
+     */
+    public String getText(int region, int fragment) {
+        return regions[region].texts[fragment];
+    }
+
+    public int getNumber(int region, int fragment) {
+        return regions[region].numbers[fragment];
+    }
+
+    public TextColor getColor(int region, int fragment) {
+        return regions[region].colors[fragment];
+    }
+
+    /**
+     * @param region A region number.
+     * @return The characters in the region.
+     */
+    public int getLength(int region) {
+        return regions[region].length;
+    }
+
+    /**
+     * @param region A region number.
+     * @return The characters in the region as it is being shown.
+     */
+    public int getShownLength(int region) {
+        return shown[region].length;
+    }
+
+    /**
+     * @param region A region number.
+     * @param fragments A number of fragments at the start of the region.
+     * @return The characters in those fragments.
+     */
+    public int getLength(int region, int fragments) {
+        Region now = regions[region];
+        int total = 0;
+        for (int i = 0; i < fragments; i++) {
+            total += now.length(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param number A number.
+     * @return The number of characters it is written with.
+     */
+    public static int digits(int number) {
+        if (number == Integer.MIN_VALUE) {
+            return 11;
+        }
+        int digits = number < 0 ? 2 : 1;
+        for (int rest = Math.abs(number); rest >= 10; rest /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Drops the oldest fragments once there are more characters than the limit.
+     */
+    private void trim() {
+        if (limit == UNBOUNDED || length <= limit) {
+            return;
+        }
+        int target = limit - limit / 4;
+        for (Region region : regions) {
+            int drop = 0;
+            while (drop < region.count && length > target && length > region.length(drop)) {
+                length -= region.length(drop);
+                drop++;
+            }
+            region.dropFirst(drop);
+            if (length <= target) {
+                return;
+            }
+            if (region.count > 0) {
+                // the one fragment left is longer than the limit, so only its tail is kept
+                int cut = length - limit;
+                if (cut > 0) {
+                    String text = region.texts[0] == null ? String.valueOf(region.numbers[0]) : region.texts[0];
+                    region.texts[0] = text.substring(cut);
+                    region.length -= cut;
+                    length -= cut;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * The fragments of one region.
+     */
+    private static final class Region {
+        private String[] texts = new String[INITIAL_FRAGMENTS]; // null for a number
+        private int[] numbers = new int[INITIAL_FRAGMENTS];
+        private TextColor[] colors = new TextColor[INITIAL_FRAGMENTS];
+        private int count;
+        private int length;
+
+        private void add(String text, int number, TextColor color) {
+            if (count == texts.length) {
+                grow(count * 2);
+            }
+            texts[count] = text;
+            numbers[count] = number;
+            colors[count] = color;
+            count++;
+            length += text == null ? digits(number) : text.length();
+        }
+
+        private int length(int fragment) {
+            return texts[fragment] == null ? digits(numbers[fragment]) : texts[fragment].length();
+        }
+
+        private boolean same(int fragment, Region other) {
+            String text = texts[fragment];
+            String otherText = other.texts[fragment];
+            if (text == null || otherText == null) {
+                if (text != otherText || numbers[fragment] != other.numbers[fragment]) {
+                    return false;
+                }
+            } else if (text != otherText && !text.equals(otherText)) {
+                return false;
+            }
+            return colors[fragment] == other.colors[fragment];
+        }
+
+        private void copy(Region other) {
+            if (texts.length < other.count) {
+                grow(other.texts.length);
+            }
+            System.arraycopy(other.texts, 0, texts, 0, other.count);
+            System.arraycopy(other.numbers, 0, numbers, 0, other.count);
+            System.arraycopy(other.colors, 0, colors, 0, other.count);
+            for (int i = other.count; i < count; i++) {
+                texts[i] = null;
+                colors[i] = null;
+            }
+            count = other.count;
+            length = other.length;
+        }
+
+        private void dropFirst(int drop) {
+            if (drop == 0) {
+                return;
+            }
+            int dropped = 0;
+            for (int i = 0; i < drop; i++) {
+                dropped += length(i);
+            }
+            System.arraycopy(texts, drop, texts, 0, count - drop);
+            System.arraycopy(numbers, drop, numbers, 0, count - drop);
+            System.arraycopy(colors, drop, colors, 0, count - drop);
+            for (int i = count - drop; i < count; i++) {
+                texts[i] = null;
+                colors[i] = null;
+            }
+            count -= drop;
+            length -= dropped;
+        }
+
+        private void grow(int size) {
+            String[] moreTexts = new String[size];
+            int[] moreNumbers = new int[size];
+            TextColor[] moreColors = new TextColor[size];
+            System.arraycopy(texts, 0, moreTexts, 0, count);
+            System.arraycopy(numbers, 0, moreNumbers, 0, count);
+            System.arraycopy(colors, 0, moreColors, 0, count);
+            texts = moreTexts;
+            numbers = moreNumbers;
+            colors = moreColors;
+        }
+    }
+}
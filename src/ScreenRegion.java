@@ -0,0 +1,14 @@
+/**
+ * The parts of the screen the game draws each turn, in the order they appear.<p>
+ * After every clear() the game writes into EVENTS, then marks the start of each later part with
+ * RenderSink.startRegion(), so a sink that remembers what it is showing can redraw only the parts
+ * whose text changed.
+ */
+
+public enum ScreenRegion {
+    EVENTS,  // what the last choice did, and every question asked before the menu
+    NEWS,    // the town's latest news
+    STATUS,  // the hunter's gold, kit and treasures
+    TERRAIN, // the terrain around the town
+    MENU     // the menu and "What's your next move?"
+}
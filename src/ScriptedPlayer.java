@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A player that reads its answers from a command script, one answer per line: the hunter's name,
+ * the difficulty, then menu choices, item names for the shop and y/n confirmations, in the order
+ * the game asks for them.<p>
+ * Lines starting with # are skipped. A blank line is an answer, as when a player just presses
+ * enter, so it is kept. A line "seed N" before the first answer sets
+ * the seed the game is played from. When the script runs out the player gives up the hunt, and
+ * the script is reported as exhausted.
+ */
+
+public class ScriptedPlayer implements Player {
+    // constants
+    private static final String SEED = "seed ";
+
+    // instance variables
+    private final List<String> answers;
+    private final long seed;
+    private int next;
+    private boolean exhausted;
+
+    /**
+     * @param answers The answers, in order.
+     * @param seed The seed the script's game is played from.
+     */
+    public ScriptedPlayer(List<String> answers, long seed) {
+        this.answers = answers;
+        this.seed = seed;
+    }
+
+    /**
+     * Reads a script file.
+     *
+     * @param path The script.
+     * @param defaultSeed The seed to use if the script doesn't set one.
+     * @return A player that gives the script's answers.
+     * @throws IOException If the file can't be read.
+     * @throws IllegalArgumentException If the seed line is not a number.
+     */
+    public static ScriptedPlayer load(Path path, long defaultSeed) throws IOException {
+        List<String> answers = new ArrayList<>();
+        long seed = defaultSeed;
+        for (String line : Files.readAllLines(path)) {
+            String answer = line.trim();
+            if (answer.startsWith("#")) {
+                continue;
+            }
+            if (answers.isEmpty() && answer.startsWith(SEED)) {
+                try {
+                    seed = Long.parseLong(answer.substring(SEED.length()).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(path + ": bad seed line: " + line, e);
+                }
+            } else {
+                answers.add(answer);
+            }
+        }
+        return new ScriptedPlayer(answers, seed);
+    }
+
+    public String respond(Prompt prompt, Hunter hunter, Town town) {
+        if (next < answers.size()) {
+            return answers.get(next++);
+        }
+        exhausted = true;
+        if (prompt == Prompt.MENU) {
+            return MenuAction.EXIT.getKey();
+        }
+        return "n";
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return true if the game asked for more answers than the script had.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return The number of answers given so far.
+     */
+    public int getAnswersUsed() {
+        return next;
+    }
+}
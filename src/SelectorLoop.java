@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * One of a GameServer's selector threads, which watches its share of the connections.<p>
+ * The thread reads every line its players send, finishes writes their sockets couldn't take at
+ * once, and, on the first loop, accepts new players. It never runs a game itself: each line is
+ * handed to the player's Session and the thread goes straight back to the selector, so one thread
+ * can look after tens of thousands of connections. It reads into one direct buffer of its own and
+ * handles ready keys through a callback, so a pass through the loop allocates nothing.
+ */
+
+public class SelectorLoop implements Runnable {
+    // instance variables
+    private final GameServer server;
+    private final Selector selector;
+    private final ByteBuffer readBuffer;
+    private final ConcurrentLinkedQueue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+    private final Consumer<SelectionKey> handler = this::handle;
+    private volatile boolean running = true;
+
+    /**
+     * Loops are created by the GameServer.
+     *
+     * @param server The server the loop belongs to.
+     * @param readBuffer The direct buffer every read on this loop goes through.
+     */
+    SelectorLoop(GameServer server, ByteBuffer readBuffer) throws IOException {
+        this.server = server;
+        this.readBuffer = readBuffer;
+        selector = Selector.open();
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Hands a newly accepted socket to this loop, which starts its game on its own thread.
+     *
+     * @param channel The player's socket, already non-blocking.
+     */
+    void add(SocketChannel channel) {
+        added.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the loop and closes every connection on it.
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public void run() {
+        try {
+            while (running) {
+                selector.select(handler);
+                SocketChannel channel;
+                while ((channel = added.poll()) != null) {
+                    server.open(channel, selector);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof ClientConnection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // nothing is left to watch
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            server.accept();
+            return;
+        }
+        ClientConnection connection = (ClientConnection) key.attachment();
+        if (key.isWritable()) {
+            connection.writePending();
+        }
+        if (key.isValid() && key.isReadable()) {
+            connection.read(readBuffer, server.getInputs());
+        }
+    }
+}
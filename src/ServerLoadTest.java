@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads a GameServer on localhost the way a crowd of players would.<p>
+ * It connects many players, who each give a name and pick normal mode and then sit idle at the
+ * menu, and reports what the idle connections cost the server. Then every player explores over
+ * and over for a while, sending the next line as soon as the menu comes back, and it reports how
+ * many turns a second the server played and how long each one took. The players all run on one
+ * client thread in the same process, so on a small machine the numbers include the client's own work.
+ */
+
+public class ServerLoadTest {
+    // constants
+    private static final int DEFAULT_CONNECTIONS = 5_000;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final long SEED = 20240101L;
+    private static final byte[] PROMPT = "move?".getBytes(StandardCharsets.US_ASCII); // the end of the menu
+    private static final byte[] EXPLORE = "e\n".getBytes(StandardCharsets.US_ASCII);
+
+    // instance variables
+    private final SocketChannel[] channels;
+    private final int[] matched; // how much of PROMPT each player has seen in a row
+    private final long[] sentAt;
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(1 << 16);
+    private final ByteBuffer explore = ByteBuffer.allocateDirect(EXPLORE.length);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private int atMenu;
+    private long turns;
+    private boolean playing;
+
+    private ServerLoadTest(int connections) throws IOException {
+        channels = new SocketChannel[connections];
+        matched = new int[connections];
+        sentAt = new long[connections];
+        selector = Selector.open();
+        explore.put(EXPLORE).flip();
+    }
+
+    /**
+     * Connects every player, who each answer the name and difficulty questions at once.
+     */
+    private void connect(InetSocketAddress address) throws IOException {
+        for (int i = 0; i < channels.length; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, i);
+            channel.write(ByteBuffer.wrap(("hunter" + i + "\nn\n").getBytes(StandardCharsets.US_ASCII)));
+            channels[i] = channel;
+            if (i % 256 == 255) {
+                selector.selectNow(this::handle);
+            }
+        }
+        while (atMenu < channels.length) {
+            selector.select(this::handle);
+        }
+    }
+
+    /**
+     * Has every player explore again each time the menu comes back, until the time is up.
+     */
+    private double play(int seconds) throws IOException {
+        playing = true;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        for (int i = 0; i < channels.length; i++) {
+            explore(i);
+        }
+        while (System.nanoTime() < end) {
+            selector.select(this::handle, 100);
+        }
+        playing = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long stopped = turns;
+        while (atMenu < channels.length) { // let the last turns come back
+            selector.select(this::handle, 100);
+        }
+        turns = stopped;
+        return elapsed;
+    }
+
+    private void explore(int i) {
+        try {
+            explore.rewind();
+            channels[i].write(explore);
+        } catch (IOException e) {
+            throw new IllegalStateException("player " + i + " was disconnected", e);
+        }
+        sentAt[i] = System.nanoTime();
+        atMenu--;
+    }
+
+    private void handle(SelectionKey key) {
+        int i = (Integer) key.attachment();
+        readBuffer.clear();
+        int read;
+        try {
+            read = channels[i].read(readBuffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            throw new IllegalStateException("player " + i + " was disconnected");
+        }
+        int seen = matched[i];
+        for (int b = 0; b < read; b++) {
+            byte next = readBuffer.get(b);
+            seen = next == PROMPT[seen] ? seen + 1 : (next == PROMPT[0] ? 1 : 0);
+            if (seen == PROMPT.length) {
+                seen = 0;
+                atMenu++;
+                if (playing) {
+                    latency.record(System.nanoTime() - sentAt[i]);
+                    turns++;
+                    explore(i);
+                }
+            }
+        }
+        matched[i] = seen;
+    }
+
+    private void close() throws IOException {
+        for (SocketChannel channel : channels) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        selector.close();
+    }
+
+    /**
+     * @return The time under which the given share of the recorded turns took, to the nearest power of two.
+     */
+    private double percentileMillis(double share) {
+        long total = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            total += latency.getCount(i);
+        }
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            cumulative += latency.getCount(i);
+            if (cumulative >= total * share) {
+                return (1L << i) / 1e6;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Runs the load test against a server started in this process.
+     *
+     * @param args Optionally: the number of players, how many seconds they play for, and the number
+     *             of the server's selector threads.
+     */
+    public static void main(String[] args) throws IOException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTIONS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int selectorThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        Runtime runtime = Runtime.getRuntime();
+        try (GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                selectorThreads, SEED)) {
+            ServerLoadTest test = new ServerLoadTest(connections);
+            try {
+                long start = System.nanoTime();
+                test.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+                System.out.println(String.format("%d players connected and waiting at the menu after %.0f ms, %d failed accepts",
+                        server.getConnections(), (System.nanoTime() - start) / 1e6, server.getAcceptFailures()));
+                System.gc();
+                System.out.println(String.format("platform threads: %d, heap used: %d MB, direct buffers: %d of %d bytes",
+                        ManagementFactory.getThreadMXBean().getThreadCount(),
+                        (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+                        server.getPool().getAllocated(), server.getPool().getBufferSize()));
+
+                long linesBefore = server.getLinesRead();
+                double elapsed = test.play(seconds);
+                System.out.println(String.format("%d turns in %.1f s: %.0f turns/s, %d lines read by the server",
+                        test.turns, elapsed, test.turns / elapsed, server.getLinesRead() - linesBefore));
+                System.out.println(String.format("turn latency: median under %.3f ms, 99%% under %.3f ms",
+                        test.percentileMillis(0.5), test.percentileMillis(0.99)));
+                System.out.println(String.format("direct buffers allocated: %d, free in the pool: %d",
+                        server.getPool().getAllocated(), server.getPool().getFree()));
+            } finally {
+                test.close();
+            }
+        }
+    }
+}
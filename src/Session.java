@@ -0,0 +1,157 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * One player's game hosted by a SessionEngine.<p>
+ * The session is the game's Player: each question the game asks is answered with the next
+ * line sent to the session, and the game's text goes to the session's own RenderSink.
+ * While it waits for a line the game's virtual thread is parked, so it holds no platform thread.<p>
+ * If the engine has a Journal, every answer is recorded in it before the game acts on it, and a
+ * session recovered from the journal replays its recorded answers before it reads new ones.
+ */
+
+public class Session implements Player {
+    // constants
+    private static final int MAX_QUEUED = 64; // lines sent ahead of the game before more are refused
+
+    // instance variables
+    private final long id;
+    private final long seed;
+    private final RenderSink output;
+    private final SessionEngine engine;
+    private final Journal journal;
+    private final JournaledSession recovered;
+    private final Runnable whenFinished;
+    private final BlockingQueue<String> input = new LinkedBlockingQueue<>(MAX_QUEUED);
+    private volatile Thread thread;
+    private volatile TreasureHunter game;
+    private volatile Prompt waitingFor;
+    private volatile boolean finished;
+
+    /**
+     * Sessions are created by SessionEngine.open().
+     *
+     * @param id The session's id in its engine.
+     * @param seed The seed the session's game is played from.
+     * @param output Where the session's game writes its text.
+     * @param engine The engine hosting the session.
+     * @param journal Where the session's answers are recorded, or null to not record them.
+     * @param recovered The journaled session being recovered, or null for a new session.
+     * @param whenFinished Run on the session's thread once its game has ended, or null.
+     */
+    Session(long id, long seed, RenderSink output, SessionEngine engine, Journal journal, JournaledSession recovered,
+            Runnable whenFinished) {
+        this.id = id;
+        this.seed = seed;
+        this.output = output;
+        this.engine = engine;
+        this.journal = journal;
+        this.recovered = recovered;
+        this.whenFinished = whenFinished;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The session's game, or null if it hasn't started yet.
+     */
+    public TreasureHunter getGame() {
+        return game;
+    }
+
+    /**
+     * @return The question the game is waiting to have answered, or null if it is busy or finished.
+     */
+    public Prompt getWaitingFor() {
+        return waitingFor;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Sends a line of input to the session. Lines are queued, so a line can be sent
+     * before the game asks for it, but only so many can wait at once.
+     *
+     * @param line The line of input.
+     * @return false if too many lines are already waiting, in which case the line is dropped.
+     */
+    public boolean send(String line) {
+        return input.offer(line);
+    }
+
+    /**
+     * Ends the session. If its game is waiting for input it stops straight away.
+     */
+    public void close() {
+        Thread running = thread;
+        if (running != null) {
+            running.interrupt();
+        }
+    }
+
+    /**
+     * Waits for the session's game to end.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void join() throws InterruptedException {
+        Thread running = thread;
+        if (running != null) {
+            running.join();
+        }
+    }
+
+    public String respond(Prompt prompt, Hunter hunter, Town town) {
+        waitingFor = prompt;
+        try {
+            return input.take();
+        } catch (InterruptedException e) {
+            throw new SessionClosedException(id);
+        } finally {
+            waitingFor = null;
+        }
+    }
+
+    /**
+     * Starts the session's game on its own virtual thread.
+     */
+    void start() {
+        thread = Thread.ofVirtual().name("session-" + id).start(this::run);
+    }
+
+    private void run() {
+        try {
+            Player player = this;
+            if (recovered != null) {
+                player = new ReplayPlayer(recovered, player);
+            }
+            if (journal != null) {
+                if (recovered == null) {
+                    journal.start(id, seed);
+                }
+                player = new JournalingPlayer(player, journal, id, recovered == null ? 0 : recovered.size());
+            }
+            game = new TreasureHunter(player, output, seed);
+            game.play();
+            if (journal != null) {
+                journal.end(id);
+            }
+        } catch (SessionClosedException e) {
+            // the session was closed while waiting for input; nothing left to do
+        } finally {
+            finished = true;
+            engine.remove(this);
+            if (whenFinished != null) {
+                whenFinished.run();
+            }
+        }
+    }
+}
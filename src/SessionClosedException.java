@@ -0,0 +1,13 @@
+/**
+ * Thrown inside a session's game when the session is closed while the game is waiting for input,
+ * so that the game unwinds and its virtual thread ends.
+ */
+
+public class SessionClosedException extends RuntimeException {
+    // constants
+    private static final long serialVersionUID = 1L;
+
+    public SessionClosedException(long sessionId) {
+        super("session " + sessionId + " was closed");
+    }
+}
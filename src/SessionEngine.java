@@ -0,0 +1,172 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SessionEngine hosts many games of Treasure Hunter in one process.<p>
+ * Every Session runs its game loop on its own virtual thread, with its own input queue and
+ * its own RenderSink, so sessions never share a Scanner or a window. A session that is waiting
+ * for its player to type something is parked and costs no platform thread, which lets one
+ * JVM hold tens of thousands of idle sessions.<p>
+ * An engine given a Journal records every session in it, and recover() brings back a session
+ * from the journal, with the same id, after the process has died.
+ */
+
+public class SessionEngine implements AutoCloseable {
+    // constants
+    private static final int DEFAULT_SESSIONS = 10_000;
+
+    // instance variables
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Journal journal;
+
+    /**
+     * Creates an engine whose sessions are not journaled.
+     */
+    public SessionEngine() {
+        this(null);
+    }
+
+    /**
+     * Creates an engine that records its sessions. New sessions are numbered after every session
+     * already in the journal, so a new game never takes the id of one that can still be recovered.
+     *
+     * @param journal Where every session's seed and answers are recorded, or null to not record them.
+     */
+    public SessionEngine(Journal journal) {
+        this.journal = journal;
+        if (journal != null) {
+            nextId.set(journal.getHighestSessionId());
+        }
+    }
+
+    /**
+     * Starts a new game.
+     *
+     * @param output Where the game writes its text.
+     * @param seed The seed the game is played from.
+     * @return The new session; its game is already waiting for the player's name.
+     */
+    public Session open(RenderSink output, long seed) {
+        return open(output, seed, null);
+    }
+
+    /**
+     * Starts a new game and says when it is over.
+     *
+     * @param output Where the game writes its text.
+     * @param seed The seed the game is played from.
+     * @param whenFinished Run once the game has ended, for any reason, or null.
+     * @return The new session; its game is already waiting for the player's name.
+     */
+    public Session open(RenderSink output, long seed, Runnable whenFinished) {
+        Session session = new Session(nextId.incrementAndGet(), seed, output, this, journal, null, whenFinished);
+        sessions.put(session.getId(), session);
+        session.start();
+        return session;
+    }
+
+    /**
+     * Brings back a session that was running when the process died. Its recorded answers are
+     * replayed into a game with its seed, which then waits for its player's next answer.
+     *
+     * @param recorded The session as read from the journal by Journal.read().
+     * @param output Where the game writes its text.
+     * @return The recovered session, with the same id it had before.
+     */
+    public Session recover(JournaledSession recorded, RenderSink output) {
+        nextId.accumulateAndGet(recorded.getId(), Math::max);
+        Session session = new Session(recorded.getId(), recorded.getSeed(), output, this, journal, recorded, null);
+        sessions.put(session.getId(), session);
+        session.start();
+        return session;
+    }
+
+    /**
+     * @param id The id of a session.
+     * @return The session, or null if it has finished or never existed.
+     */
+    public Session get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * @return The number of sessions whose games are still running.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Called by a session when its game ends.
+     */
+    void remove(Session session) {
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * Closes every session and waits for their games to stop.
+     */
+    public void close() {
+        List<Session> open = new ArrayList<>(sessions.values());
+        for (Session session : open) {
+            session.close();
+        }
+        for (Session session : open) {
+            try {
+                session.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Opens many idle sessions, reports what they cost, then plays one turn in each and closes them.
+     *
+     * @param args Optionally, the number of sessions to open.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int count = DEFAULT_SESSIONS;
+        if (args.length > 0) {
+            count = Integer.parseInt(args[0]);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        try (SessionEngine engine = new SessionEngine()) {
+            long start = System.nanoTime();
+            List<Session> opened = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Session session = engine.open(new CountingSink(), GameRandom.seedForGame(0, i));
+                session.send("hunter" + i);
+                session.send("n");
+                opened.add(session);
+            }
+            for (Session session : opened) {
+                while (session.getWaitingFor() != Prompt.MENU) {
+                    Thread.sleep(1);
+                }
+            }
+            long opening = System.nanoTime() - start;
+            System.gc();
+            System.out.println(String.format("%d sessions waiting at the menu after %.0f ms", engine.size(), opening / 1e6));
+            System.out.println(String.format("platform threads: %d, heap used: %d MB",
+                    ManagementFactory.getThreadMXBean().getThreadCount(),
+                    (runtime.totalMemory() - runtime.freeMemory()) >> 20));
+
+            start = System.nanoTime();
+            for (Session session : opened) {
+                session.send("h");
+                session.send("x");
+            }
+            for (Session session : opened) {
+                session.join();
+            }
+            System.out.println(String.format("played and exited every session in %.0f ms, %d still open",
+                    (System.nanoTime() - start) / 1e6, engine.size()));
+        }
+    }
+}
@@ -1,39 +1,35 @@
-import java.awt.*;
-import java.util.Scanner;
-
 /**
- * The Shop class controls the cost of the items in the Treasure Hunt game. <p>
+ * The Shop class controls the cost of the items in the Treasure Hunt game; the prices come from the Catalog. <p>
  * The Shop class also acts as a go between for the Hunter's buyItem() method. <p>
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Shop {
     // constants
-    private static final int WATER_COST = 2;
-    private static final int ROPE_COST = 4;
-    private static final int MACHETE_COST = 6;
-    private static final int HORSE_COST = 12;
-    private static final int BOAT_COST = 20;
-    private static final int BOOTS_COST = 8;
-    private static final int SHOVEL_COST = 8;
-    private static final int SWORD_COST = 0;
+    private static final MessageTemplate COST = new MessageTemplate("It'll cost you {n} gold.\n", TextColor.BLACK, TextColor.YELLOW, TextColor.YELLOW);
+    private static final MessageTemplate BUY_BACK = new MessageTemplate("It'll get you {n} gold.\n", TextColor.BLACK, TextColor.YELLOW, TextColor.YELLOW);
+    private static final MessageTemplate BOUGHT = new MessageTemplate("Ye' got yerself a {s}. \nCome again soon.\n",
+            TextColor.BLACK, TextColor.MAGENTA, TextColor.BLACK);
 
     // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
+    private static final String[] INVENTORIES = new String[2]; // the price lists without and with the samurai's items, built when first shown
 
     // instance variables
     private double markdown;
     private Hunter customer;
     private boolean samurai;
-    private OutputWindow window;
+    private Player player;
+    private RenderSink window;
 
     /**
      * The Shop constructor takes in a markdown value and leaves customer null until one enters the shop.
      *
      * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param player Answers the shopkeeper's questions.
      */
-    public Shop(double markdown, OutputWindow window) {
+    public Shop(double markdown, Player player, RenderSink window) {
         this.window = window;
+        this.player = player;
         this.markdown = markdown;
         customer = null; // customer is set in the enter method
     }
@@ -47,80 +43,107 @@ public class Shop {
      *
      * @param hunter the Hunter entering the shop
      * @param buyOrSell String that determines if hunter is "B"uying or "S"elling
+     * @param town the Town the shop is in
      * @return a String to be used for printing in the latest news
      */
-    public String enter(Hunter hunter, String buyOrSell) {
+    public String enter(Hunter hunter, String buyOrSell, Town town) {
         customer = hunter;
-        if (buyOrSell.equals("b")) {
-            String print = "";
-            print += ("Welcome to the shop! We have the finest wares in town.");
-            print += ("Currently we have the following items:");
-            window.addTextToWindow(print + "\n", Color.black);
-            window.addTextToWindow(inventory(), Color.black);
-            window.addTextToWindow("What're you lookin' to buy? \n", Color.black);
-            String item = SCANNER.nextLine().toLowerCase();
+        if (MenuAction.fromChoice(buyOrSell) == MenuAction.BUY) {
+            buy(hunter, town);
+        } else {
+            sell(hunter, town);
+        }
+        window.addTextToWindow("You left the shop", TextColor.BLACK);
+        return "";
+    }
+
+    /**
+     * Asks what the hunter wants to buy, and sells it to them if they agree to the price.
+     */
+    private void buy(Hunter hunter, Town town) {
+        window.addTextToWindow("Welcome to the shop! We have the finest wares in town.", TextColor.BLACK);
+        window.addTextToWindow("Currently we have the following items:\n", TextColor.BLACK);
+        if (window.isRendering()) {
+            window.addTextToWindow(inventory(), TextColor.BLACK);
+        }
+        window.addTextToWindow("What're you lookin' to buy? \n", TextColor.BLACK);
+        window.flush();
+        Item item = Item.fromName(player.respond(Prompt.BUY_ITEM, hunter, town).toLowerCase());
+        if (item == null) {
+            window.clear();
+            window.addTextToWindow("We ain't got none of those.\n", TextColor.BLACK);
+        } else {
             int cost = checkMarketPrice(item, true);
-            if (cost == 0 && !item.equals("sword")) {
+            if (hunter.hasItemInKit(Catalog.SWORD) && !hunter.hasItemInKit(item)) {
                 window.clear();
-                window.addTextToWindow("We ain't got none of those.\n", Color.black);
+                window.addTextToWindow("Oh Legendary Samurai, my store is yours, you can have this, free of cost!\n", TextColor.BLACK);
+                buyItem(item);
             } else {
-                if (hunter.hasItemInKit("sword") && !hunter.hasItemInKit(item)) {
-                    window.clear();
-                    window.addTextToWindow("Oh Legendary Samurai, my store is yours, you can have this, free of cost!\n", Color.black);
+                COST.write(window, cost);
+                window.addTextToWindow("Buy it (y/n)? ", TextColor.BLACK);
+                window.flush();
+                String option = player.respond(Prompt.CONFIRM, hunter, town).toLowerCase();
+                window.clear();
+                if (option.equals("y")) {
                     buyItem(item);
-                } else {
-                    window.addTextToWindow("It'll cost you ", Color.black);
-                    window.addTextToWindow(cost + " gold.\n", Color.yellow);
-                    window.addTextToWindow("Buy it (y/n)? ", Color.black);
-                    String option = SCANNER.nextLine().toLowerCase();
-                    window.clear();
-                    if (option.equals("y")) {
-                        buyItem(item);
-                    }
                 }
-
             }
+
+        }
+    }
+
+    /**
+     * Asks what the hunter wants to sell, and buys it from them if they agree to the price.
+     */
+    private void sell(Hunter hunter, Town town) {
+        window.addTextToWindow("What're you lookin' to sell? \n", TextColor.BLACK);
+        window.addTextToWindow("You currently have the following items: \n", TextColor.BLACK);
+        if (window.isRendering()) {
+            window.addTextToWindow(customer.getInventory(), TextColor.MAGENTA);
+        }
+        window.addTextToWindow("\n", TextColor.MAGENTA);
+        window.flush();
+        Item item = Item.fromName(player.respond(Prompt.SELL_ITEM, hunter, town).toLowerCase());
+        int cost = 0;
+        if (item != null) {
+            cost = checkMarketPrice(item, false);
+        }
+        if (cost == 0) {
+            window.addTextToWindow("We don't want none of those.", TextColor.BLACK);
         } else {
-            window.addTextToWindow("What're you lookin' to sell? \n", Color.black);
-            window.addTextToWindow("You currently have the following items: \n", Color.black);
-            window.addTextToWindow(customer.getInventory() + "\n", Color.magenta);
-            String item = SCANNER.nextLine().toLowerCase();
-            int cost = checkMarketPrice(item, false);
-            if (cost == 0) {
-                window.addTextToWindow("We don't want none of those.", Color.black);
-            } else {
-                window.addTextToWindow("It'll get you ", Color.black);
-                window.addTextToWindow(cost + " gold.\n", Color.yellow);
-                window.addTextToWindow("Sell it (y/n)? ", Color.black);
-                String option = SCANNER.nextLine().toLowerCase();
-                window.clear();
-                if (option.equals("y")) {
-                    sellItem(item);
-                }
+            BUY_BACK.write(window, cost);
+            window.addTextToWindow("Sell it (y/n)? ", TextColor.BLACK);
+            window.flush();
+            String option = player.respond(Prompt.CONFIRM, hunter, town).toLowerCase();
+            window.clear();
+            if (option.equals("y")) {
+                sellItem(item);
             }
         }
-        window.addTextToWindow("You left the shop", Color.black);
-        return "";
     }
 
     /**
      * A method that returns a string showing the items available in the shop
-     * (all shops sell the same items).
+     * (all shops sell the same items, in the order of the Catalog).<p>
+     * The Catalog never changes once loaded, so each of the two lists is only built once.
      *
      * @return the string representing the shop's items available for purchase and their prices.
      */
     public String inventory() {
-        String str = "Water: " + WATER_COST + " gold\n";
-        str += "Rope: " + ROPE_COST + " gold\n";
-        str += "Machete: " + MACHETE_COST + " gold\n";
-        str += "Boots: " + BOOTS_COST + " gold\n";
-        str += "Horse: " + HORSE_COST + " gold\n";
-        str += "Boat: " + BOAT_COST + " gold\n";
-        str += "Shovel: " + SHOVEL_COST + " gold\n";
-        if (samurai) {
-            str += "Sword: " + SWORD_COST + " gold\n";
+        int list = samurai ? 1 : 0;
+        String inventory = INVENTORIES[list];
+        if (inventory == null) {
+            StringBuilder str = new StringBuilder();
+            for (int id = 0; id < Catalog.itemCount(); id++) {
+                Item item = Catalog.item(id);
+                if (samurai || !item.isSamuraiOnly()) {
+                    str.append(item.getDisplayName()).append(": ").append(item.getCost()).append(" gold\n");
+                }
+            }
+            inventory = str.toString();
+            INVENTORIES[list] = inventory;
         }
-        return str;
+        return inventory;
     }
 
     /**
@@ -128,18 +151,18 @@ public class Shop {
      *
      * @param item The item being bought.
      */
-    public void buyItem(String item) {
+    public void buyItem(Item item) {
         int costOfItem = checkMarketPrice(item, true);
-        if (item.equals("sword") && !samurai) {
-            window.addTextToWindow("You can't buy this!", Color.black);
+        int paid = customer.hasItemInKit(Catalog.SWORD) ? 0 : costOfItem;
+        if (item.isSamuraiOnly() && !samurai) {
+            window.addTextToWindow("You can't buy this!", TextColor.BLACK);
         } else if (customer.buyItem(item, costOfItem)) {
+            Metrics.itemBought(paid);
             if (!samurai) {
-                window.addTextToWindow("Ye' got yerself a ", Color.black);
-                window.addTextToWindow(item, Color.magenta);
-                window.addTextToWindow(". \nCome again soon.\n", Color.black);
+                BOUGHT.write(window, item.getName());
             }
         } else {
-            window.addTextToWindow("Hmm, either you don't have enough gold or you've already got one of those!", Color.black);
+            window.addTextToWindow("Hmm, either you don't have enough gold or you've already got one of those!", TextColor.BLACK);
         }
     }
 
@@ -148,12 +171,13 @@ public class Shop {
      *
      * @param item The item being sold.
      */
-    public void sellItem(String item) {
+    public void sellItem(Item item) {
         int buyBackPrice = checkMarketPrice(item, false);
         if (customer.sellItem(item, buyBackPrice)) {
-            window.addTextToWindow("Pleasure doin' business with you.\n", Color.black);
+            Metrics.itemSold(buyBackPrice);
+            window.addTextToWindow("Pleasure doin' business with you.\n", TextColor.BLACK);
         } else {
-            window.addTextToWindow("Stop stringin' me along!\n",Color.black);
+            window.addTextToWindow("Stop stringin' me along!\n",TextColor.BLACK);
         }
     }
 
@@ -164,7 +188,7 @@ public class Shop {
      * @param isBuying Whether the item is being bought or sold.
      * @return The cost of buying or selling the item based on the isBuying parameter.
      */
-    public int checkMarketPrice(String item, boolean isBuying) {
+    public int checkMarketPrice(Item item, boolean isBuying) {
         if (isBuying) {
             return getCostOfItem(item);
         } else {
@@ -173,32 +197,25 @@ public class Shop {
     }
 
     /**
-     * Checks the item entered against the costs listed in the static variables.
+     * Looks up the cost of an item by the name a player typed.
      *
-     * @param item The item being checked for cost.
+     * @param item The name of the item being checked for cost.
      * @return The cost of the item or 0 if the item is not found.
      */
     public int getCostOfItem(String item) {
-        if (item.equals("water")) {
-            return WATER_COST;
-        } else if (item.equals("rope")) {
-            return ROPE_COST;
-        } else if (item.equals("machete")) {
-            return MACHETE_COST;
-        } else if (item.equals("horse")) {
-            return HORSE_COST;
-        } else if (item.equals("boat")) {
-            return BOAT_COST;
-        } else if (item.equals("boots")) {
-            return BOOTS_COST;
-        } else if (item.equals("shovel")) {
-            return SHOVEL_COST;
-        } else if (item.equals("sword")) {
-            return SWORD_COST;
-        }
-        else {
+        Item catalogItem = Catalog.item(item);
+        if (catalogItem == null) {
             return 0;
         }
+        return getCostOfItem(catalogItem);
+    }
+
+    /**
+     * @param item The item being checked for cost.
+     * @return The cost of the item, as listed in the Catalog.
+     */
+    public int getCostOfItem(Item item) {
+        return item.getCost();
     }
 
     /**
@@ -207,8 +224,8 @@ public class Shop {
      * @param item The item being sold.
      * @return The sell price of the item.
      */
-    public int getBuyBackCost(String item) {
+    public int getBuyBackCost(Item item) {
         int cost = (int) (getCostOfItem(item) * markdown);
         return cost;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * The Simulation class plays whole games of Treasure Hunter with no person at the keyboard.<p>
+ * Each game is played by a Player strategy into a CountingSink, and batches of games are
+ * spread across all cores with fork-join. This is used to tune the balance of the game.<p>
+ * Every game is seeded from the simulation's seed and the game's number, so a simulation
+ * with the same seed gives the same results no matter how many threads play it.
+ */
+
+public class Simulation {
+    // constants
+    private static final int GAMES_PER_TASK = 1024;
+    private static final int DEFAULT_GAMES = 250_000;
+    private static final long DEFAULT_SEED = 20240101L;
+    private static final String[] DIFFICULTIES = {"e", "n", "h", "s"};
+
+    /**
+     * Plays a number of games of one difficulty in parallel.
+     *
+     * @param difficulty The difficulty to play (e, n, h or s).
+     * @param games The number of games to play.
+     * @param seed The seed of the whole simulation.
+     * @param strategy Creates a fresh Player for each game from the difficulty.
+     * @return The combined results of every game.
+     */
+    public static SimulationStats run(String difficulty, int games, long seed, Function<String, Player> strategy) {
+        return run(difficulty, games, seed, strategy, Balance.DEFAULT);
+    }
+
+    /**
+     * Plays a number of games of one difficulty in parallel, with different numbers for the game's balance.
+     * Game i is seeded the same way whatever the balance, so runs that differ only in balance play the
+     * same games as far as the changes let them, and the differences between their results are down to
+     * the changes rather than luck.
+     *
+     * @param balance The numbers every game is played with.
+     */
+    public static SimulationStats run(String difficulty, int games, long seed, Function<String, Player> strategy,
+                                      Balance balance) {
+        return ForkJoinPool.commonPool().invoke(new Batch(difficulty, seed, 0, games, strategy, balance));
+    }
+
+    /**
+     * Plays one game to the end.
+     *
+     * @param difficulty The difficulty to play.
+     * @param seed The seed of the game.
+     * @param strategy Creates the Player for the game.
+     * @return The finished game.
+     */
+    public static TreasureHunter playGame(String difficulty, long seed, Function<String, Player> strategy) {
+        return playGame(difficulty, seed, strategy, Balance.DEFAULT);
+    }
+
+    /**
+     * @param balance The numbers the game is played with.
+     */
+    public static TreasureHunter playGame(String difficulty, long seed, Function<String, Player> strategy, Balance balance) {
+        TreasureHunter game = new TreasureHunter(strategy.apply(difficulty), new CountingSink(), seed);
+        game.setBalance(balance);
+        game.play();
+        return game;
+    }
+
+    /**
+     * Runs the simulation for every difficulty and prints a table of the results.
+     *
+     * @param args Optionally, the number of games to play per difficulty and then the seed.
+     */
+    public static void main(String[] args) {
+        int games = DEFAULT_GAMES;
+        long seed = DEFAULT_SEED;
+        if (args.length > 0) {
+            games = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            seed = Long.parseLong(args[1]);
+        }
+        System.out.println(String.format("%-10s %10s %8s %8s %10s %10s",
+                "difficulty", "games", "win", "loss", "turns/win", "gold"));
+        long totalGames = 0;
+        long start = System.nanoTime();
+        for (String difficulty : DIFFICULTIES) {
+            SimulationStats stats = run(difficulty, games, seed, GreedyPlayer::new);
+            totalGames += stats.getGames();
+            System.out.println(stats);
+        }
+        double minutes = (System.nanoTime() - start) / 60e9;
+        System.out.println(String.format("%d games on %d threads, %.0f games per minute",
+                totalGames, ForkJoinPool.commonPool().getParallelism(), totalGames / minutes));
+    }
+
+    /**
+     * A range of games that splits itself in half until it is small enough to play on one thread.
+     */
+    @SuppressWarnings("serial")
+    private static class Batch extends RecursiveTask<SimulationStats> {
+        private final String difficulty;
+        private final long seed;
+        private final int from;
+        private final int to;
+        private final Function<String, Player> strategy;
+        private final Balance balance;
+
+        Batch(String difficulty, long seed, int from, int to, Function<String, Player> strategy, Balance balance) {
+            this.difficulty = difficulty;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.strategy = strategy;
+            this.balance = balance;
+        }
+
+        protected SimulationStats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                SimulationStats stats = new SimulationStats(difficulty);
+                for (int i = from; i < to; i++) {
+                    stats.record(playGame(difficulty, GameRandom.seedForGame(seed, i), strategy, balance));
+                }
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            Batch left = new Batch(difficulty, seed, from, middle, strategy, balance);
+            left.fork();
+            SimulationStats right = new Batch(difficulty, seed, middle, to, strategy, balance).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * The results of a batch of simulated games of one difficulty.<p>
+ * Batches played on different threads are combined with merge().
+ */
+
+public class SimulationStats {
+    // instance variables
+    private String difficulty;
+    private long games;
+    private long wins;
+    private long losses;
+    private long turnsToWin;
+    private long turns;
+    private long finalGold;
+
+    public SimulationStats(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Adds a finished game to the results.
+     *
+     * @param game The game that has finished playing.
+     */
+    public void record(TreasureHunter game) {
+        games++;
+        turns += game.getTurns();
+        if (game.isWon()) {
+            wins++;
+            turnsToWin += game.getTurns();
+        } else if (game.isLost()) {
+            losses++;
+        }
+        finalGold += game.getHunter().getGold();
+    }
+
+    /**
+     * Adds the results of another batch of the same difficulty to these results.
+     *
+     * @param other The results to add.
+     * @return These results, now including other.
+     */
+    public SimulationStats merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        losses += other.losses;
+        turnsToWin += other.turnsToWin;
+        turns += other.turns;
+        finalGold += other.finalGold;
+        return this;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+
+    public double getLossRate() {
+        return games == 0 ? 0 : (double) losses / games;
+    }
+
+    /**
+     * @return The average number of turns taken by the games that were won.
+     */
+    public double getAverageTurnsToWin() {
+        return wins == 0 ? 0 : (double) turnsToWin / wins;
+    }
+
+    /**
+     * @return The average number of turns a game lasted, however it ended.
+     */
+    public double getAverageTurns() {
+        return games == 0 ? 0 : (double) turns / games;
+    }
+
+    public double getAverageFinalGold() {
+        return games == 0 ? 0 : (double) finalGold / games;
+    }
+
+    /**
+     * @return A one line summary of the results.
+     */
+    public String toString() {
+        return String.format("%-10s %10d %7.2f%% %7.2f%% %10.1f %10.1f",
+                difficulty, games, getWinRate() * 100, getLossRate() * 100,
+                getAverageTurnsToWin(), getAverageFinalGold());
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures how long a new game takes to start: the time from launching a JVM that plays in the
+ * terminal to the game asking for the hunter's name.<p>
+ * Each launch is a fresh process on this JVM and class path, so the numbers are what a test job
+ * that starts a short-lived game pays. The launches are timed once with the JDK's own class-data
+ * sharing archive and, if one is given, again with an AppCDS archive of the game made by
+ * build-cds.sh; a launch that can't use the archive fails instead of quietly running without it.
+ * The first launch of each kind is not counted, so the files it reads are already cached.
+ */
+
+public class StartupBenchmark {
+    // constants
+    private static final int DEFAULT_LAUNCHES = 20;
+    private static final byte[] PROMPT = "What's your name, Hunter?".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Launches a game and waits for its first prompt.
+     *
+     * @param options The JVM options to launch with.
+     * @return The nanoseconds from launching the process to the prompt.
+     */
+    private static long timeToPrompt(List<String> options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), "TreasureHunterRunner", "terminal"));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try (InputStream out = process.getInputStream()) {
+            int seen = 0;
+            int next;
+            while ((next = out.read()) >= 0) {
+                seen = next == PROMPT[seen] ? seen + 1 : (next == PROMPT[0] ? 1 : 0);
+                if (seen == PROMPT.length) {
+                    return System.nanoTime() - start;
+                }
+            }
+            throw new IllegalStateException("the game ended before asking for a name, launched with " + options);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Times the given number of launches with the given options and prints the median, fastest and slowest.
+     */
+    private static void report(String name, List<String> options, int launches) throws IOException, InterruptedException {
+        timeToPrompt(options);
+        long[] times = new long[launches];
+        for (int i = 0; i < launches; i++) {
+            times[i] = timeToPrompt(options);
+        }
+        Arrays.sort(times);
+        System.out.println(String.format("%-22s median %6.1f ms, fastest %6.1f ms, slowest %6.1f ms",
+                name, times[launches / 2] / 1e6, times[0] / 1e6, times[launches - 1] / 1e6));
+    }
+
+    /**
+     * @param args Optionally, the number of launches to time and then the path of an AppCDS archive of the game.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int launches = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LAUNCHES;
+        System.out.println("time from launch to the first prompt over " + launches + " launches:");
+        report("JDK archive", List.of(), launches);
+        if (args.length > 1) {
+            Path archive = Path.of(args[1]);
+            if (!Files.exists(archive)) {
+                throw new IllegalArgumentException("no archive at " + archive + "; run build-cds.sh first");
+            }
+            report("game archive", List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:on"), launches);
+        }
+    }
+}
@@ -0,0 +1,569 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A RenderSink that writes to the terminal, using the ANSI codes in Colors for color.<p>
+ * This lets the game be played over a plain console where no window can be opened.<p>
+ * The sink keeps a Screen of what the terminal is showing. The game's text and clears only change
+ * that model, and flush(), which the game calls before each question, rewrites just the regions
+ * that changed, moving the cursor to each one and erasing what is left of every line it rewrites.
+ * When a region gains or loses lines, the terminal inserts or deletes lines below it, so the regions
+ * after it slide into place without being sent again, and a region that only slid along its first
+ * line has just that line rewritten. A turn where only the gold changed sends a cursor move, the new
+ * number and the rest of that line, instead of clearing the terminal and printing every line again.
+ * Whatever is sent goes out of one reusable byte buffer in a single write.<p>
+ * Rows are counted as the terminal shows them, with a line wider than the terminal taking as many
+ * rows as it wraps onto. Moving the cursor by row only works while the whole screen fits above the
+ * row the player types on, so a screen that doesn't, or that has a line exactly as wide as some number
+ * of rows, which leaves the cursor waiting to wrap where it can't be moved back to, is cleared and
+ * drawn whole, as every screen used to be. The screen after one drawn that way is drawn whole too.
+ * The terminal's size is asked of the terminal itself with stty. Shells set COLUMNS and LINES but
+ * don't export them, so the variables are only used where there is no stty, as on Windows, and
+ * only if they were exported; failing both, the terminal is assumed to be 80 by 24.
+ */
+
+public class TerminalSink implements RenderSink {
+    // constants
+    static final byte[] CLEAR_SCREEN = ascii("\033[H\033[2J");
+    static final byte[] RESET = ascii(Colors.RESET);
+    private static final byte[] ERASE_LINE = ascii("\033[K");
+    private static final byte[] ERASE_DOWN = ascii("\033[J");
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int DEFAULT_COLUMNS = 80;
+    private static final int DEFAULT_ROWS = 24;
+    private static final Map<TextColor, byte[]> CODES = codes(); // never changed once built, so any thread may read it
+
+    // instance variables
+    private final OutputStream out;
+    private final int columns; // the terminal's size
+    private final int lastRow; // the lowest row the screen may reach, leaving the bottom row for the line the player types
+    private final Screen screen = new Screen(Screen.UNBOUNDED);
+    private final int[] startRows = new int[Screen.regionCount()]; // where each region is on the terminal
+    private final int[] startColumns = new int[Screen.regionCount()];
+    private final int[] endRows = new int[Screen.regionCount()];
+    private final int[] endColumns = new int[Screen.regionCount()];
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private TextColor currentColor;
+    private int row; // where the next character written lands
+    private int column;
+    private int cursorRow; // where the terminal's cursor is, or -1 if that isn't known
+    private int cursorColumn;
+    private boolean brokeLine; // a line break has been written since this was last cleared
+    private boolean shownFits; // the screen last flushed fit the terminal
+    private long written;
+
+    /**
+     * Makes a sink that writes to the console.
+     */
+    public TerminalSink() {
+        this(System.out, terminalSize());
+    }
+
+    private TerminalSink(OutputStream out, int[] size) {
+        this(out, size[1], size[0]);
+    }
+
+    /**
+     * Makes a sink for a terminal of the usual 80 by 24.
+     *
+     * @param out Where each turn's changes are written, in one write per flush.
+     */
+    public TerminalSink(OutputStream out) {
+        this(out, DEFAULT_COLUMNS, DEFAULT_ROWS);
+    }
+
+    /**
+     * @param out Where each turn's changes are written, in one write per flush.
+     * @param columns The width of the terminal.
+     * @param rows The height of the terminal.
+     */
+    public TerminalSink(OutputStream out, int columns, int rows) {
+        if (columns < 1 || rows < 2) {
+            throw new IllegalArgumentException("a terminal of " + columns + " by " + rows + " is too small");
+        }
+        this.out = out;
+        this.columns = columns;
+        this.lastRow = rows - 2;
+    }
+
+    public void addTextToWindow(String text, TextColor color) {
+        screen.add(text, color);
+    }
+
+    public void addNumberToWindow(int number, TextColor color) {
+        screen.addNumber(number, color);
+    }
+
+    public void clear() {
+        screen.clear();
+    }
+
+    public void startRegion(ScreenRegion region) {
+        screen.startRegion(region);
+    }
+
+    /**
+     * Writes what changed since the last flush in one go, and leaves the cursor at the end of the screen.
+     */
+    public void flush() {
+        cursorRow = -1; // the player's typing has moved it
+        boolean fits = fits();
+        if (!screen.isEverShown() || !shownFits || !fits || !drawChanged()) {
+            drawAll();
+        }
+        shownFits = fits;
+        if (currentColor != null) {
+            append(RESET);
+            currentColor = null;
+        }
+        try {
+            out.write(buffer, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += length;
+        length = 0;
+        screen.show();
+    }
+
+    /**
+     * @return The bytes written to the terminal so far.
+     */
+    public long getBytesWritten() {
+        return written;
+    }
+
+    /**
+     * Clears the terminal and writes every region.
+     */
+    private void drawAll() {
+        append(CLEAR_SCREEN);
+        row = 0;
+        column = 0;
+        for (int region = 0; region < Screen.regionCount(); region++) {
+            startRows[region] = row;
+            startColumns[region] = column;
+            for (int i = 0; i < screen.getCount(region); i++) {
+                write(region, i, false);
+            }
+            endRows[region] = row;
+            endColumns[region] = column;
+        }
+    }
+
+    /**
+     * Brings the terminal up to date region by region, then erases whatever is left below the end
+     * of the screen, such as the line the player typed.<p>
+     * A region that changed is rewritten from its first changed fragment, after inserting or deleting
+     * lines below it so the regions after it keep their rows. A region that didn't change is left
+     * alone, unless it now starts somewhere else along its first line, or the rest of that line was
+     * lost, in which case only its first line is rewritten.<p>
+     * Lines inserted for a region that grew push the old screen down before a later region that
+     * shrank deletes lines again. If that would push the end of the old screen off the bottom of the
+     * terminal, what was added so far is dropped, so the screen can be drawn whole instead.
+     *
+     * @return false if nothing was drawn.
+     */
+    private boolean drawChanged() {
+        int drawnLength = length;
+        TextColor drawnColor = currentColor;
+        int oldLastRow = endRows[Screen.regionCount() - 1];
+        row = 0;
+        column = 0;
+        int shift = 0; // lines inserted less lines deleted so far, which moves every old row below them
+        boolean lineLost = false; // the rest of the row at the cursor doesn't show the screen any more
+        for (int region = 0; region < Screen.regionCount(); region++) {
+            int oldStartRow = startRows[region] + shift;
+            int oldEndRow = endRows[region] + shift;
+            int oldEndColumn = endColumns[region];
+            boolean moved = row != oldStartRow || column != startColumns[region];
+            startRows[region] = row;
+            startColumns[region] = column;
+            if (screen.getCount(region) == 0 && screen.getShownCount(region) == 0) {
+                endRows[region] = row;
+                endColumns[region] = column;
+                continue;
+            }
+            if (!screen.isChanged(region) && row == oldStartRow && (!moved || endRow(region) == oldEndRow)) {
+                if (moved || lineLost) {
+                    moveTo(row, column);
+                    lineLost = !writeFirstLine(region);
+                }
+                if (!lineLost) {
+                    row = oldEndRow;
+                    column = oldEndColumn;
+                }
+            } else {
+                int from = moved || lineLost ? 0 : screen.getUnchanged(region);
+                for (int i = 0; i < from; i++) {
+                    skip(region, i);
+                }
+                int fromRow = row;
+                int fromColumn = column;
+                for (int i = from; i < screen.getCount(region); i++) {
+                    skip(region, i);
+                }
+                int lines = row - oldEndRow;
+                if (oldLastRow + shift + lines > lastRow + 1) {
+                    length = drawnLength;
+                    currentColor = drawnColor;
+                    cursorRow = -1;
+                    return false;
+                }
+                if (lines > 0) {
+                    moveTo(oldEndRow + 1, 0);
+                    appendCommand(lines, 'L');
+                } else if (lines < 0) {
+                    moveTo(row + 1, 0);
+                    appendCommand(-lines, 'M');
+                }
+                shift += lines;
+                row = fromRow;
+                column = fromColumn;
+                moveTo(row, column);
+                brokeLine = false;
+                for (int i = from; i < screen.getCount(region); i++) {
+                    write(region, i, true);
+                }
+                lineLost = (lineLost && !brokeLine) || lines != 0 || column != oldEndColumn;
+            }
+            endRows[region] = row;
+            endColumns[region] = column;
+        }
+        moveTo(row, column);
+        append(ERASE_DOWN);
+        return true;
+    }
+
+    /**
+     * Rewrites a region up to and including its first line break, erasing the rest of that line.
+     *
+     * @return false if the region has no line break, in which case all of it was rewritten.
+     */
+    private boolean writeFirstLine(int region) {
+        for (int i = 0; i < screen.getCount(region); i++) {
+            String text = screen.getText(region, i);
+            int lineBreak = text == null ? -1 : text.indexOf('\n');
+            if (lineBreak < 0) {
+                write(region, i, true);
+            } else {
+                setColor(screen.getColor(region, i));
+                append(text, 0, lineBreak + 1, true);
+                cursorRow = row;
+                cursorColumn = column;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the screen as it is now can be drawn a region at a time.
+     *
+     * @return true if the screen ends at or above lastRow and no line is a whole number of rows wide.
+     */
+    private boolean fits() {
+        int rows = 0;
+        int width = 0;
+        for (int region = 0; region < Screen.regionCount(); region++) {
+            for (int i = 0; i < screen.getCount(region); i++) {
+                String text = screen.getText(region, i);
+                if (text == null) {
+                    width += Screen.digits(screen.getNumber(region, i));
+                }
+                for (int c = 0; text != null && c < text.length(); c++) {
+                    if (text.charAt(c) == '\n') {
+                        if (width > 0 && width % columns == 0) {
+                            return false;
+                        }
+                        rows += 1 + Math.max(width - 1, 0) / columns;
+                        width = 0;
+                    } else if (!Character.isLowSurrogate(text.charAt(c))) {
+                        width++;
+                    }
+                }
+            }
+        }
+        if (width > 0 && width % columns == 0) {
+            return false;
+        }
+        return rows + Math.max(width - 1, 0) / columns <= lastRow;
+    }
+
+    /**
+     * Asks the terminal the game was started from for its size.
+     *
+     * @return The rows and the columns, from stty if it can tell, or else from the environment.
+     */
+    private static int[] terminalSize() {
+        int[] size = {sizeFromEnvironment("LINES", DEFAULT_ROWS), sizeFromEnvironment("COLUMNS", DEFAULT_COLUMNS)};
+        try {
+            Process stty = new ProcessBuilder("stty", "size")
+                    .redirectInput(new File("/dev/tty"))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            String answer = new String(stty.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            String[] rowsAndColumns = answer.split("\\s+");
+            if (stty.waitFor() == 0 && rowsAndColumns.length == 2) {
+                int rows = Integer.parseInt(rowsAndColumns[0]);
+                int columns = Integer.parseInt(rowsAndColumns[1]);
+                // a terminal that doesn't know its size says 0 0
+                if (rows > 1 && columns > 1) {
+                    size[0] = rows;
+                    size[1] = columns;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // no stty, or no terminal to ask
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return size;
+    }
+
+    /**
+     * Reads the terminal's size from a variable, which only reaches the game if it was exported.
+     *
+     * @return The variable as a number, or the default if it isn't set or isn't a sensible size.
+     */
+    private static int sizeFromEnvironment(String name, int defaultSize) {
+        String value = System.getenv(name);
+        if (value == null) {
+            return defaultSize;
+        }
+        try {
+            int size = Integer.parseInt(value.trim());
+            return size > 1 ? size : defaultSize;
+        } catch (NumberFormatException e) {
+            return defaultSize;
+        }
+    }
+
+    /**
+     * @return The row a region written at the cursor would end on, which for a region that has
+     *         moved along its first line differs from before when that line wraps differently.
+     */
+    private int endRow(int region) {
+        int fromRow = row;
+        int fromColumn = column;
+        for (int i = 0; i < screen.getCount(region); i++) {
+            skip(region, i);
+        }
+        int endRow = row;
+        row = fromRow;
+        column = fromColumn;
+        return endRow;
+    }
+
+    /**
+     * Moves the cursor past a fragment without writing it.
+     */
+    private void skip(int region, int fragment) {
+        String text = screen.getText(region, fragment);
+        if (text == null) {
+            advance(Screen.digits(screen.getNumber(region, fragment)));
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                row++;
+                column = 0;
+            } else if (!Character.isLowSurrogate(text.charAt(i))) {
+                advance(1);
+            }
+        }
+    }
+
+    /**
+     * Writes a fragment at the cursor.
+     *
+     * @param erase true to erase the rest of each line before its line break.
+     */
+    private void write(int region, int fragment, boolean erase) {
+        setColor(screen.getColor(region, fragment));
+        String text = screen.getText(region, fragment);
+        if (text == null) {
+            appendNumber(screen.getNumber(region, fragment));
+            advance(Screen.digits(screen.getNumber(region, fragment)));
+        } else {
+            append(text, 0, text.length(), erase);
+        }
+        cursorRow = row;
+        cursorColumn = column;
+    }
+
+    /**
+     * Moves the cursor along by characters written, onto the next row where the terminal wraps.
+     * A character in the last column leaves the cursor past the end of the row until the next one
+     * is written, as the terminal does.
+     */
+    private void advance(int characters) {
+        for (int i = 0; i < characters; i++) {
+            if (column == columns) {
+                row++;
+                column = 0;
+            }
+            column++;
+        }
+    }
+
+    private void setColor(TextColor color) {
+        if (color != currentColor) {
+            append(codeFor(color));
+            currentColor = color;
+        }
+    }
+
+    private void moveTo(int toRow, int toColumn) {
+        if (toRow == cursorRow && toColumn == cursorColumn) {
+            return;
+        }
+        cursorRow = toRow;
+        cursorColumn = toColumn;
+        if (toColumn == columns) {
+            // the cursor can't be put past the end of a row, but the screen fits, so what is written next wraps
+            toRow++;
+            toColumn = 0;
+        }
+        ensureCapacity(2);
+        buffer[length++] = '\033';
+        buffer[length++] = '[';
+        appendNumber(toRow + 1);
+        ensureCapacity(1);
+        buffer[length++] = ';';
+        appendNumber(toColumn + 1);
+        ensureCapacity(1);
+        buffer[length++] = 'H';
+    }
+
+    /**
+     * Adds a control sequence that takes a count, such as inserting lines.
+     */
+    private void appendCommand(int count, char command) {
+        ensureCapacity(2);
+        buffer[length++] = '\033';
+        buffer[length++] = '[';
+        appendNumber(count);
+        ensureCapacity(1);
+        buffer[length++] = (byte) command;
+        cursorRow = -1; // some terminals move the cursor to the start of the line
+    }
+
+    /**
+     * @return The escape code for a color, shared by every sink that writes ANSI colors.
+     */
+    static byte[] codeFor(TextColor color) {
+        return CODES.get(color);
+    }
+
+    private static Map<TextColor, byte[]> codes() {
+        Map<TextColor, byte[]> codes = new EnumMap<>(TextColor.class);
+        for (TextColor color : TextColor.values()) {
+            codes.put(color, ascii(ansiCode(color)));
+        }
+        return codes;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Copies part of a text into the buffer, keeping track of the cursor; the game's own text is all
+     * ASCII, so only a name typed by the player ever needs encoding.
+     *
+     * @param erase true to erase the rest of each line before its line break.
+     */
+    private void append(String text, int from, int to, boolean erase) {
+        ensureCapacity(to - from);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                if (erase && column < columns) {
+                    append(ERASE_LINE);
+                }
+                ensureCapacity(1);
+                buffer[length++] = '\n';
+                row++;
+                column = 0;
+                brokeLine = true;
+            } else if (c >= 0x80) {
+                int codePoint = text.codePointAt(i);
+                append(new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8));
+                i += Character.charCount(codePoint) - 1;
+                advance(1);
+            } else {
+                ensureCapacity(1);
+                buffer[length++] = (byte) c;
+                advance(1);
+            }
+        }
+    }
+
+    private void appendNumber(int number) {
+        if (number < 0) {
+            ensureCapacity(1);
+            buffer[length++] = '-';
+            if (number == Integer.MIN_VALUE) {
+                append(ascii("2147483648"));
+                return;
+            }
+            number = -number;
+        }
+        int digits = Screen.digits(number);
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        length += digits;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] bigger = new byte[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, bigger, 0, length);
+            buffer = bigger;
+        }
+    }
+
+    static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Finds the ANSI code closest to a color used by the game.
+     * Black is shown in the terminal's own text color so it can be read on dark backgrounds.
+     *
+     * @param color The color of the text.
+     * @return The ANSI escape code for the color.
+     */
+    private static String ansiCode(TextColor color) {
+        if (color == TextColor.RED) {
+            return Colors.RED;
+        } else if (color == TextColor.GREEN) {
+            return Colors.GREEN;
+        } else if (color == TextColor.YELLOW) {
+            return Colors.YELLOW;
+        } else if (color == TextColor.BLUE) {
+            return Colors.BLUE;
+        } else if (color == TextColor.MAGENTA) {
+            return Colors.PURPLE;
+        } else if (color == TextColor.CYAN) {
+            return Colors.CYAN;
+        } else if (color == TextColor.DARK_GRAY) {
+            return Colors.WHITE;
+        } else {
+            return Colors.RESET;
+        }
+    }
+}
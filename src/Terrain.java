@@ -1,34 +1,42 @@
-import java.awt.*;
-
 /**
- * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.
+ * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.<p>
+ * Terrain comes from the Catalog, and every town surrounded by the same terrain shares one Terrain object.
  * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
  */
 
 public class Terrain {
+    // constants
+    private static final MessageTemplate SURROUNDED = new MessageTemplate("You are surrounded by {s} which needs a(n) {s} to cross.",
+            TextColor.BLACK, TextColor.CYAN, TextColor.BLACK, TextColor.MAGENTA, TextColor.BLACK);
+
     // instance variables
-    private String terrainName;
-    private String neededItem;
-    private OutputWindow window;
+    private final int id;
+    private final String terrainName;
+    private final Item neededItem;
 
     /**
-     * Sets the class member variables
+     * Sets the class member variables. Terrain is only created by the Catalog.
      *
+     * @param id The terrain's position in the catalog.
      * @param name The name of the zone.
      * @param item The item needed in order to cross the zone.
      */
-    public Terrain(String name, String item, OutputWindow window) {
-        this.window = window;
+    Terrain(int id, String name, Item item) {
+        this.id = id;
         terrainName = name;
-        neededItem = item.toLowerCase();
+        neededItem = item;
     }
 
     // accessors
+    public int id() {
+        return id;
+    }
+
     public String getTerrainName() {
         return terrainName;
     }
 
-    public String getNeededItem() {
+    public Item getNeededItem() {
         return neededItem;
     }
 
@@ -40,21 +48,19 @@ public class Terrain {
      * @return true if the Hunter has the proper item.
      */
     public boolean canCrossTerrain(Hunter hunter) {
-        if (hunter.hasItemInKit(neededItem)) {
-            return true;
-        }
-        return false;
+        return hunter.hasItemInKit(neededItem);
     }
 
     /**
-     * @return A string representation of the terrain and item to cross it.
+     * Shows the terrain and the item needed to cross it.
+     *
+     * @param window Where the description is shown.
      */
-    public void infoString() {
+    public void infoString(RenderSink window) {
         window.clear();
-        window.addTextToWindow("You are surrounded by ", Color.black);
-        window.addTextToWindow(terrainName, Color.cyan);
-        window.addTextToWindow(" which needs a(n) ", Color.black);
-        window.addTextToWindow(neededItem, Color.magenta);
-        window.addTextToWindow(" to cross.", Color.black);
+        if (!window.isRendering()) {
+            return;
+        }
+        SURROUNDED.write(window, terrainName, neededItem.getName());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+/**
+ * The colors the game writes its text in.<p>
+ * The game only names a color and leaves it to each RenderSink to show it: OutputWindow paints
+ * the text in the color's RGB value and TerminalSink picks the closest ANSI code. Keeping
+ * java.awt.Color out of the game means a game played in a terminal never loads the AWT toolkit.
+ */
+
+public enum TextColor {
+    BLACK(0x000000),
+    RED(0xFF0000),
+    GREEN(0x00FF00),
+    YELLOW(0xFFFF00),
+    BLUE(0x0000FF),
+    MAGENTA(0xFF00FF),
+    CYAN(0x00FFFF),
+    DARK_GRAY(0x404040);
+
+    // instance variables
+    private final int rgb;
+
+    TextColor(int rgb) {
+        this.rgb = rgb;
+    }
+
+    /**
+     * @return The color as 0xRRGGBB, the same as the java.awt.Color of the same name.
+     */
+    public int getRgb() {
+        return rgb;
+    }
+}
@@ -1,5 +1,3 @@
-import java.awt.*;
-
 /**
  * The Town Class is where it all happens.
  * The Town is designed to manage all the things a Hunter can do in town.
@@ -7,6 +5,33 @@ import java.awt.*;
  */
 
 public class Town {
+    // constants
+    static final double TOUGH_TOWN_TROUBLE = 0.66; // the chance of finding a fight, and of losing one
+    static final double TOWN_TROUBLE = 0.33;
+    static final double EASY_BRAWL_BONUS = 0.10;
+    static final int MAX_BRAWL_GOLD = 10;
+    static final int MAX_DUG_GOLD = 20;
+    static final double BREAK_CHANCE = 0.5;
+    static final int DIG_ODDS = 2; // one dig in this many finds gold
+    private static final MessageTemplate WELCOME = new MessageTemplate("Welcome to town, {s}.\n", TextColor.BLACK, TextColor.BLACK, TextColor.BLACK);
+    private static final MessageTemplate CROSSED = new MessageTemplate("You used your {s} to cross the {s}.\n",
+            TextColor.BLACK, TextColor.MAGENTA, TextColor.BLACK, TextColor.CYAN, TextColor.CYAN);
+    private static final MessageTemplate BROKE = new MessageTemplate("\nUnfortunately, your {s} broke.\n",
+            TextColor.BLACK, TextColor.MAGENTA, TextColor.BLACK);
+    private static final MessageTemplate STUCK = new MessageTemplate("You can't leave town, {s}.\nYou don't have a {s}.",
+            TextColor.BLACK, TextColor.BLACK, TextColor.BLACK, TextColor.CYAN, TextColor.CYAN);
+    private static final MessageTemplate SAMURAI_TRIBUTE = new MessageTemplate("I see you want trouble str....ir."
+            + "Apologies for angering you so dear samurai, please take my gold.You have recieved {n} gold.",
+            TextColor.BLUE, TextColor.BLUE, TextColor.BLUE);
+    private static final MessageTemplate BRAWL_WON = new MessageTemplate("Okay, stranger! You proved yer mettle. Here, take my gold."
+            + "\nYou won the brawl and receive {n} gold.", TextColor.RED, TextColor.RED, TextColor.RED);
+    private static final MessageTemplate BRAWL_LOST = new MessageTemplate("That'll teach you to go lookin' fer trouble in MY town! Now pay up!"
+            + "\nYou lost the brawl and pay {n} gold.", TextColor.RED, TextColor.RED, TextColor.RED);
+    private static final MessageTemplate DUG_GOLD = new MessageTemplate("You dug up {n} gold!", TextColor.BLACK, TextColor.YELLOW, TextColor.YELLOW);
+    private static final MessageTemplate SURROUNDED = new MessageTemplate("This nice little town is surrounded by {s}.",
+            TextColor.BLACK, TextColor.CYAN, TextColor.CYAN);
+    private static final MessageTemplate FOUND = new MessageTemplate("You found a {s}", TextColor.GREEN, TextColor.GREEN);
+
     // instance variables
     private Hunter hunter;
     private Shop shop;
@@ -14,45 +39,118 @@ public class Town {
     private String printMessage;
     private boolean toughTown;
     private boolean treasureSearched;
-    private String treasure;
+    private Treasure treasure;
     private boolean dug;
     private boolean easyMode;
     private boolean samuraiMode;
-    private OutputWindow window;
+    private RenderSink window;
+    private GameRandom random;
+    private Balance balance = Balance.DEFAULT;
 
     /**
      * The Town Constructor takes in a shop and the surrounding terrain, but leaves the hunter as null until one arrives.
      *
      * @param shop The town's shoppe.
      * @param toughness The surrounding terrain.
+     * @param random The town's own stream of random numbers, split from the game's.
      */
-    public Town(Shop shop, double toughness, OutputWindow window) {
+    public Town(Shop shop, double toughness, RenderSink window, GameRandom random) {
+        this(shop, toughness, window, random, random);
+    }
+
+    /**
+     * Makes a town whose layout and events come from different streams, as in a World,
+     * where the same coordinates always give the same layout.
+     *
+     * @param shop The town's shoppe.
+     * @param toughness The chance of the town being tough.
+     * @param layout The stream the terrain, toughness and treasure are drawn from.
+     * @param random The stream everything that happens in town is drawn from.
+     */
+    public Town(Shop shop, double toughness, RenderSink window, GameRandom layout, GameRandom random) {
         this.window = window;
+        this.random = random;
         this.shop = shop;
-        this.terrain = getNewTerrain();
+        this.terrain = pickTerrain(layout);
         // the hunter gets set using the hunterArrives method, which
         // gets called from a client class
         hunter = null;
         printMessage = "";
 
         // higher toughness = more likely to be a tough town
-        toughTown = (Math.random() < toughness);
-        int treasureChance = (int) (Math.random() * 4);
+        toughTown = (layout.nextDouble() < toughness);
+        int treasureChance = layout.nextInt(4);
         if (treasureChance == 0) {
-            treasure = "dust";
+            treasure = Treasure.DUST;
         } else if (treasureChance == 1) {
-            treasure = "trophy";
+            treasure = Treasure.TROPHY;
         } else if (treasureChance == 2) {
-            treasure = "crown";
+            treasure = Treasure.CROWN;
         } else {
-            treasure = "gem";
+            treasure = Treasure.GEM;
         }
     }
 
+    /**
+     * Rebuilds a town from a version 1 save, which kept the town's layout and its own stream of
+     * random numbers rather than making the town from a world's seed.
+     *
+     * @param shop The town's shoppe.
+     * @param random The town's stream of random numbers, at the position it was saved at.
+     * @param terrain The surrounding terrain.
+     * @param treasure The treasure hidden in the town.
+     * @param toughTown true if the town is tough.
+     */
+    Town(Shop shop, RenderSink window, GameRandom random, Terrain terrain, Treasure treasure, boolean toughTown) {
+        this.window = window;
+        this.random = random;
+        this.shop = shop;
+        this.terrain = terrain;
+        this.treasure = treasure;
+        this.toughTown = toughTown;
+        printMessage = "";
+    }
+
     public Terrain getTerrain() {
         return terrain;
     }
 
+    public Shop getShop() {
+        return shop;
+    }
+
+    public boolean isToughTown() {
+        return toughTown;
+    }
+
+    public boolean isDug() {
+        return dug;
+    }
+
+    public boolean isTreasureSearched() {
+        return treasureSearched;
+    }
+
+    /**
+     * Puts back what the hunter did in a town made again by the World.
+     *
+     * @param dug true if the hunter has already dug here.
+     * @param treasureSearched true if the hunter has already found the town's treasure.
+     */
+    void restoreProgress(boolean dug, boolean treasureSearched) {
+        this.dug = dug;
+        this.treasureSearched = treasureSearched;
+    }
+
+    /**
+     * Sets the numbers the town's odds and gold come from.
+     *
+     * @param balance The game's Balance.
+     */
+    void setBalance(Balance balance) {
+        this.balance = balance;
+    }
+
     public String getLatestNews() {
         return printMessage;
     }
@@ -63,15 +161,13 @@ public class Town {
      * @param hunter The arriving Hunter.
      */
     public void hunterArrives(Hunter hunter) {
-        String printMessage = "";
         this.hunter = hunter;
-        printMessage = "Welcome to town, " + hunter.getHunterName() + ".";
+        WELCOME.write(window, hunter.getHunterName());
         if (toughTown) {
-            printMessage += "\nIt's pretty rough around here, so watch yourself.";
+            window.addTextToWindow("It's pretty rough around here, so watch yourself.", TextColor.BLACK);
         } else {
-            printMessage += "\nWe're just a sleepy little town with mild mannered folk.";
+            window.addTextToWindow("We're just a sleepy little town with mild mannered folk.", TextColor.BLACK);
         }
-        window.addTextToWindow(printMessage, Color.black);
     }
 
     /**
@@ -83,22 +179,16 @@ public class Town {
         window.clear();
         boolean canLeaveTown = terrain.canCrossTerrain(hunter);
         if (canLeaveTown) {
-            String item = terrain.getNeededItem();
-            window.addTextToWindow("You used your ", Color.black);
-            window.addTextToWindow(item, Color.magenta);
-            window.addTextToWindow(" to cross the ", Color.black);
-            window.addTextToWindow(terrain.getTerrainName() + ".\n", Color.cyan);
+            Item item = terrain.getNeededItem();
+            CROSSED.write(window, item.getName(), terrain.getTerrainName());
             if (checkItemBreak()) {
                 hunter.removeItemFromKit(item);
-                window.addTextToWindow("\nUnfortunately, your ", Color.black);
-                window.addTextToWindow(item, Color.magenta);
-                window.addTextToWindow(" broke.\n", Color.black);
+                BROKE.write(window, item.getName());
             }
             return true;
         }
 
-        window.addTextToWindow("You can't leave town, " + hunter.getHunterName() + ".\nYou don't have a ", Color.black);
-        window.addTextToWindow(terrain.getNeededItem() + ".", Color.cyan);
+        STUCK.write(window, hunter.getHunterName(), terrain.getNeededItem().getName());
         return false;
     }
 
@@ -108,7 +198,7 @@ public class Town {
      * @param choice If the user wants to buy or sell items at the shop.
      */
     public void enterShop(String choice) {
-        printMessage = shop.enter(hunter, choice);
+        printMessage = shop.enter(hunter, choice, this);
     }
 
     /**
@@ -119,36 +209,28 @@ public class Town {
     public String lookForTrouble() {
         double noTroubleChance;
         if (toughTown) {
-            noTroubleChance = 0.66;
+            noTroubleChance = balance.get(BalanceParameter.TOUGH_TOWN_TROUBLE);
         } else {
-            noTroubleChance = 0.33;
+            noTroubleChance = balance.get(BalanceParameter.TOWN_TROUBLE);
         }
-        if (Math.random() > noTroubleChance) {
-            window.addTextToWindow("You couldn't find any trouble", Color.black);
+        if (random.nextDouble() > noTroubleChance) {
+            window.addTextToWindow("You couldn't find any trouble", TextColor.BLACK);
         } else {
-            int goldDiff = (int) (Math.random() * 10) + 1;
-            String printMessage = "";
-            if (samuraiMode && hunter.hasItemInKit("sword")) {
-                printMessage += ("I see you want trouble str....ir.");
-                printMessage += ("Apologies for angering you so dear samurai, please take my gold.");
-                printMessage += ("You have recieved " + goldDiff + " gold.");
-                window.addTextToWindow(printMessage, Color.blue);
+            int goldDiff = random.nextInt(balance.getInt(BalanceParameter.MAX_BRAWL_GOLD)) + 1;
+            if (samuraiMode && hunter.hasItemInKit(Catalog.SWORD)) {
+                SAMURAI_TRIBUTE.write(window, goldDiff);
                 hunter.changeGold(goldDiff);
             } else {
-                printMessage += ("You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n");
-                double rand = Math.random();
+                window.addTextToWindow("You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n", TextColor.RED);
+                double rand = random.nextDouble();
                 if (easyMode) {
-                    rand += .10;
+                    rand += balance.get(BalanceParameter.EASY_BRAWL_BONUS);
                 }
                 if (rand > noTroubleChance) {
-                    printMessage += ("Okay, stranger! You proved yer mettle. Here, take my gold.");
-                    printMessage += ("\nYou won the brawl and receive " + goldDiff + " gold.");
+                    BRAWL_WON.write(window, goldDiff);
                     hunter.changeGold(goldDiff);
-                    window.addTextToWindow(printMessage, Color.red);
                 } else {
-                    printMessage += ("That'll teach you to go lookin' fer trouble in MY town! Now pay up!");
-                    printMessage += ("\nYou lost the brawl and pay " + goldDiff + " gold.");
-                    window.addTextToWindow(printMessage, Color.red);
+                    BRAWL_LOST.write(window, goldDiff);
                     hunter.changeGold(-goldDiff);
                     if (hunter.getGold() < 0) {
                         return "end";
@@ -166,25 +248,20 @@ public class Town {
      *               decide actions accordingly
      */
     public void digForGold(Hunter hunter) {
-        String print = "";
-        if (hunter.hasItemInKit("shovel")) {
+        if (hunter.hasItemInKit(Catalog.SHOVEL)) {
             if (dug) {
-                print += ("You already dug for gold in this town.");
-            } else if ((int) (Math.random() * 2) == 1) {
-                int numOfGold = (int) (Math.random() * 20 + 1);
+                window.addTextToWindow("You already dug for gold in this town.", TextColor.BLACK);
+            } else if (digsUpGold()) {
+                int numOfGold = random.nextInt(balance.getInt(BalanceParameter.MAX_DUG_GOLD)) + 1;
                 hunter.changeGold(numOfGold);
-                print += ("You dug up ");
-                window.addTextToWindow(print, Color.black);
-                print = "";
-                window.addTextToWindow(numOfGold + " gold!", Color.yellow);
+                DUG_GOLD.write(window, numOfGold);
             } else {
-                print += ("You dug but only found dirt");
+                window.addTextToWindow("You dug but only found dirt", TextColor.BLACK);
             }
             dug = true;
         } else {
-            print += ("You can't dig for gold without a shovel");
+            window.addTextToWindow("You can't dig for gold without a shovel", TextColor.BLACK);
         }
-        window.addTextToWindow(print, Color.black);
     }
 
     /**
@@ -192,30 +269,29 @@ public class Town {
      * @return returns the description for the terrain
      */
     public void infoString() {
-        window.addTextToWindow("This nice little town is surrounded by ", Color.black);
-        window.addTextToWindow(terrain.getTerrainName() + ".", Color.cyan);
+        SURROUNDED.write(window, terrain.getTerrainName());
     }
 
     /**
      * Determines the surrounding terrain for a town, and the item needed in order to cross that terrain.
+     * Every terrain in the Catalog is equally likely.
      *
-     * @return A Terrain object.
+     * @return The shared Terrain object from the Catalog.
      */
-    private Terrain getNewTerrain() {
-        double rnd = (int) (Math.random() * 6);
-        if (rnd == 0) {
-            return new Terrain("Mountains", "Rope", window);
-        } else if (rnd == 1) {
-            return new Terrain("Ocean", "Boat", window);
-        } else if (rnd == 2) {
-            return new Terrain("Plains", "Horse", window);
-        } else if (rnd == 3) {
-            return new Terrain("Desert", "Water", window);
-        } else if (rnd == 4) {
-            return new Terrain("Marsh", "Boots", window);
-        } else {
-            return new Terrain("Jungle", "Machete", window);
-        }
+    Terrain getNewTerrain() {
+        return pickTerrain(random);
+    }
+
+    private static Terrain pickTerrain(GameRandom random) {
+        return Catalog.terrain(random.nextInt(Catalog.terrainCount()));
+    }
+
+    /**
+     * @return true if a dig finds gold: the last of DIG_ODDS equally likely outcomes.
+     */
+    private boolean digsUpGold() {
+        int odds = balance.getInt(BalanceParameter.DIG_ODDS);
+        return random.nextInt(odds) == odds - 1;
     }
 
     /**
@@ -225,8 +301,8 @@ public class Town {
      */
     private boolean checkItemBreak() {
         if (!easyMode) {
-            double rand = Math.random();
-            return (rand < 0.5);
+            double rand = random.nextDouble();
+            return (rand < balance.get(BalanceParameter.BREAK_CHANCE));
         }
         return false;
     }
@@ -243,20 +319,18 @@ public class Town {
         shop.setSamurai(true);
     }
     public void searchTreasure() {
-        String printMessage = "";
         if (treasureSearched) {
-            printMessage += ("You have already searched this town.");
-        } else if (treasure.equals("dust")) {
-            printMessage += ("You found dust");
+            window.addTextToWindow("You have already searched this town.", TextColor.GREEN);
+        } else if (treasure == Treasure.DUST) {
+            window.addTextToWindow("You found dust", TextColor.GREEN);
         } else {
             treasureSearched = true;
-            if (hunter.findItemInTreasureKit(treasure) != -1) {
-                printMessage += ("You found a " + treasure + " but you already had it");
+            FOUND.write(window, treasure.getName());
+            if (hunter.hasTreasure(treasure)) {
+                window.addTextToWindow(" but you already had it", TextColor.GREEN);
             } else {
                 hunter.addToTreasureKit(treasure);
-                printMessage += ("You found a " + treasure);
             }
         }
-        window.addTextToWindow(printMessage, Color.green);
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+/**
+ * What the hunter has changed in the towns of a World: whether each one has been dug and
+ * whether its treasure has been found.<p>
+ * Only towns with some progress are kept, as a coordinate key and a byte of flags in an
+ * open-addressing table of primitive arrays, so a town that has fallen out of the World's cache
+ * costs 9 bytes rather than a whole Town, and nothing at all if the hunter only passed through.
+ * The World drops the towns far from the hunter with retainWithin(), which keeps the table small
+ * however long the hunter wanders.
+ */
+
+public class TownDeltas {
+    // constants
+    private static final int INITIAL_CAPACITY = 16;
+
+    // instance variables
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY]; // 0 marks an empty slot
+    private int size;
+
+    /**
+     * @param x The town's east-west coordinate.
+     * @param y The town's north-south coordinate.
+     * @return The key the town is stored under.
+     */
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    public static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int y(long key) {
+        return (int) key;
+    }
+
+    /**
+     * @param key A town's key.
+     * @param x The east-west coordinate to measure from.
+     * @param y The north-south coordinate to measure from.
+     * @return The number of steps from there to the town.
+     */
+    public static long distance(long key, int x, int y) {
+        return Math.abs((long) x(key) - x) + Math.abs((long) y(key) - y);
+    }
+
+    /**
+     * @param key The town's key.
+     * @return The town's flags, or 0 if nothing has changed there.
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); flags[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return flags[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records a town's progress. Progress is never undone, so flags of 0 are ignored.
+     *
+     * @param key The town's key.
+     * @param townFlags The town's flags.
+     */
+    public void put(long key, int townFlags) {
+        if (townFlags == 0) {
+            return;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (flags[slot] != 0) {
+            if (keys[slot] == key) {
+                flags[slot] = (byte) townFlags;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        flags[slot] = (byte) townFlags;
+        size++;
+    }
+
+    /**
+     * @return The number of towns with progress.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of slots, for walking the table with keyAt() and flagsAt().
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param slot A slot in the table.
+     * @return The flags in that slot, or 0 if it is empty.
+     */
+    public int flagsAt(int slot) {
+        return flags[slot];
+    }
+
+    /**
+     * Forgets the progress in every town more than a number of steps from a spot.
+     *
+     * @param x The east-west coordinate to measure from.
+     * @param y The north-south coordinate to measure from.
+     * @param distance The most steps away a town can be and keep its progress.
+     */
+    public void retainWithin(int x, int y, int distance) {
+        int far = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (flags[slot] != 0 && distance(keys[slot], x, y) > distance) {
+                far++;
+            }
+        }
+        if (far == 0) {
+            return;
+        }
+        // linear probing can't simply empty a slot, so the towns that stay are put in a new table
+        long[] oldKeys = keys;
+        byte[] oldFlags = flags;
+        keys = new long[oldKeys.length];
+        flags = new byte[oldKeys.length];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldFlags[slot] != 0 && distance(oldKeys[slot], x, y) <= distance) {
+                put(oldKeys[slot], oldFlags[slot]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[] oldFlags = flags;
+        keys = new long[oldKeys.length * 2];
+        flags = new byte[oldKeys.length * 2];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldFlags[slot] != 0) {
+                put(oldKeys[slot], oldFlags[slot]);
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * The treasure hidden in a town.<p>
+ * Dust is worthless and is never kept; each of the other three owns one bit,
+ * so a whole treasure kit fits in an int and the win check is a single comparison.
+ */
+
+public enum Treasure {
+    DUST("dust"),
+    TROPHY("trophy"),
+    CROWN("crown"),
+    GEM("gem");
+
+    // constants
+    public static final int ALL_TREASURES = TROPHY.bit | CROWN.bit | GEM.bit;
+
+    // instance variables
+    private final String name;
+    private final int bit;
+
+    Treasure(String name) {
+        this.name = name;
+        bit = 1 << ordinal();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The bit that stands for this treasure in a treasure kit.
+     */
+    public int bit() {
+        return bit;
+    }
+}
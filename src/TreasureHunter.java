@@ -1,6 +1,3 @@
-import java.util.Scanner;
-import java.awt.Color;
-
 /**
  * This class is responsible for controlling the Treasure Hunter game.<p>
  * It handles the display of the menu and the processing of the player's choices.<p>
@@ -10,22 +7,66 @@ import java.awt.Color;
  */
 
 public class TreasureHunter {
-    // static variables
-    private static final Scanner SCANNER = new Scanner(System.in);
+    // constants
+    private static final String[] DIRECTIONS = {"north", "east", "south", "west"};
+    static final int[] DX = {0, 1, 0, -1};
+    static final int[] DY = {1, 0, -1, 0};
+    static final int STARTING_GOLD = 20;
+    static final int EASY_BONUS_GOLD = 20;
+    static final double MARKDOWN = 0.5; // the share of an item's price a shop pays back
+    static final double HARD_MARKDOWN = 0.25;
+    static final double EASY_MARKDOWN = 1;
+    static final double TOUGHNESS = 0.4; // the chance of a town being tough
+    static final double HARD_TOUGHNESS = 0.75;
+    private static final MessageTemplate MENU = new MessageTemplate("\n(B)uy something at the shop.\n"
+            + "(S)ell something at the shop.\n"
+            + "(E)xplore surrounding terrain.\n"
+            + "(M)ove on to a different town.\n"
+            + "(L)ook for trouble!\n"
+            + "(D)ig for gold\n"
+            + "(H)unt for treasure\n"
+            + "Give up the hunt and e(X)it.\n"
+            + "What's your next move?", TextColor.BLACK);
+    private static final MessageTemplate HEAD = new MessageTemplate("\nYou head {s}.\n", TextColor.BLACK, TextColor.BLACK, TextColor.BLACK);
 
     // instance variables
+    private World world;
+    private int x; // the current town's coordinates in the world
+    private int y;
     private Town currentTown;
     private Hunter hunter;
     private boolean hardMode;
     private boolean easyMode;
     private boolean samuraiMode;
     private boolean end = false;
-    OutputWindow window = new OutputWindow();
+    private boolean won;
+    private boolean lost;
+    private int turns;
+    private Player player;
+    private GameRandom random;
+    private Autosaver autosaver;
+    private Balance balance = Balance.DEFAULT;
+    RenderSink window;
 
     /**
-     * Constructs the Treasure Hunter game.
+     * Constructs the Treasure Hunter game played at the keyboard in a window.
      */
     public TreasureHunter() {
+        this(new ConsolePlayer(), new AsyncWindow(OutputWindow.DEFAULT_SCROLLBACK), System.nanoTime());
+    }
+
+    /**
+     * Constructs a Treasure Hunter game whose input comes from the given player.
+     *
+     * @param player Answers every question the game asks.
+     * @param window Where the game writes its text.
+     * @param seed The seed every random event in the game comes from; the same seed and
+     *             the same answers from the player always play out the same game.
+     */
+    public TreasureHunter(Player player, RenderSink window, long seed) {
+        this.player = player;
+        this.window = window;
+        random = new GameRandom(seed);
         // these will be initialized in the play method
         currentTown = null;
         hunter = null;
@@ -33,34 +74,204 @@ public class TreasureHunter {
     }
 
     /**
-     * Starts the game; this is the only public method
+     * Starts the game and plays it until the hunter wins, loses or gives up.
      */
     public void play() {
+        start();
+        showMenu();
+    }
+
+    /**
+     * Carries on a game restored by GameCodec, from the menu where it was saved.
+     */
+    public void resume() {
+        showMenu();
+    }
+
+    /**
+     * Has the game save itself at the start of every turn.
+     *
+     * @param autosaver Writes the saves in the background, or null to stop saving.
+     */
+    public void setAutosaver(Autosaver autosaver) {
+        this.autosaver = autosaver;
+    }
+
+    /**
+     * Plays the game with different numbers for its odds, prices and gold. Must be called before it starts.
+     *
+     * @param balance The numbers to play with.
+     */
+    public void setBalance(Balance balance) {
+        this.balance = balance;
+    }
+
+    /**
+     * Welcomes the player and puts the hunter in the first town, without starting the menu loop.
+     */
+    void start() {
         welcomePlayer();
+        world = new World(random.nextLong(), toughness(), markdown(), player, window, random);
         enterTown();
-        showMenu();
+    }
+
+    /**
+     * @return true once the hunter has won, lost or given up.
+     */
+    public boolean isOver() {
+        return end;
+    }
+
+    public Hunter getHunter() {
+        return hunter;
+    }
+
+    public Town getCurrentTown() {
+        return currentTown;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * @return The current town's east-west coordinate.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return The current town's north-south coordinate.
+     */
+    public int getY() {
+        return y;
+    }
+
+    boolean isHardMode() {
+        return hardMode;
+    }
+
+    boolean isEasyMode() {
+        return easyMode;
+    }
+
+    boolean isSamuraiMode() {
+        return samuraiMode;
+    }
+
+    /**
+     * @return The game's own random stream, which each new town is split from.
+     */
+    GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Puts back the state of a saved game. Used by GameCodec; restoreWorld() must follow.
+     */
+    void restore(Hunter hunter, GameRandom random, boolean hardMode, boolean easyMode, boolean samuraiMode,
+                 int turns, boolean end, boolean won, boolean lost) {
+        this.hunter = hunter;
+        this.random = random;
+        this.hardMode = hardMode;
+        this.easyMode = easyMode;
+        this.samuraiMode = samuraiMode;
+        this.turns = turns;
+        this.end = end;
+        this.won = won;
+        this.lost = lost;
+    }
+
+    /**
+     * Puts back the world of a saved game and the hunter in their town. Used by GameCodec.
+     *
+     * @param worldSeed The seed of the saved world.
+     * @param x The current town's east-west coordinate.
+     * @param y The current town's north-south coordinate.
+     * @param deltas The progress in the saved world's towns.
+     */
+    void restoreWorld(long worldSeed, int x, int y, TownDeltas deltas) {
+        world = new World(worldSeed, toughness(), markdown(), player, window, random);
+        for (int slot = 0; slot < deltas.capacity(); slot++) {
+            if (deltas.flagsAt(slot) != 0) {
+                world.restoreDelta(deltas.keyAt(slot), deltas.flagsAt(slot));
+            }
+        }
+        this.x = x;
+        this.y = y;
+        currentTown = world.townAt(x, y);
+        applyModes();
+        currentTown.hunterArrives(hunter);
+    }
+
+    /**
+     * Puts back the town of a version 1 save, which had no world, and the hunter in it. The hunter
+     * carries on in a new world with the saved town at its centre. Used by GameCodec.
+     *
+     * @param worldSeed The seed of the new world.
+     * @param townRandom The saved town's stream of random numbers.
+     * @param terrain The saved town's terrain.
+     * @param treasure The treasure hidden in the saved town.
+     * @param toughTown true if the saved town is tough.
+     * @param dug true if the hunter has already dug in the saved town.
+     * @param treasureSearched true if the hunter has already found the saved town's treasure.
+     */
+    void restoreTown(long worldSeed, GameRandom townRandom, Terrain terrain, Treasure treasure,
+                     boolean toughTown, boolean dug, boolean treasureSearched) {
+        world = new World(worldSeed, toughness(), markdown(), player, window, random);
+        x = 0;
+        y = 0;
+        currentTown = new Town(new Shop(markdown(), player, window), window, townRandom, terrain, treasure, toughTown);
+        currentTown.restoreProgress(dug, treasureSearched);
+        world.putTown(x, y, currentTown);
+        applyModes();
+        currentTown.hunterArrives(hunter);
+    }
+
+    /**
+     * @return true if the game ended with all three treasures found.
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * @return true if the game ended with the hunter losing a brawl they could not pay for.
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * @return The number of menu choices processed so far.
+     */
+    public int getTurns() {
+        return turns;
     }
 
     /**
      * Creates a hunter object at the beginning of the game and populates the class member variable with it.
      */
     private void welcomePlayer() {
-        window.addTextToWindow("Welcome to TREASURE HUNTER!\n", Color.BLACK);
-        window.addTextToWindow("Going hunting for the big treasure, eh?\n", Color.BLACK);
-        window.addTextToWindow("What's your name, Hunter?", Color.BLACK);
-        String name = SCANNER.nextLine().toLowerCase();
+        window.addTextToWindow("Welcome to TREASURE HUNTER!\n", TextColor.BLACK);
+        window.addTextToWindow("Going hunting for the big treasure, eh?\n", TextColor.BLACK);
+        window.addTextToWindow("What's your name, Hunter?", TextColor.BLACK);
+        window.flush();
+        String name = player.respond(Prompt.NAME, null, null).toLowerCase();
 
         // set hunter instance variable
-        hunter = new Hunter(name, 20, window);
+        hunter = new Hunter(name, balance.getInt(BalanceParameter.STARTING_GOLD), window);
         window.clear();
-        window.addTextToWindow("Easy, Normal, or Hard mode? (e/n/h): ", Color.BLACK);
-        String difficulty = SCANNER.nextLine().toLowerCase();
+        window.addTextToWindow("Easy, Normal, or Hard mode? (e/n/h): ", TextColor.BLACK);
+        window.flush();
+        String difficulty = player.respond(Prompt.DIFFICULTY, hunter, null).toLowerCase();
         window.clear();
         if (difficulty.equals("h")) {
             hardMode = true;
         } else if (difficulty.equals("e")) {
             easyMode = true;
-            hunter.changeGold(20);
+            hunter.changeGold(balance.getInt(BalanceParameter.EASY_BONUS_GOLD));
         } else if (difficulty.equals("test")) {
             hunter.changeGold(80);
             hunter.test();
@@ -70,46 +281,62 @@ public class TreasureHunter {
     }
 
     /**
-     * Creates a new town and adds the Hunter to it.
+     * Finds the town at the hunter's coordinates and adds the Hunter to it.
      */
     private void enterTown() {
-        double markdown = 0.5;
-        double toughness = 0.4;
-        if (hardMode) {
-            // in hard mode, you get less money back when you sell items
-            markdown = 0.25;
-
-            // and the town is "tougher"
-            toughness = 0.75;
-        }
-        if (easyMode) {
-            markdown = 1;
+        // the World makes the town the first time anyone comes here, and remembers
+        // it afterwards, so coming back finds the town just as the hunter left it,
+        // unless the hunter has been so far away that the world has forgotten it
+        world.forgetFarFrom(x, y);
+        currentTown = world.townAt(x, y);
 
+        applyModes();
+        if (samuraiMode) {
+            hunter.samurai();
         }
 
-        // note that we don't need to access the Shop object
-        // outside of this method, so it isn't necessary to store it as an instance
-        // variable; we can leave it as a local variable
-        Shop shop = new Shop(markdown, window);
-
-        // creating the new Town -- which we need to store as an instance
-        // variable in this class, since we need to access the Town
-        // object in other methods of this class
-        currentTown = new Town(shop, toughness, window);
+        // calling the hunterArrives method, which takes the Hunter
+        // as a parameter; note this also could have been done in the
+        // constructor for Town, but this illustrates another way to associate
+        // an object with an object of a different class
+        currentTown.hunterArrives(hunter);
+    }
 
+    /**
+     * Sets up the current town for the game's mode.
+     */
+    private void applyModes() {
+        currentTown.setBalance(balance);
         if (easyMode) {
             currentTown.easyMode();
         }
         if (samuraiMode) {
             currentTown.samuraiMode();
-            hunter.samurai();
         }
+    }
 
-        // calling the hunterArrives method, which takes the Hunter
-        // as a parameter; note this also could have been done in the
-        // constructor for Town, but this illustrates another way to associate
-        // an object with an object of a different class
-        currentTown.hunterArrives(hunter);
+    /**
+     * Walks the hunter to a neighbouring town in a random direction.
+     */
+    private void travel() {
+        int direction = random.nextInt(DIRECTIONS.length);
+        x += DX[direction];
+        y += DY[direction];
+        HEAD.write(window, DIRECTIONS[direction]);
+    }
+
+    /**
+     * @return The share of an item's price a shop pays back, which depends on the mode.
+     */
+    private double markdown() {
+        return balance.markdown(hardMode, easyMode);
+    }
+
+    /**
+     * @return The chance of a town being tough, which depends on the mode.
+     */
+    private double toughness() {
+        return balance.toughness(hardMode);
     }
 
     /**
@@ -118,71 +345,96 @@ public class TreasureHunter {
      * This method will loop until the user chooses to exit.
      */
     private void showMenu() {
-        String choice;
         while (!end) {
+            playTurn();
+        }
+        window.flush();
+    }
 
-            if (hunter.treasureKitIsFull()) {
-                window.addTextToWindow("\nCongratulations, you have found the last of the three treasures, you win!", Color.darkGray);
-                end = true;
-            } else {
-                String menu = "";
-                menu += currentTown.getLatestNews();
-                menu += ("\n***\n");
-                window.addTextToWindow(menu, Color.black);
-                hunter.infoString();
-                currentTown.infoString();
-                menu = ("\n(B)uy something at the shop.\n");
-                menu += ("(S)ell something at the shop.\n");
-                menu += ("(E)xplore surrounding terrain.\n");
-                menu += ("(M)ove on to a different town.\n");
-                menu += ("(L)ook for trouble!\n");
-                menu += ("(D)ig for gold\n");
-                menu += ("(H)unt for treasure\n");
-                menu += ("Give up the hunt and e(X)it.\n");
-                menu += ("What's your next move?");
-                window.addTextToWindow(menu, Color.BLACK);
-                choice = SCANNER.nextLine().toLowerCase();
-                window.clear();
-                processChoice(choice);
+    /**
+     * Plays one pass of the menu loop: checks for a win, shows the menu and processes one choice.
+     */
+    void playTurn() {
+        String choice;
+        if (autosaver != null) {
+            autosaver.save(this);
+        }
+        if (hunter.treasureKitIsFull()) {
+            window.addTextToWindow("\nCongratulations, you have found the last of the three treasures, you win!", TextColor.DARK_GRAY);
+            won = true;
+            end = true;
+            Metrics.gameWon();
+        } else {
+            window.startRegion(ScreenRegion.NEWS);
+            window.addTextToWindow(currentTown.getLatestNews(), TextColor.BLACK);
+            window.startRegion(ScreenRegion.STATUS);
+            window.addTextToWindow("\n***\n", TextColor.BLACK);
+            hunter.infoString();
+            window.startRegion(ScreenRegion.TERRAIN);
+            currentTown.infoString();
+            window.startRegion(ScreenRegion.MENU);
+            if (window.isRendering()) {
+                MENU.write(window);
             }
-
+            window.flush();
+            choice = player.respond(Prompt.MENU, hunter, currentTown).toLowerCase();
+            window.clear();
+            turns++;
+            processChoice(choice);
         }
     }
 
     /**
      * Takes the choice received from the menu and calls the appropriate method to carry out the instructions.
+     * Each action is counted in Metrics, and every so often timed.
      * @param choice The action to process.
      */
-    private void processChoice(String choice) {
-        if (choice.equals("b") || choice.equals("s")) {
-            currentTown.enterShop(choice);
-        } else if (choice.equals("e")) {
-            currentTown.getTerrain().infoString();
-        } else if (choice.equals("m")) {
-            if (currentTown.leaveTown()) {
-                // This town is going away so print its news ahead of time.
-                System.out.println(currentTown.getLatestNews());
-                enterTown();
-            }
-        } else if (choice.equals("l")) {
-            if (currentTown.lookForTrouble().equals("end")) {
-                end = true;
-                gameOver();
-            }
+    void processChoice(String choice) {
+        long started = Metrics.actionStarted();
+        MenuAction action = MenuAction.fromChoice(choice);
+        action.perform(this);
+        Metrics.actionEnded(action, started);
+    }
 
-        } else if (choice.equals("d")) {
-            currentTown.digForGold(hunter);
-        } else if (choice.equals("x")) {
-            window.addTextToWindow("Fare thee well, " + hunter.getHunterName() + "!", Color.black);
+    /**
+     * Moves the hunter on to a neighbouring town, if they can cross the terrain.
+     */
+    void move() {
+        if (currentTown.leaveTown()) {
+            // The hunter is leaving this town so print its news ahead of time.
+            window.addTextToWindow(currentTown.getLatestNews(), TextColor.BLACK);
+            travel();
+            enterTown();
+        }
+    }
+
+    /**
+     * Lets the hunter look for a fight, which ends the game if they lose more gold than they have.
+     */
+    void lookForTrouble() {
+        if (currentTown.lookForTrouble().equals("end")) {
+            lost = true;
             end = true;
-        } else if (choice.equals("h")) {
-            currentTown.searchTreasure();
-        } else {
-            window.addTextToWindow("Yikes! That's an invalid option! Try again.", Color.black);
+            Metrics.gameLost();
+            gameOver();
         }
     }
 
+    /**
+     * Ends the game at the hunter's request.
+     */
+    void exit() {
+        window.addTextToWindow("Fare thee well, ", TextColor.BLACK);
+        window.addTextToWindow(hunter.getHunterName(), TextColor.BLACK);
+        window.addTextToWindow("!", TextColor.BLACK);
+        end = true;
+    }
+
+    void invalidChoice() {
+        window.addTextToWindow("Yikes! That's an invalid option! Try again.", TextColor.BLACK);
+    }
+
     public void gameOver() {
-        System.out.println("You have lost! :(");
+        window.addTextToWindow("\nYou have lost! :(", TextColor.BLACK);
     }
 }
\ No newline at end of file
